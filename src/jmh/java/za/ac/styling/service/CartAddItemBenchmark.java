@@ -0,0 +1,162 @@
+package za.ac.styling.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import za.ac.styling.domain.Cart;
+import za.ac.styling.domain.Product;
+import za.ac.styling.domain.ProductColour;
+import za.ac.styling.domain.ProductColourSize;
+import za.ac.styling.domain.User;
+import za.ac.styling.repository.CartRepository;
+import za.ac.styling.repository.ProductColourRepository;
+import za.ac.styling.repository.ProductColourSizeRepository;
+import za.ac.styling.repository.ProductRepository;
+import za.ac.styling.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Add-to-cart latency under concurrency, through {@link CartMutationService} against a real database. The
+ * upsert is Postgres-only, so point TEST_POSTGRES_URL (plus TEST_POSTGRES_USER and TEST_POSTGRES_PASSWORD) at
+ * a disposable database; the schema is created and dropped by Hibernate. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.include=CartAddItemBenchmark}.
+ * <p>
+ * {@code ownCart} gives every thread its own cart; {@code sharedCart} has all threads add to one cart, whose
+ * row lock serialises them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CartAddItemBenchmark {
+
+    private static final int THREADS = 8;
+
+    private ConfigurableApplicationContext context;
+    private CartMutationService cartMutationService;
+    private UserRepository userRepository;
+    private Integer productId;
+    private Integer colourId;
+    private Integer sizeId;
+    private Integer sharedUserId;
+
+    @Configuration
+    @ImportAutoConfiguration({
+            DataSourceAutoConfiguration.class,
+            DataSourceTransactionManagerAutoConfiguration.class,
+            JdbcTemplateAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class
+    })
+    @EntityScan(basePackageClasses = Cart.class)
+    @EnableJpaRepositories(basePackageClasses = CartRepository.class)
+    @Import(CartMutationService.class)
+    static class CartConfig {
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadCart {
+
+        Integer userId;
+
+        @Setup
+        public void setUp(CartAddItemBenchmark benchmark) {
+            userId = benchmark.newUser();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        String url = System.getenv("TEST_POSTGRES_URL");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("Set TEST_POSTGRES_URL to a disposable Postgres database");
+        }
+        context = new SpringApplicationBuilder(CartConfig.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "spring.datasource.url=" + url,
+                        "spring.datasource.username=" + System.getenv("TEST_POSTGRES_USER"),
+                        "spring.datasource.password=" + System.getenv("TEST_POSTGRES_PASSWORD"),
+                        "spring.datasource.hikari.maximum-pool-size=" + (THREADS + 2),
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.sql.init.mode=never",
+                        "logging.level.root=WARN")
+                .run();
+        cartMutationService = context.getBean(CartMutationService.class);
+        userRepository = context.getBean(UserRepository.class);
+
+        LocalDateTime now = LocalDateTime.now();
+        Product product = context.getBean(ProductRepository.class)
+                .save(Product.builder().name("Benchmark tee").basePrice(100).createdAt(now).build());
+        ProductColour colour = context.getBean(ProductColourRepository.class)
+                .save(ProductColour.builder().name("Black").product(product).build());
+        // Enough stock that no add is ever refused during a run
+        ProductColourSize size = context.getBean(ProductColourSizeRepository.class)
+                .save(ProductColourSize.builder()
+                        .sizeName("M")
+                        .stockQuantity(1_000_000_000)
+                        .reservedQuantity(0)
+                        .colour(colour)
+                        .build());
+        productId = product.getProductId();
+        colourId = colour.getColourId();
+        sizeId = size.getSizeId();
+        sharedUserId = newUser();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    Integer newUser() {
+        String name = "bench-" + UUID.randomUUID();
+        return userRepository.save(User.builder()
+                .username(name)
+                .email(name + "@example.com")
+                .password("x")
+                .isActive(true)
+                .createdAt(LocalDateTime.now())
+                .build()).getUserId();
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public CartMutationService.AddItemResult ownCart(ThreadCart cart) {
+        return cartMutationService.addItem(cart.userId, productId, colourId, sizeId, 1);
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public CartMutationService.AddItemResult sharedCart() {
+        return cartMutationService.addItem(sharedUserId, productId, colourId, sizeId, 1);
+    }
+}
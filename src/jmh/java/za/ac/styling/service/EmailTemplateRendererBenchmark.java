@@ -0,0 +1,113 @@
+package za.ac.styling.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import za.ac.styling.domain.Address;
+import za.ac.styling.domain.Order;
+import za.ac.styling.domain.OrderItem;
+import za.ac.styling.domain.OrderStatus;
+import za.ac.styling.domain.Product;
+import za.ac.styling.domain.ProductImage;
+import za.ac.styling.domain.ShippingMethod;
+import za.ac.styling.domain.User;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invoice rendering throughput. Run with {@code mvn -Pbenchmark test-compile exec:exec}; the profile adds
+ * {@code -prof gc}, whose gc.alloc.rate.norm column is the allocation per rendered email.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailTemplateRendererBenchmark {
+
+    @Param({ "1", "10", "50" })
+    public int lines;
+
+    private EmailTemplateRenderer renderer;
+    private User user;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        renderer = new EmailTemplateRenderer();
+        user = User.builder()
+                .firstName("Thandi")
+                .lastName("Mokoena")
+                .email("thandi@example.com")
+                .build();
+
+        List<OrderItem> items = new ArrayList<>(lines);
+        double subtotal = 0;
+        for (int i = 0; i < lines; i++) {
+            Product product = Product.builder()
+                    .name("Linen shirt <" + i + "> & co")
+                    .primaryImage(ProductImage.builder()
+                            .supabaseUrl("https://cdn.example.com/products/" + i + "/main.webp")
+                            .build())
+                    .build();
+            int quantity = 1 + i % 3;
+            double price = 249.99 + i;
+            items.add(OrderItem.builder()
+                    .product(product)
+                    .quantity(quantity)
+                    .price(price)
+                    .subtotal(price * quantity)
+                    .build());
+            subtotal += price * quantity;
+        }
+
+        order = Order.builder()
+                .orderNumber("ORD-20261019-000123")
+                .orderDate(new Date())
+                .status(OrderStatus.CONFIRMED)
+                .items(items)
+                .subtotal(subtotal)
+                .shippingCost(99.0)
+                .taxAmount(subtotal * 0.15)
+                .discountAmount(50.0)
+                .totalAmount(subtotal * 1.15 + 49.0)
+                .shippingAddress(Address.builder()
+                        .fullName("Thandi Mokoena")
+                        .addressLine1("12 Long Street")
+                        .addressLine2("Unit 4")
+                        .city("Cape Town")
+                        .province("Western Cape")
+                        .postalCode("8001")
+                        .phone("0821234567")
+                        .build())
+                .shippingMethod(ShippingMethod.builder()
+                        .name("Standard")
+                        .estimatedDays(5)
+                        .build())
+                .build();
+    }
+
+    @Benchmark
+    public String renderInvoice() {
+        return renderer.renderInvoice(user, order);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String renderInvoiceContended() {
+        return renderer.renderInvoice(user, order);
+    }
+}
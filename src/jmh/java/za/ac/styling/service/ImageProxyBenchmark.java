@@ -0,0 +1,77 @@
+package za.ac.styling.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import za.ac.styling.repository.ProductRepository;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link ImageProxyCache} lookups on the local backend: a hit only consults the index, a miss downloads the
+ * object into the cache directory. Misses delete the file they replace straight away (no eviction grace).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageProxyBenchmark {
+
+    private static final String PATH = "products/1/photo.jpg";
+
+    @Param({ "640", "2048" })
+    public int width;
+
+    private LocalStorageFixture fixture;
+    private ImageProxyCache cache;
+
+    @Setup
+    public void setUp() throws IOException {
+        fixture = new LocalStorageFixture();
+        fixture.storageService.uploadBytes(LocalStorageFixture.jpeg(width, width * 3 / 4),
+                LocalStorageFixture.BUCKET, PATH, "image/jpeg");
+        cache = new ImageProxyCache(fixture.storageService, mock(ProductRepository.class), new SimpleMeterRegistry(),
+                true, fixture.root.resolve("proxy").toString(), 1L << 30, 0, false, 0);
+        cache.get(LocalStorageFixture.BUCKET, PATH);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fixture.delete();
+    }
+
+    @Benchmark
+    public ImageProxyCache.CachedImage hit() throws IOException {
+        return cache.get(LocalStorageFixture.BUCKET, PATH);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ImageProxyCache.CachedImage hitContended() throws IOException {
+        return cache.get(LocalStorageFixture.BUCKET, PATH);
+    }
+
+    @Benchmark
+    public ImageProxyCache.CachedImage miss() throws IOException {
+        cache.invalidate(LocalStorageFixture.BUCKET, PATH);
+        ImageProxyCache.CachedImage image = cache.get(LocalStorageFixture.BUCKET, PATH);
+        cache.deleteRetiredFiles();
+        return image;
+    }
+}
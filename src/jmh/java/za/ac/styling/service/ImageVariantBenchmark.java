@@ -0,0 +1,80 @@
+package za.ac.styling.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+import za.ac.styling.domain.ProductImage;
+import za.ac.styling.repository.ProductImageRepository;
+import za.ac.styling.repository.ReviewImageRepository;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Variant generation end to end on the local backend: spooling the upload, decoding, resizing, encoding and
+ * storing every variant. Each call waits until the variant URLs are saved, so the time includes the hand-off
+ * to the background pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ImageVariantBenchmark {
+
+    @Param({ "1600", "4000" })
+    public int width;
+
+    private LocalStorageFixture fixture;
+    private ImageVariantService variantService;
+    private ProductImage image;
+    private MockMultipartFile upload;
+    private final Semaphore saved = new Semaphore(0);
+
+    @Setup
+    public void setUp() throws IOException {
+        fixture = new LocalStorageFixture();
+        ProductImageRepository productImageRepository = mock(ProductImageRepository.class);
+        when(productImageRepository.updateVariantUrls(anyLong(), any(), any(), any())).thenAnswer(invocation -> {
+            saved.release();
+            return 1;
+        });
+        variantService = new ImageVariantService(fixture.storageService, productImageRepository,
+                mock(ReviewImageRepository.class), new SimpleMeterRegistry(), true, 1, 10, 50_000_000L, 0.82f);
+        image = ProductImage.builder().imageId(1L).bucketPath("products/1/photo.jpg").build();
+        upload = new MockMultipartFile("file", "photo.jpg", "image/jpeg",
+                LocalStorageFixture.jpeg(width, width * 3 / 4));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        variantService.shutdown();
+        fixture.delete();
+    }
+
+    @Benchmark
+    public void generateVariants() throws InterruptedException {
+        variantService.generate(image, upload);
+        if (!saved.tryAcquire(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Variants were not generated");
+        }
+    }
+}
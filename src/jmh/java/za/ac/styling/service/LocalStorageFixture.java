@@ -0,0 +1,75 @@
+package za.ac.styling.service;
+
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import za.ac.styling.service.impl.LocalFileObjectStorage;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Wires {@link SupabaseStorageService} to a {@link LocalFileObjectStorage} in a temp directory, so the upload,
+ * variant and proxy paths can be benchmarked without network access or a database (deduplication is off).
+ */
+final class LocalStorageFixture {
+
+    static final String BUCKET = "product-images";
+
+    final Path root;
+    final LocalFileObjectStorage objectStorage;
+    final SupabaseStorageService storageService;
+
+    LocalStorageFixture() throws IOException {
+        root = Files.createTempDirectory("storage-bench-");
+        objectStorage = new LocalFileObjectStorage(root.toString(), "http://localhost:8080/files", "bench-key");
+        storageService = new SupabaseStorageService();
+        ReflectionTestUtils.setField(storageService, "objectStorage", objectStorage);
+        ReflectionTestUtils.setField(storageService, "objectIndex",
+                new StorageObjectIndex(null, mock(PlatformTransactionManager.class), false));
+        ReflectionTestUtils.setField(storageService, "productImagesBucket", BUCKET);
+    }
+
+    // A photo-like JPEG (gradient plus noise) so encoded sizes and decode costs are realistic
+    static byte[] jpeg(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setPaint(new GradientPaint(0, 0, new Color(40, 90, 160), width, height, new Color(230, 180, 120)));
+            g.fillRect(0, 0, width, height);
+        } finally {
+            g.dispose();
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < width * height / 8; i++) {
+            image.setRGB(random.nextInt(width), random.nextInt(height), random.nextInt(0xFFFFFF));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "jpeg", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
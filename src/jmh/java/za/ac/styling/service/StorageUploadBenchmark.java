@@ -0,0 +1,72 @@
+package za.ac.styling.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload and download through {@link SupabaseStorageService} on the local backend: content sniffing, hashing
+ * and the atomic write. Each upload is deleted again so the disk stays flat; the delete is a single unlink.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageUploadBenchmark {
+
+    @Param({ "640", "2048" })
+    public int width;
+
+    private LocalStorageFixture fixture;
+    private MockMultipartFile upload;
+    private String storedPath;
+
+    @Setup
+    public void setUp() throws IOException {
+        fixture = new LocalStorageFixture();
+        upload = new MockMultipartFile("file", "photo.jpg", "image/jpeg",
+                LocalStorageFixture.jpeg(width, width * 3 / 4));
+        storedPath = fixture.storageService.uploadFile(upload, LocalStorageFixture.BUCKET, "products/1").getPath();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fixture.delete();
+    }
+
+    @Benchmark
+    public String uploadAndDelete() throws IOException {
+        SupabaseStorageService.UploadResult result =
+                fixture.storageService.uploadFile(upload, LocalStorageFixture.BUCKET, "products/2");
+        fixture.storageService.deleteFile(result.getBucket(), result.getPath());
+        return result.getPath();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String uploadAndDeleteContended() throws IOException {
+        return uploadAndDelete();
+    }
+
+    @Benchmark
+    public String download() throws IOException {
+        return fixture.storageService.download(LocalStorageFixture.BUCKET, storedPath, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,79 @@
+package za.ac.styling.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${http.client.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${http.client.read-timeout-ms:15000}")
+    private long readTimeoutMs;
+
+    @Value("${http.client.write-timeout-ms:15000}")
+    private long writeTimeoutMs;
+
+    @Value("${http.client.call-timeout-ms:30000}")
+    private long callTimeoutMs;
+
+    @Value("${http.client.pool.max-idle:20}")
+    private int maxIdleConnections;
+
+    @Value("${http.client.pool.keep-alive-ms:300000}")
+    private long keepAliveMs;
+
+    @Value("${http.client.max-requests:64}")
+    private int maxRequests;
+
+    @Value("${http.client.max-requests-per-host:16}")
+    private int maxRequestsPerHost;
+
+    @Bean
+    public ConnectionPool httpConnectionPool() {
+        return new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Bean
+    public OkHttpClient httpClient(ConnectionPool httpConnectionPool, MeterRegistry meterRegistry) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        Gauge.builder("http.client.pool.connections", httpConnectionPool, ConnectionPool::connectionCount)
+                .tag("state", "total")
+                .register(meterRegistry);
+        Gauge.builder("http.client.pool.connections", httpConnectionPool, ConnectionPool::idleConnectionCount)
+                .tag("state", "idle")
+                .register(meterRegistry);
+        Gauge.builder("http.client.dispatcher.calls", dispatcher, Dispatcher::runningCallsCount)
+                .tag("state", "running")
+                .register(meterRegistry);
+        Gauge.builder("http.client.dispatcher.calls", dispatcher, Dispatcher::queuedCallsCount)
+                .tag("state", "queued")
+                .register(meterRegistry);
+
+        // HTTP/2 is negotiated via ALPN on TLS connections; plain connections stay on HTTP/1.1.
+        return new OkHttpClient.Builder()
+                .connectionPool(httpConnectionPool)
+                .dispatcher(dispatcher)
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeoutMs, TimeUnit.MILLISECONDS)
+                .callTimeout(callTimeoutMs, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+}
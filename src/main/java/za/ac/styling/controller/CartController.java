@@ -3,10 +3,13 @@ package za.ac.styling.controller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import za.ac.styling.domain.Cart;
+import za.ac.styling.service.CartMutationService;
 import za.ac.styling.service.CartService;
+import za.ac.styling.service.PriceBreakdown;
+import za.ac.styling.service.PricingEngine;
+import za.ac.styling.service.WriteBehindCartStore;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,19 +22,13 @@ public class CartController {
     private CartService cartService;
 
     @Autowired
-    private za.ac.styling.repository.CartItemRepository cartItemRepository;
+    private CartMutationService cartMutationService;
 
     @Autowired
-    private za.ac.styling.repository.UserRepository userRepository;
+    private WriteBehindCartStore cartStore;
 
     @Autowired
-    private za.ac.styling.repository.ProductRepository productRepository;
-
-    @Autowired
-    private za.ac.styling.repository.ProductColourRepository productColourRepository;
-
-    @Autowired
-    private za.ac.styling.repository.ProductColourSizeRepository productColourSizeRepository;
+    private PricingEngine pricingEngine;
 
     @Autowired
     public void setCartService(CartService cartService) {
@@ -66,6 +63,7 @@ public class CartController {
     @PutMapping("/update")
     public ResponseEntity<?> update(@RequestBody Cart cart) {
         try {
+            cartStore.evictCart(cart.getCartId());
             Cart updated = cartService.update(cart);
             if (updated == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -92,6 +90,7 @@ public class CartController {
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<?> deleteCart(@PathVariable Integer id) {
         try {
+            cartStore.discardCarts(List.of(id));
             cartService.delete(id);
             return ResponseEntity.ok(Map.of("success", true, "message", "Cart deleted successfully"));
         } catch (Exception e) {
@@ -104,7 +103,7 @@ public class CartController {
     public ResponseEntity<?> getCartByUser(@PathVariable Integer userId) {
         try {
             System.out.println("Fetching cart for user ID: " + userId);
-            Cart cart = cartService.findByUserId(userId)
+            Cart cart = (cartStore.isEnabled() ? cartStore.getCart(userId) : cartService.findByUserId(userId))
                     .orElse(null);
             if (cart == null) {
                 System.out.println("No cart found for user " + userId + ", returning empty cart");
@@ -130,11 +129,15 @@ public class CartController {
                     "✅ Cart found with " + validItems.size() + " valid items");
             
             // Return a response map with filtered items instead of modifying the entity
+            PriceBreakdown pricing = pricingEngine.priceCart(validItems, null);
+
             return ResponseEntity.ok(Map.of(
                     "success", true, 
                     "data", Map.of(
                             "cartId", cart.getCartId(),
                             "items", validItems,
+                            "totalPrice", pricing.getSubtotal(),
+                            "totalItems", pricing.getTotalQuantity(),
                             "createdAt", cart.getCreatedAt() != null ? cart.getCreatedAt().toString() : "",
                             "updatedAt", cart.getUpdatedAt() != null ? cart.getUpdatedAt().toString() : ""
                     )));
@@ -147,118 +150,42 @@ public class CartController {
     }
 
     @PostMapping("/add-item")
-    @Transactional
     public ResponseEntity<?> addItemToCart(@RequestBody Map<String, Object> request) {
         try {
-            System.out.println("ADD TO CART Request: " + request);
-
             Integer userId = (Integer) request.get("userId");
             Integer productId = (Integer) request.get("productId");
             Integer colourId = (Integer) request.get("colourId");
             Integer sizeId = (Integer) request.get("sizeId");
             Integer quantity = (Integer) request.get("quantity");
 
-            System.out.println("   User ID: " + userId + ", Product ID: " + productId +
-                    ", Colour ID: " + colourId + ", Size ID: " + sizeId + ", Qty: " + quantity);
-
-            za.ac.styling.domain.User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            System.out.println("User found: " + user.getEmail());
-
-            Cart cart = cartService.findByUserId(userId).orElse(null);
-            if (cart == null) {
-                System.out.println("   Creating new cart for user " + userId);
-                cart = Cart.builder()
-                        .user(user)
-                        .items(new ArrayList<>())
-                        .createdAt(java.time.LocalDateTime.now())
-                        .updatedAt(java.time.LocalDateTime.now())
-                        .build();
-                cart = cartService.create(cart);
-                System.out.println("New cart created with ID: " + cart.getCartId());
-            } else {
-                System.out.println("Existing cart found with ID: " + cart.getCartId());
+            if (userId == null || productId == null || colourId == null || sizeId == null
+                    || quantity == null || quantity <= 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("success", false, "message",
+                                "userId, productId, colourId, sizeId and a positive quantity are required"));
             }
 
-            za.ac.styling.domain.Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> new RuntimeException("Product not found"));
-            System.out.println("Product found: " + product.getName());
-
-            za.ac.styling.domain.ProductColour colour = productColourRepository.findById(colourId)
-                    .orElseThrow(() -> new RuntimeException("Colour not found"));
-            System.out.println("Colour found: " + colour.getName());
-
-            za.ac.styling.domain.ProductColourSize size = productColourSizeRepository.findById(sizeId)
-                    .orElseThrow(() -> new RuntimeException("Size not found"));
-            System.out.println("Size found: " + size.getSizeName() + " (Stock: " + size.getStockQuantity() + ")");
+            CartMutationService.AddItemResult result = cartStore.isEnabled()
+                    ? cartStore.addItem(userId, productId, colourId, sizeId, quantity)
+                    : cartMutationService.addItem(userId, productId, colourId, sizeId, quantity);
 
-            int availableStock = size.getStockQuantity() - size.getReservedQuantity();
-            System.out.println("   Available stock: " + availableStock + " (Total: " + size.getStockQuantity() +
-                    ", Reserved: " + size.getReservedQuantity() + ")");
-
-            za.ac.styling.domain.CartItem existingItem = cart.getItems() != null ? cart.getItems().stream()
-                    .filter(item -> item.getProduct().getProductId().equals(productId)
-                            && item.getColour().getColourId().equals(colourId)
-                            && item.getSize().getSizeId().equals(sizeId))
-                    .findFirst()
-                    .orElse(null) : null;
-
-            if (existingItem != null) {
-                System.out.println("   Item already in cart, updating quantity from " +
-                        existingItem.getQuantity() + " to " + (existingItem.getQuantity() + quantity));
-
-                int newQuantity = existingItem.getQuantity() + quantity;
-                if (newQuantity > availableStock) {
-                    System.out.println("Insufficient stock for update");
-                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                            .body(Map.of(
-                                    "success", false,
-                                    "message", "Insufficient stock. Only " + availableStock + " items available.",
-                                    "availableStock", availableStock));
-                }
-
-                existingItem.setQuantity(newQuantity);
-                cartItemRepository.save(existingItem);
-                System.out.println("Cart item updated successfully");
-            } else {
-                System.out.println("   Adding new item to cart");
-
-                if (quantity > availableStock) {
-                    System.out.println("Insufficient stock for new item");
-                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                            .body(Map.of(
-                                    "success", false,
-                                    "message", "Insufficient stock. Only " + availableStock + " items available.",
-                                    "availableStock", availableStock));
-                }
-
-                za.ac.styling.domain.CartItem cartItem = za.ac.styling.domain.CartItem.builder()
-                        .product(product)
-                        .colour(colour)
-                        .size(size)
-                        .quantity(quantity)
-                        .build();
-                cartItem.setCart(cart);
-                if (cart.getItems() == null) {
-                    cart.setItems(new java.util.ArrayList<>());
-                }
-                cart.getItems().add(cartItem);
-                cartService.update(cart);
-                System.out.println("✅ New cart item created, linked, and persisted with cart update.");
-            }
-
-            cart.setUpdatedAt(java.time.LocalDateTime.now());
-            Cart updatedCart = cartService.update(cart);
-
-            System.out.println("Cart updated. Total items in cart: " +
-                    (updatedCart.getItems() != null ? updatedCart.getItems().size() : 0));
-
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Item added to cart",
-                    "cartId", cart.getCartId(),
-                    "itemCount", updatedCart.getItems() != null ? updatedCart.getItems().size() : 0));
+            return switch (result.outcome()) {
+                case ADDED -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "message", "Item added to cart",
+                        "cartId", result.cartId(),
+                        "itemCount", result.itemCount()));
+                case INSUFFICIENT_STOCK -> ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of(
+                                "success", false,
+                                "message", "Insufficient stock. Only " + result.availableStock() + " items available.",
+                                "availableStock", result.availableStock()));
+                case INVALID_ITEM -> ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("success", false, "message",
+                                "Product, colour and size do not match an existing item"));
+                case USER_NOT_FOUND -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("success", false, "message", "User not found"));
+            };
         } catch (Exception e) {
             System.err.println("ERROR adding to cart: " + e.getMessage());
             e.printStackTrace();
@@ -271,6 +198,7 @@ public class CartController {
     public ResponseEntity<?> clearCart(@PathVariable Integer userId) {
         try {
 
+            cartStore.discard(userId);
             Cart cart = cartService.findByUserId(userId).orElse(null);
             if (cart == null) {
                 return ResponseEntity.ok(Map.of("success", true, "message", "No cart found for user"));
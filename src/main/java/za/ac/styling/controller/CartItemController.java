@@ -6,6 +6,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import za.ac.styling.domain.CartItem;
 import za.ac.styling.service.CartItemService;
+import za.ac.styling.service.WriteBehindCartStore;
 
 import java.util.List;
 import java.util.Map;
@@ -16,6 +17,9 @@ public class CartItemController {
 
     private CartItemService cartItemService;
 
+    @Autowired
+    private WriteBehindCartStore cartStore;
+
     @Autowired
     public void setCartItemService(CartItemService cartItemService) {
         this.cartItemService = cartItemService;
@@ -24,6 +28,9 @@ public class CartItemController {
     @PostMapping("/create")
     public ResponseEntity<CartItem> createCartItem(@RequestBody CartItem cartItem) {
         try {
+            if (cartItem.getCart() != null) {
+                cartStore.evictCart(cartItem.getCart().getCartId());
+            }
             CartItem created = cartItemService.create(cartItem);
             return ResponseEntity.status(HttpStatus.CREATED).body(created);
         } catch (Exception e) {
@@ -49,6 +56,10 @@ public class CartItemController {
     @PutMapping("/update")
     public ResponseEntity<?> update(@RequestBody CartItem cartItem) {
         try {
+            cartStore.evictItem(cartItem.getCartItemId());
+            if (cartItem.getCart() != null) {
+                cartStore.evictCart(cartItem.getCart().getCartId());
+            }
             CartItem updated = cartItemService.update(cartItem);
             if (updated == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -75,7 +86,9 @@ public class CartItemController {
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<?> deleteCartItem(@PathVariable Integer id) {
         try {
-            cartItemService.removeFromCart(id);
+            if (!cartStore.removeItem(id)) {
+                cartItemService.removeFromCart(id);
+            }
             return ResponseEntity.ok(Map.of("success", true, "message", "Cart item deleted successfully"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -86,7 +99,10 @@ public class CartItemController {
     @PutMapping("/update-quantity/{id}")
     public ResponseEntity<?> updateQuantity(@PathVariable Integer id, @RequestParam int quantity) {
         try {
-            CartItem updated = cartItemService.updateQuantity(id, quantity);
+            CartItem updated = cartStore.updateQuantity(id, quantity);
+            if (updated == null) {
+                updated = cartItemService.updateQuantity(id, quantity);
+            }
             if (updated == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("success", false, "message", "Cart item not found"));
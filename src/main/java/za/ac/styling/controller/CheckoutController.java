@@ -5,6 +5,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import za.ac.styling.domain.*;
 import za.ac.styling.repository.*;
+import za.ac.styling.service.PriceBreakdown;
+import za.ac.styling.service.PricingEngine;
+import za.ac.styling.service.PromoEvaluation;
 import za.ac.styling.service.PromoCodeService;
 
 import java.util.Date;
@@ -27,6 +30,9 @@ public class CheckoutController {
     private final za.ac.styling.service.EmailService emailService;
     private final za.ac.styling.service.InventoryService inventoryService;
     private final za.ac.styling.service.PromoCodeService promoService;
+    private final za.ac.styling.service.WriteBehindCartStore cartStore;
+    private final PricingEngine pricingEngine;
+    private final za.ac.styling.service.ProductColourImageIndex colourImageIndex;
 
     @GetMapping("/shipping-methods")
     public ResponseEntity<?> getActiveShippingMethods() {
@@ -42,44 +48,10 @@ public class CheckoutController {
             Long shippingAddressId = Long.valueOf(request.get("shippingAddressId").toString());
 
             String promoCodeStr = (String) request.get("promoCode");
-            Object pqObj = request.get("productQuantities");
-
-            Map<Integer, Integer> productQtyMap = new java.util.HashMap<>();
-            if (pqObj instanceof Map<?, ?>) {
-                Map<?, ?> rawMap = (Map<?, ?>) pqObj;
-                for (Map.Entry<?, ?> entry : rawMap.entrySet()) {
-                    Object rawKey = entry.getKey();
-                    Object rawVal = entry.getValue();
-                    Integer productId = null;
-                    Integer qty = null;
-                    if (rawKey instanceof Number) {
-                        productId = ((Number) rawKey).intValue();
-                    } else if (rawKey instanceof String) {
-                        try {
-                            productId = Integer.valueOf((String) rawKey);
-                        } catch (NumberFormatException ex) {
-
-                            continue;
-                        }
-                    }
-                    if (rawVal instanceof Number) {
-                        qty = ((Number) rawVal).intValue();
-                    } else if (rawVal instanceof String) {
-                        try {
-                            qty = Integer.valueOf((String) rawVal);
-                        } catch (NumberFormatException ex) {
-
-                            continue;
-                        }
-                    }
-                    if (productId != null && qty != null) {
-                        productQtyMap.put(productId, qty);
-                    }
-                }
-            }
 
             User user = userRepository.findById(userId)
                     .orElseThrow(() -> new RuntimeException("User not found"));
+            cartStore.flush(userId);
             Cart cart = cartService.findByUserId(userId)
                     .orElseThrow(() -> new RuntimeException("Cart not found"));
             
@@ -101,62 +73,51 @@ public class CheckoutController {
             Address shippingAddress = addressRepository.findById(shippingAddressId)
                     .orElseThrow(() -> new RuntimeException("Address not found"));
 
-            double subtotal = validCartItems.stream()
-                    .mapToDouble(item -> item.getQuantity() * item.getProduct().getBasePrice())
-                    .sum();
-            double shippingCost = shippingMethod.getCost();
-            double taxAmount = subtotal * 0.15;
-            double discountAmount = 0;
+            PriceBreakdown pricing = pricingEngine.priceCart(validCartItems, shippingMethod);
             String promoMessage = null;
-
-            za.ac.styling.domain.PromoCode appliedPromo = null;
+            PromoEvaluation promoEvaluation = null;
             if (promoCodeStr != null && !promoCodeStr.isEmpty()) {
-                var discountResult = promoService.applyPromoCode(
-                        promoCodeStr, userId, productQtyMap, subtotal);
-                if (!discountResult.isApplied()) {
+                promoEvaluation = promoService.evaluatePromo(promoCodeStr, userId, pricing);
+                if (!promoEvaluation.isApplied()) {
                     return ResponseEntity.badRequest()
-                            .body(Map.of("error", discountResult.getMessage(), "errorType", "PROMO_INVALID"));
+                            .body(Map.of("error", promoEvaluation.getMessage(), "errorType", "PROMO_INVALID"));
                 }
-                discountAmount = discountResult.getDiscountAmount();
-                promoMessage = discountResult.getMessage();
-                appliedPromo = promoService.findByCode(promoCodeStr);
+                pricingEngine.applyDiscount(pricing, promoEvaluation.getDiscountAmountCents());
+                promoMessage = promoEvaluation.getMessage();
             }
 
-            double totalAmount = subtotal + shippingCost + taxAmount - discountAmount;
-
             String orderNumber = "ORD-" + System.currentTimeMillis();
 
             Order order = Order.builder()
                     .user(user)
                     .orderNumber(orderNumber)
-                    .subtotal(subtotal)
-                    .shippingCost(shippingCost)
-                    .taxAmount(taxAmount)
-                    .discountAmount(discountAmount)
-                    .totalAmount(totalAmount)
+                    .subtotal(pricing.getSubtotal())
+                    .shippingCost(pricing.getShipping())
+                    .taxAmount(pricing.getTax())
+                    .discountAmount(pricing.getDiscount())
+                    .totalAmount(pricing.getTotal())
                     .orderDate(new Date())
                     .shippingMethod(shippingMethod)
                     .shippingAddress(shippingAddress)
                     .status(OrderStatus.PENDING)
                     .build();
 
-            List<OrderItem> orderItems = validCartItems.stream()
-                    .map(cartItem -> {
-                        double itemPrice = cartItem.getProduct().getBasePrice();
-                        int itemQuantity = cartItem.getQuantity();
-                        double itemTotal = itemQuantity * itemPrice;
-                        return OrderItem.builder()
-                                .order(order)
-                                .product(cartItem.getProduct())
-                                .colour(cartItem.getColour())
-                                .colourSize(cartItem.getSize())
-                                .quantity(itemQuantity)
-                                .price(itemPrice)
-                                .subtotal(itemTotal)
-                                .totalPrice(itemTotal)
-                                .build();
-                    })
-                    .toList();
+            List<OrderItem> orderItems = new java.util.ArrayList<>(validCartItems.size());
+            for (int i = 0; i < validCartItems.size(); i++) {
+                za.ac.styling.domain.CartItem cartItem = validCartItems.get(i);
+                double itemPrice = PricingEngine.toAmount(pricing.getUnitPriceCents(i));
+                double itemTotal = PricingEngine.toAmount(pricing.getLineTotalCents(i));
+                orderItems.add(OrderItem.builder()
+                        .order(order)
+                        .product(cartItem.getProduct())
+                        .colour(cartItem.getColour())
+                        .colourSize(cartItem.getSize())
+                        .quantity(pricing.getQuantity(i))
+                        .price(itemPrice)
+                        .subtotal(itemTotal)
+                        .totalPrice(itemTotal)
+                        .build());
+            }
             order.setItems(orderItems);
 
             if (!inventoryService.checkStockAvailability(orderItems)) {
@@ -173,7 +134,7 @@ public class CheckoutController {
                         "errorType", "INSUFFICIENT_STOCK"));
             }
 
-            Order savedOrder = orderService.createOrderWithPromo(order, productQtyMap, promoCodeStr, userId);
+            Order savedOrder = orderService.createOrderWithPromo(order, pricing, promoEvaluation, userId);
 
             inventoryService.commitStock(orderItems);
 
@@ -184,6 +145,7 @@ public class CheckoutController {
                     System.out.println("✅ Cleared cart items for cartId=" + cart.getCartId());
                 }
                 cartRepository.delete(cart);
+                cartStore.discard(userId);
                 System.out.println("✅ Deleted cart for userId=" + userId + ", cartId=" + cart.getCartId());
             } catch (Exception ex) {
                 System.err.println("❌ Failed to fully delete cart or items: " + ex.getMessage());
@@ -293,6 +255,7 @@ public class CheckoutController {
         try {
             System.out.println("Checkout: Fetching cart for user ID: " + userId);
 
+            cartStore.flush(userId);
             Cart cart = cartService.findByUserId(userId).orElse(null);
             if (cart == null) {
                 System.out.println("No cart found for user " + userId);
@@ -303,26 +266,9 @@ public class CheckoutController {
             var itemsWithImages = new java.util.ArrayList<>();
             for (var ci : cartItems) {
                 String imageUrl = null;
-
-                if (ci.getColour() != null && ci.getColour().getProduct() != null
-                        && ci.getColour().getProduct().getImages() != null) {
-                    var images = ci.getColour().getProduct().getImages();
-                    var match = images.stream()
-                            .filter(img -> img.getAltText() != null
-                                    && img.getAltText().toLowerCase().contains(ci.getColour().getName().toLowerCase()))
-                            .findFirst();
-                    if (match.isPresent()) {
-                        imageUrl = match.get().getImageUrl();
-                    }
-                }
-
-                if (imageUrl == null && ci.getProduct() != null && ci.getProduct().getPrimaryImage() != null) {
-                    imageUrl = ci.getProduct().getPrimaryImage().getImageUrl();
-                }
-
-                if (imageUrl == null && ci.getProduct() != null && ci.getProduct().getImages() != null
-                        && !ci.getProduct().getImages().isEmpty()) {
-                    imageUrl = ci.getProduct().getImages().iterator().next().getImageUrl();
+                if (ci.getProduct() != null) {
+                    imageUrl = colourImageIndex.forProduct(ci.getProduct())
+                            .resolve(ci.getColour() != null ? ci.getColour().getColourId() : null);
                 }
                 var itemMap = new java.util.HashMap<String, Object>();
                 itemMap.put("cartItemId", ci.getCartItemId());
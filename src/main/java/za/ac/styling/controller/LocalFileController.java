@@ -0,0 +1,76 @@
+package za.ac.styling.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+import za.ac.styling.service.impl.LocalFileObjectStorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves objects of the local storage backend at the URLs it hands out. Signed URLs must carry a valid,
+ * unexpired token; unsigned ones are only served for the buckets in storage.local.public-buckets, which
+ * mirror the public buckets on Supabase.
+ */
+@RestController
+@RequestMapping("/files")
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalFileController {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final LocalFileObjectStorage storage;
+    private final Set<String> publicBuckets;
+
+    public LocalFileController(LocalFileObjectStorage storage,
+                               @Value("${storage.local.public-buckets:product-images,review-images,category-images}")
+                               Set<String> publicBuckets) {
+        this.storage = storage;
+        this.publicBuckets = publicBuckets;
+    }
+
+    @GetMapping("/{bucket}/**")
+    public ResponseEntity<Resource> serve(@PathVariable String bucket,
+                                          @RequestParam(required = false) Long expires,
+                                          @RequestParam(required = false) String token,
+                                          HttpServletRequest request) {
+        String path = PATH_MATCHER.extractPathWithinPattern(
+                (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE),
+                (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE));
+
+        boolean signed = expires != null || token != null;
+        if (signed ? !storage.verify(bucket, path, expires != null ? expires : 0, token)
+                : !publicBuckets.contains(bucket)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Path file;
+        try {
+            file = storage.file(bucket, path);
+        } catch (IOException e) {
+            return ResponseEntity.notFound().build();
+        }
+        Resource resource = new FileSystemResource(file);
+        return ResponseEntity.ok()
+                .contentType(MediaTypeFactory.getMediaType(resource).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .cacheControl(signed ? CacheControl.noStore() : CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
+                .body(resource);
+    }
+}
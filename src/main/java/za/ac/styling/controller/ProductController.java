@@ -1,6 +1,10 @@
 package za.ac.styling.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Globals;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -11,8 +15,18 @@ import za.ac.styling.dto.ProductColourRequest;
 import za.ac.styling.dto.ProductSizeRequest;
 import za.ac.styling.service.ProductService;
 import za.ac.styling.service.CategoryService;
+import za.ac.styling.service.ImageProxyCache;
+import za.ac.styling.service.LowStockAlertAggregator;
+import za.ac.styling.service.SupabaseStorageService;
 import za.ac.styling.repository.CartItemRepository;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -24,12 +38,20 @@ public class ProductController {
     private final ProductService productService;
     private final CategoryService categoryService;
     private final CartItemRepository cartItemRepository;
+    private final LowStockAlertAggregator lowStockAlertAggregator;
+    private final ImageProxyCache imageProxyCache;
+    private final SupabaseStorageService supabaseStorageService;
 
     @Autowired
-    public ProductController(ProductService productService, CategoryService categoryService, CartItemRepository cartItemRepository) {
+    public ProductController(ProductService productService, CategoryService categoryService, CartItemRepository cartItemRepository,
+                             LowStockAlertAggregator lowStockAlertAggregator, ImageProxyCache imageProxyCache,
+                             SupabaseStorageService supabaseStorageService) {
         this.productService = productService;
         this.categoryService = categoryService;
         this.cartItemRepository = cartItemRepository;
+        this.lowStockAlertAggregator = lowStockAlertAggregator;
+        this.imageProxyCache = imageProxyCache;
+        this.supabaseStorageService = supabaseStorageService;
     }
 
     @PostMapping("/create")
@@ -171,6 +193,150 @@ public class ProductController {
         }
     }
 
+    // Serves the image bytes from the local proxy cache (image.proxy.enabled), with ETag and single-range support
+    @GetMapping("/image/{imageId}/content")
+    public void streamProductImage(@PathVariable Long imageId,
+                                   @RequestParam(value = "imageWidth", required = false) Integer imageWidth,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!imageProxyCache.isEnabled()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        ProductImage image = productService.getImageById(imageId);
+        if (image == null || image.getBucketPath() == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        String bucket = supabaseStorageService.getProductImagesBucket();
+        String path = image.getBucketPath();
+        if (imageWidth != null) {
+            String variantPath = supabaseStorageService.pathFromPublicUrl(bucket, image.urlForWidth(imageWidth));
+            if (variantPath != null) {
+                path = variantPath;
+            }
+        }
+
+        // A second attempt covers the file being evicted between the lookup and opening it
+        for (int attempt = 0; ; attempt++) {
+            ImageProxyCache.CachedImage cached;
+            try {
+                cached = imageProxyCache.get(bucket, path);
+            } catch (FileNotFoundException e) {
+                response.sendError(HttpStatus.NOT_FOUND.value());
+                return;
+            }
+            try {
+                serveCached(cached, request, response);
+                return;
+            } catch (NoSuchFileException e) {
+                if (attempt > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static void serveCached(ImageProxyCache.CachedImage image,
+                                    HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, image.etag());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=86400");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null
+                && (ifNoneMatch.trim().equals("*") || Arrays.asList(ifNoneMatch.split("\\s*,\\s*")).contains(image.etag()))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long size = image.size();
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(image.etag()))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == null) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        response.setContentType(image.contentType());
+        response.setContentLengthLong(end - start + 1);
+        if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+            return;
+        }
+
+        // Tomcat sends the file with sendfile(2) once this method returns; ImageProxyCache keeps evicted files
+        // on disk for a grace period so the name still resolves then
+        if (Boolean.TRUE.equals(request.getAttribute(Globals.SENDFILE_SUPPORTED_ATTR))) {
+            request.setAttribute(Globals.SENDFILE_FILENAME_ATTR, image.file().toAbsolutePath().toString());
+            request.setAttribute(Globals.SENDFILE_FILE_START_ATTR, start);
+            request.setAttribute(Globals.SENDFILE_FILE_END_ATTR, end + 1);
+            return;
+        }
+
+        // Without sendfile the bytes are copied through the servlet output buffer
+        try (FileChannel channel = FileChannel.open(image.file(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long sent = channel.transferTo(position, end - position + 1, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+            }
+        }
+    }
+
+    // {start, end} for a single satisfiable range, an empty array to ignore the header, or null if unsatisfiable
+    private static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.contains(",")) {
+            return new long[0];
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String from = spec.substring(0, dash).trim();
+            String to = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (from.isEmpty()) {
+                if (to.isEmpty()) {
+                    return new long[0];
+                }
+                long suffix = Long.parseLong(to);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(from);
+                end = to.isEmpty() ? size - 1 : Math.min(Long.parseLong(to), size - 1);
+                if (!to.isEmpty() && Long.parseLong(to) < start) {
+                    return new long[0];
+                }
+            }
+            return start < size ? new long[] { start, end } : null;
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
     @GetMapping("/read/{id}")
     public ResponseEntity<?> read(@PathVariable Integer id) {
         try {
@@ -361,6 +527,16 @@ public class ProductController {
 
             Product updatedProduct = productService.update(existingProduct);
 
+            if (updatedProduct != null && updatedProduct.getColours() != null) {
+                for (ProductColour colour : updatedProduct.getColours()) {
+                    if (colour.getSizes() != null) {
+                        for (ProductColourSize size : colour.getSizes()) {
+                            lowStockAlertAggregator.record(updatedProduct, size);
+                        }
+                    }
+                }
+            }
+
             response.put("success", true);
             response.put("message", "Product updated successfully");
             response.put("data", updatedProduct);
@@ -375,9 +551,10 @@ public class ProductController {
     }
 
     @GetMapping("/getAll")
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> getAll(@RequestParam(value = "imageWidth", required = false) Integer imageWidth) {
         try {
             List<Product> products = productService.getAllWithRelations();
+            fitImages(products, imageWidth);
             return ResponseEntity.ok(Map.of("success", true, "data", products));
         } catch (Exception e) {
             e.printStackTrace();
@@ -434,9 +611,11 @@ public class ProductController {
     }
 
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<?> getProductsByCategory(@PathVariable Long categoryId) {
+    public ResponseEntity<?> getProductsByCategory(@PathVariable Long categoryId,
+                                                   @RequestParam(value = "imageWidth", required = false) Integer imageWidth) {
         try {
             List<Product> products = productService.findByCategoryIdWithRelations(categoryId);
+            fitImages(products, imageWidth);
             return ResponseEntity.ok(Map.of("success", true, "data", products));
         } catch (Exception e) {
             e.printStackTrace();
@@ -446,13 +625,15 @@ public class ProductController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<?> searchProducts(@RequestParam(required = false) String query) {
+    public ResponseEntity<?> searchProducts(@RequestParam(required = false) String query,
+                                            @RequestParam(value = "imageWidth", required = false) Integer imageWidth) {
         try {
             if (query == null || query.trim().isEmpty()) {
                 return ResponseEntity.ok(Map.of("success", true, "data", Collections.emptyList()));
             }
 
             List<Product> products = productService.searchByName(query.trim());
+            fitImages(products, imageWidth);
             return ResponseEntity.ok(Map.of("success", true, "data", products));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -505,4 +686,19 @@ public class ProductController {
                     .body(Map.of("success", false, "message", "Error fetching low stock alerts: " + e.getMessage()));
         }
     }
+
+    // Points each image's displayUrl at the smallest variant at least imageWidth pixels wide
+    private static void fitImages(List<Product> products, Integer imageWidth) {
+        if (imageWidth == null) {
+            return;
+        }
+        for (Product product : products) {
+            if (product.getImages() != null) {
+                product.getImages().forEach(image -> image.fitToWidth(imageWidth));
+            }
+            if (product.getPrimaryImage() != null) {
+                product.getPrimaryImage().fitToWidth(imageWidth);
+            }
+        }
+    }
 }
@@ -3,14 +3,19 @@ package za.ac.styling.controller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import za.ac.styling.domain.Product;
 import za.ac.styling.domain.ProductImage;
+import za.ac.styling.service.ImageUploadPipeline;
+import za.ac.styling.service.ImageVariantService;
+import za.ac.styling.service.ProductColourImageIndex;
 import za.ac.styling.service.ProductImageService;
 import za.ac.styling.service.ProductService;
 import za.ac.styling.service.SupabaseStorageService;
 import za.ac.styling.factory.ProductImageFactory;
+import za.ac.styling.util.MigrateImagesToSupabase;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +27,10 @@ public class ProductImageController {
     private ProductImageService productImageService;
     private ProductService productService;
     private SupabaseStorageService supabaseStorageService;
+    private ProductColourImageIndex colourImageIndex;
+    private ImageUploadPipeline uploadPipeline;
+    private ImageVariantService imageVariantService;
+    private MigrateImagesToSupabase imageMigration;
 
     @Autowired
     public void setProductImageService(ProductImageService productImageService) {
@@ -38,6 +47,26 @@ public class ProductImageController {
         this.supabaseStorageService = supabaseStorageService;
     }
 
+    @Autowired
+    public void setUploadPipeline(ImageUploadPipeline uploadPipeline) {
+        this.uploadPipeline = uploadPipeline;
+    }
+
+    @Autowired
+    public void setImageVariantService(ImageVariantService imageVariantService) {
+        this.imageVariantService = imageVariantService;
+    }
+
+    @Autowired
+    public void setImageMigration(MigrateImagesToSupabase imageMigration) {
+        this.imageMigration = imageMigration;
+    }
+
+    @Autowired
+    public void setColourImageIndex(ProductColourImageIndex colourImageIndex) {
+        this.colourImageIndex = colourImageIndex;
+    }
+
     @PostMapping("/upload/{productId}")
     public ResponseEntity<?> uploadProductImages(
             @PathVariable Integer productId,
@@ -51,31 +80,52 @@ public class ProductImageController {
                         .body(Map.of("success", false, "message", "Product not found"));
             }
 
+            ImageUploadPipeline.BatchResult batch = uploadPipeline.uploadAll("product", files,
+                    file -> supabaseStorageService.uploadProductImage(file, productId));
+            List<SupabaseStorageService.UploadResult> results = batch.getUploaded();
+            if (batch.hasFailures()) {
+                uploadPipeline.rollback(results);
+                return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                        .body(Map.of("success", false, "message", "Error uploading images",
+                                "failures", batch.getFailures()));
+            }
+
             List<ProductImage> uploadedImages = new ArrayList<>();
 
             boolean primaryImageExists = product.getPrimaryImage() != null;
             int displayOrder = product.getImages() != null ? product.getImages().size() : 0;
 
-            for (int i = 0; i < files.size(); i++) {
-                MultipartFile file = files.get(i);
+            try {
+                for (int i = 0; i < results.size(); i++) {
+                    SupabaseStorageService.UploadResult result = results.get(i);
 
-                SupabaseStorageService.UploadResult result = supabaseStorageService.uploadProductImage(file, productId);
+                    boolean isPrimary = !primaryImageExists && i == 0;
 
-                boolean isPrimary = !primaryImageExists && i == 0;
+                    ProductImage image = ProductImageFactory.createProductImage(
+                            product,
+                            null,
+                            result.getUrl(),
+                            result.getPath(),
+                            product.getName(),
+                            displayOrder++,
+                            isPrimary);
 
-                ProductImage image = ProductImageFactory.createProductImage(
-                        product,
-                        null,
-                        result.getUrl(),
-                        result.getPath(),
-                        product.getName(),
-                        displayOrder++,
-                        isPrimary);
+                    ProductImage saved = productImageService.create(image);
+                    uploadedImages.add(saved);
 
-                ProductImage saved = productImageService.create(image);
-                uploadedImages.add(saved);
+                    System.out.println("✅ Uploaded: " + result.getUrl());
+                }
+            } catch (Exception e) {
+                // Deleting a saved image already releases its upload; only the unsaved ones are rolled back here
+                for (ProductImage saved : uploadedImages) {
+                    productImageService.delete(saved.getImageId());
+                }
+                uploadPipeline.rollback(results.subList(uploadedImages.size(), results.size()));
+                throw e;
+            }
 
-                System.out.println("✅ Uploaded: " + result.getUrl());
+            for (int i = 0; i < uploadedImages.size(); i++) {
+                imageVariantService.generate(uploadedImages.get(i), files.get(i));
             }
 
             if (!primaryImageExists && !uploadedImages.isEmpty()) {
@@ -83,6 +133,13 @@ public class ProductImageController {
                 productService.update(product);
             }
 
+            List<ProductImage> allImages = new ArrayList<>();
+            if (product.getImages() != null) {
+                allImages.addAll(product.getImages());
+            }
+            allImages.addAll(uploadedImages);
+            colourImageIndex.rebuild(product, allImages);
+
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Images uploaded successfully",
@@ -159,13 +216,41 @@ public class ProductImageController {
     }
 
     @GetMapping("/product/{productId}")
-    public ResponseEntity<?> getImagesByProduct(@PathVariable Integer productId) {
+    public ResponseEntity<?> getImagesByProduct(@PathVariable Integer productId,
+                                                @RequestParam(value = "imageWidth", required = false) Integer imageWidth) {
         try {
             List<ProductImage> images = productImageService.findByProductId(productId);
+            if (imageWidth != null) {
+                images.forEach(image -> image.fitToWidth(imageWidth));
+            }
             return ResponseEntity.ok(Map.of("success", true, "data", images));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("success", false, "message", "Error retrieving product images: " + e.getMessage()));
         }
     }
+
+    @PostMapping("/migration/start")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> startMigration(@RequestParam(value = "restart", defaultValue = "false") boolean restart) {
+        if (!imageMigration.start(restart)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("success", false, "message", "Image migration is already running"));
+        }
+        return ResponseEntity.accepted()
+                .body(Map.of("success", true, "message", "Image migration started", "data", imageMigration.status()));
+    }
+
+    @PostMapping("/migration/stop")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> stopMigration() {
+        imageMigration.stop();
+        return ResponseEntity.ok(Map.of("success", true, "message", "Image migration will stop after the current batch"));
+    }
+
+    @GetMapping("/migration/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> migrationStatus() {
+        return ResponseEntity.ok(Map.of("success", true, "data", imageMigration.status()));
+    }
 }
@@ -1,13 +1,24 @@
 package za.ac.styling.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import za.ac.styling.domain.PromoCode;
+import za.ac.styling.service.PriceBreakdown;
+import za.ac.styling.service.PricingEngine;
+import za.ac.styling.service.ProductPriceCache;
+import za.ac.styling.service.PromoCampaignService;
+import za.ac.styling.service.PromoCodeBloomFilter;
 import za.ac.styling.service.PromoCodeService;
-import za.ac.styling.repository.ProductRepository;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @RestController
@@ -18,7 +29,23 @@ public class PromoCodeController {
     private PromoCodeService promoCodeService;
 
     @Autowired
-    private ProductRepository productRepository;
+    private ProductPriceCache productPriceCache;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private PromoCodeBloomFilter promoCodeBloomFilter;
+
+    @Autowired
+    private PromoCampaignService promoCampaignService;
+
+    @Autowired
+    private AsyncTaskExecutor taskExecutor;
+
+    // Large campaigns stream for minutes, so this endpoint gets its own async timeout instead of the global one
+    @Value("${promo.campaign.timeout-ms:1800000}")
+    private long campaignTimeoutMs;
 
     @PostMapping("/create")
     public ResponseEntity<?> createPromo(@RequestBody PromoCreateRequest request) {
@@ -55,16 +82,68 @@ public class PromoCodeController {
         }
     }
 
+    @PostMapping("/campaign/generate")
+    public ResponseEntity<?> generateCampaign(@RequestBody PromoCampaignRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            PromoCode rule = PromoCode.builder()
+                    .discountType(request.getDiscountType())
+                    .discountValue(request.getDiscountValue())
+                    .startDate(request.getStartDate())
+                    .endDate(request.getEndDate())
+                    .minPurchaseAmount(request.getMinPurchaseAmount())
+                    .description(request.getDescription())
+                    .build();
+
+            PromoCampaignService.Campaign campaign = promoCampaignService.plan(request.getCampaign(),
+                    request.getCount(), request.getCodeLength() != null ? request.getCodeLength() : 8, rule,
+                    request.getProductIds());
+
+            // Codes are sent as each batch commits; nothing is collected in memory
+            MediaType csv = new MediaType("text", "csv", StandardCharsets.UTF_8);
+            ResponseBodyEmitter emitter = new ResponseBodyEmitter(campaignTimeoutMs);
+            taskExecutor.execute(() -> {
+                try {
+                    emitter.send("code\n", csv);
+                    promoCampaignService.generate(campaign, codes -> {
+                        StringBuilder chunk = new StringBuilder();
+                        for (String code : codes) {
+                            chunk.append(code).append('\n');
+                        }
+                        emitter.send(chunk.toString(), csv);
+                    });
+                    emitter.complete();
+                } catch (Exception e) {
+                    emitter.completeWithError(e);
+                }
+            });
+            return ResponseEntity.ok()
+                    .contentType(csv)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(campaign.prefix() + "codes.csv").build().toString())
+                    .body(emitter);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error generating promo codes: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     @GetMapping("/getAll")
     public ResponseEntity<?> getAllPromos() {
         try {
             List<PromoCode> promos = promoCodeService.getAll();
+            Map<Integer, List<Integer>> eligibleByPromo = promoCodeService.getEligibleProductIdsByPromo();
 
             List<Map<String, Object>> promosWithProducts = new ArrayList<>();
             for (PromoCode promo : promos) {
                 Map<String, Object> promoData = new HashMap<>();
                 promoData.put("promo", promo);
-                promoData.put("eligibleProductIds", promoCodeService.getEligibleProductIds(promo.getPromoId()));
+                promoData.put("eligibleProductIds", eligibleByPromo.getOrDefault(promo.getPromoId(), List.of()));
                 promosWithProducts.add(promoData);
             }
 
@@ -151,22 +230,19 @@ public class PromoCodeController {
     @PostMapping("/validate")
     public ResponseEntity<?> validatePromo(@RequestBody PromoValidateRequest request) {
         try {
-
-            long subtotalCents = 0L;
-            Map<Integer, Integer> qtyMap = request.getProductQuantities() != null ? request.getProductQuantities()
-                    : new HashMap<>();
-            for (Map.Entry<Integer, Integer> e : qtyMap.entrySet()) {
-                var pOpt = productRepository.findById(e.getKey());
-                if (pOpt.isPresent()) {
-                    subtotalCents += Math.round(pOpt.get().getBasePrice() * 100) * e.getValue();
-                }
+            if (!promoCodeBloomFilter.mightContain(request.getCode())) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("valid", false);
+                response.put("message", "Promo code not found");
+                return ResponseEntity.ok(response);
             }
 
+            PriceBreakdown pricing = priceCartEntries(request.getProductQuantities());
+
             PromoCodeService.PromoApplicationResult result = promoCodeService.processPromo(
                     request.getCode(),
                     request.getUserId(),
-                    qtyMap,
-                    subtotalCents,
+                    pricing,
                     false,
                     null);
 
@@ -176,7 +252,7 @@ public class PromoCodeController {
             if (result.isApplied() && result.getPromoCode() != null) {
                 response.put("promo", result.getPromoCode());
                 response.put("eligibleProductIds", result.getEligibleProductIds());
-                response.put("discountAmount", result.getDiscountAmountCents() / 100.0);
+                response.put("discountAmount", PricingEngine.toAmount(result.getDiscountAmountCents()));
             }
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -190,29 +266,29 @@ public class PromoCodeController {
     @PostMapping("/apply")
     public ResponseEntity<?> applyPromo(@RequestBody PromoApplyRequest request) {
         try {
-
-            long subtotalCents = 0L;
-            Map<Integer, Integer> qtyMap = request.getProductQuantities() != null ? request.getProductQuantities()
-                    : new HashMap<>();
-            for (Map.Entry<Integer, Integer> e : qtyMap.entrySet()) {
-                var pOpt = productRepository.findById(e.getKey());
-                if (pOpt.isPresent()) {
-                    subtotalCents += Math.round(pOpt.get().getBasePrice() * 100) * e.getValue();
-                }
+            if (!promoCodeBloomFilter.mightContain(request.getCode())) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("applied", false);
+                response.put("discountAmount", 0.0);
+                response.put("finalTotal", 0.0);
+                response.put("message", "Promo code not found");
+                response.put("eligibleProductIds", List.of());
+                return ResponseEntity.ok(response);
             }
 
+            PriceBreakdown pricing = priceCartEntries(request.getProductQuantities());
+
             PromoCodeService.PromoApplicationResult result = promoCodeService.processPromo(
                     request.getCode(),
                     request.getUserId(),
-                    qtyMap,
-                    subtotalCents,
+                    pricing,
                     false,
                     null);
 
             Map<String, Object> response = new HashMap<>();
             response.put("applied", result.isApplied());
-            response.put("discountAmount", result.getDiscountAmountCents() / 100.0);
-            response.put("finalTotal", result.getFinalTotalCents() / 100.0);
+            response.put("discountAmount", PricingEngine.toAmount(result.getDiscountAmountCents()));
+            response.put("finalTotal", PricingEngine.toAmount(result.getFinalTotalCents()));
             response.put("message", result.getMessage());
             response.put("eligibleProductIds", result.getEligibleProductIds());
             return ResponseEntity.ok(response);
@@ -224,6 +300,15 @@ public class PromoCodeController {
         }
     }
 
+    // One price query for all uncached products, however many lines the cart has
+    private PriceBreakdown priceCartEntries(Map<Integer, Integer> productQuantities) {
+        Map<Integer, Long> prices = productQuantities != null
+                ? productPriceCache.priceCents(productQuantities.keySet())
+                : Map.of();
+        return pricingEngine.priceProducts(productQuantities,
+                productId -> prices.getOrDefault(productId, PricingEngine.NO_PRICE));
+    }
+
     public static class PromoCreateRequest {
         private String code;
         private PromoCode.DiscountType discountType;
@@ -326,6 +411,99 @@ public class PromoCodeController {
         }
     }
 
+    public static class PromoCampaignRequest {
+        private String campaign;
+        private int count;
+        private Integer codeLength;
+        private PromoCode.DiscountType discountType;
+        private double discountValue;
+        private java.time.LocalDateTime startDate;
+        private java.time.LocalDateTime endDate;
+        private Double minPurchaseAmount;
+        private String description;
+        private List<Integer> productIds;
+
+        public String getCampaign() {
+            return campaign;
+        }
+
+        public void setCampaign(String campaign) {
+            this.campaign = campaign;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public Integer getCodeLength() {
+            return codeLength;
+        }
+
+        public void setCodeLength(Integer codeLength) {
+            this.codeLength = codeLength;
+        }
+
+        public PromoCode.DiscountType getDiscountType() {
+            return discountType;
+        }
+
+        public void setDiscountType(PromoCode.DiscountType discountType) {
+            this.discountType = discountType;
+        }
+
+        public double getDiscountValue() {
+            return discountValue;
+        }
+
+        public void setDiscountValue(double discountValue) {
+            this.discountValue = discountValue;
+        }
+
+        public java.time.LocalDateTime getStartDate() {
+            return startDate;
+        }
+
+        public void setStartDate(java.time.LocalDateTime startDate) {
+            this.startDate = startDate;
+        }
+
+        public java.time.LocalDateTime getEndDate() {
+            return endDate;
+        }
+
+        public void setEndDate(java.time.LocalDateTime endDate) {
+            this.endDate = endDate;
+        }
+
+        public Double getMinPurchaseAmount() {
+            return minPurchaseAmount;
+        }
+
+        public void setMinPurchaseAmount(Double minPurchaseAmount) {
+            this.minPurchaseAmount = minPurchaseAmount;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+
+        public List<Integer> getProductIds() {
+            return productIds;
+        }
+
+        public void setProductIds(List<Integer> productIds) {
+            this.productIds = productIds;
+        }
+    }
+
     public static class PromoValidateRequest {
         private String code;
         private Integer userId;
@@ -3,17 +3,22 @@ package za.ac.styling.controller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import za.ac.styling.domain.Review;
 import za.ac.styling.domain.ReviewImage;
 import za.ac.styling.domain.Product;
 import za.ac.styling.domain.User;
-import za.ac.styling.repository.OrderRepository;
 import za.ac.styling.repository.ProductRepository;
 import za.ac.styling.repository.UserRepository;
+import za.ac.styling.service.ImageUploadPipeline;
+import za.ac.styling.service.ImageVariantService;
+import za.ac.styling.service.RatingSummary;
+import za.ac.styling.service.ReviewHelpfulVotes;
 import za.ac.styling.service.ReviewService;
 import za.ac.styling.service.SupabaseStorageService;
+import za.ac.styling.service.VerifiedPurchaseIndex;
 
 import java.util.*;
 
@@ -27,7 +32,16 @@ public class ReviewController {
     private static final List<String> ALLOWED_CONTENT_TYPES = List.of("image/jpeg", "image/png", "image/webp");
 
     @Autowired
-    private OrderRepository orderRepository;
+    private VerifiedPurchaseIndex verifiedPurchaseIndex;
+
+    @Autowired
+    private ReviewHelpfulVotes helpfulVotes;
+
+    @Autowired
+    private ImageUploadPipeline uploadPipeline;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
 
     @Autowired
     private ProductRepository productRepository;
@@ -65,7 +79,7 @@ public class ReviewController {
                     .body(Map.of("success", false, "message", "Invalid user or product"));
             }
 
-            boolean hasPurchased = orderRepository.hasUserPurchasedProduct(userId, productId);
+            boolean hasPurchased = verifiedPurchaseIndex.hasPurchased(userId, productId);
 
             if (!hasPurchased) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -78,19 +92,8 @@ public class ReviewController {
                     .body(Map.of("success", false, "message", "You have already reviewed this product"));
             }
 
-            Review review = Review.builder()
-                .user(user)
-                .product(product)
-                .productId(productId)
-                .rating(rating)
-                .comment(comment)
-                .reviewDate(new Date())
-                .verified(true)
-                .helpfulCount(0)
-                .build();
-
-            Review created = reviewService.create(review);
-
+            // Validate every image before anything is created or uploaded
+            List<MultipartFile> files = new ArrayList<>();
             if (images != null && images.length > 0) {
 
                 if (images.length > MAX_IMAGES) {
@@ -98,7 +101,6 @@ public class ReviewController {
                         .body(Map.of("success", false, "message", "Maximum " + MAX_IMAGES + " images allowed"));
                 }
 
-                List<ReviewImage> reviewImages = new ArrayList<>();
                 for (MultipartFile file : images) {
                     if (file.isEmpty()) continue;
 
@@ -112,30 +114,61 @@ public class ReviewController {
                         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                             .body(Map.of("success", false, "message", "Unsupported image type: " + ct));
                     }
+                    files.add(file);
+                }
+            }
 
-                    try {
+            Review review = Review.builder()
+                .user(user)
+                .product(product)
+                .productId(productId)
+                .rating(rating)
+                .comment(comment)
+                .reviewDate(new Date())
+                .verified(true)
+                .helpfulCount(0)
+                .build();
 
-                        Integer reviewIdInt = created.getReviewId();
-                        Long reviewId = reviewIdInt != null ? reviewIdInt.longValue() : 0L;
-                        SupabaseStorageService.UploadResult uploadResult = 
-                            supabaseStorageService.uploadReviewImage(file, reviewId);
-
-                        ReviewImage reviewImage = ReviewImage.builder()
-                            .review(created)
-                            .supabaseUrl(uploadResult.getUrl())
-                            .bucketPath(uploadResult.getPath())
-                            .contentType(ct)
-                            .build();
-                        reviewImages.add(reviewImage);
-                    } catch (Exception e) {
-                        System.err.println("Failed to upload review image: " + e.getMessage());
+            Review created = reviewService.create(review);
 
-                    }
+            if (!files.isEmpty()) {
+                Integer reviewIdInt = created.getReviewId();
+                Long reviewId = reviewIdInt != null ? reviewIdInt.longValue() : 0L;
+                ImageUploadPipeline.BatchResult batch = uploadPipeline.uploadAll("review", files,
+                    file -> supabaseStorageService.uploadReviewImage(file, reviewId));
+                for (String failure : batch.getFailures()) {
+                    System.err.println("Failed to upload review image: " + failure);
+                }
+
+                List<ReviewImage> reviewImages = new ArrayList<>();
+                List<MultipartFile> uploadedFiles = new ArrayList<>();
+                for (int i = 0; i < files.size(); i++) {
+                    SupabaseStorageService.UploadResult uploadResult = batch.getResults().get(i);
+                    if (uploadResult == null) continue;
+                    uploadedFiles.add(files.get(i));
+
+                    ReviewImage reviewImage = ReviewImage.builder()
+                        .review(created)
+                        .supabaseUrl(uploadResult.getUrl())
+                        .bucketPath(uploadResult.getPath())
+                        .contentType(files.get(i).getContentType())
+                        .build();
+                    reviewImages.add(reviewImage);
                 }
                 if (!reviewImages.isEmpty()) {
                     created.setImages(reviewImages);
 
-                    created = reviewService.update(created);
+                    try {
+                        created = reviewService.update(created);
+                    } catch (Exception e) {
+                        uploadPipeline.rollback(batch.getUploaded());
+                        throw e;
+                    }
+
+                    List<ReviewImage> savedImages = created.getImages();
+                    for (int i = 0; i < savedImages.size() && i < uploadedFiles.size(); i++) {
+                        imageVariantService.generate(savedImages.get(i), uploadedFiles.get(i));
+                    }
                 }
             }
 
@@ -151,7 +184,7 @@ public class ReviewController {
     @GetMapping("/can-review/{userId}/{productId}")
     public ResponseEntity<?> canUserReview(@PathVariable Integer userId, @PathVariable Integer productId) {
         try {
-            boolean hasPurchased = orderRepository.hasUserPurchasedProduct(userId, productId);
+            boolean hasPurchased = verifiedPurchaseIndex.hasPurchased(userId, productId);
             return ResponseEntity.ok(Map.of(
                 "success", true, 
                 "canReview", hasPurchased,
@@ -178,6 +211,40 @@ public class ReviewController {
         }
     }
 
+    @PostMapping("/{reviewId}/helpful")
+    public ResponseEntity<?> markHelpful(@PathVariable Integer reviewId, Authentication authentication) {
+        try {
+            // The JWT subject is the user id; the voter is never taken from the request
+            Integer userId = authenticatedUserId(authentication);
+            if (userId == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("success", false, "message", "Sign in to vote"));
+            }
+
+            Review review = reviewService.read(reviewId);
+            if (review == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "message", "Review not found"));
+            }
+            if (!userRepository.existsById(userId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "message", "User not found"));
+            }
+
+            boolean counted = helpfulVotes.vote(reviewId, userId);
+            long helpfulCount = review.getHelpfulCount() + helpfulVotes.pendingVotes(reviewId);
+            if (!counted) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("success", false, "message", "You have already marked this review as helpful",
+                        "helpfulCount", helpfulCount));
+            }
+            return ResponseEntity.ok(Map.of("success", true, "helpfulCount", helpfulCount));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("success", false, "message", "Error recording vote: " + e.getMessage()));
+        }
+    }
+
     @PutMapping("/update")
     public ResponseEntity<?> update(@RequestBody Review review) {
         try {
@@ -216,9 +283,11 @@ public class ReviewController {
     }
 
     @GetMapping("/product/{productId}")
-    public ResponseEntity<?> getReviewsByProduct(@PathVariable Integer productId) {
+    public ResponseEntity<?> getReviewsByProduct(@PathVariable Integer productId,
+                                                 @RequestParam(value = "imageWidth", required = false) Integer imageWidth) {
         try {
             List<Review> reviews = reviewService.findByProductId(productId);
+            fitImages(reviews, imageWidth);
             return ResponseEntity.ok(Map.of("success", true, "data", reviews));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -226,6 +295,57 @@ public class ReviewController {
         }
     }
 
+    @GetMapping("/product/{productId}/page")
+    public ResponseEntity<?> getReviewPage(@PathVariable Integer productId,
+                                           @RequestParam(value = "sort", defaultValue = "date") String sort,
+                                           @RequestParam(value = "cursor", required = false) String cursor,
+                                           @RequestParam(value = "size", defaultValue = "10") int size,
+                                           @RequestParam(value = "imageWidth", required = false) Integer imageWidth) {
+        try {
+            ReviewService.ReviewPage page = reviewService.findPageByProductId(productId, sort, cursor, size);
+            fitImages(page.getReviews(), imageWidth);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", page.getReviews());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.hasMore());
+            if (cursor == null || cursor.isBlank()) {
+                response.put("summary", toSummaryMap(reviewService.getRatingSummary(productId)));
+            }
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("success", false, "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("success", false, "message", "Error retrieving product reviews: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/product/{productId}/summary")
+    public ResponseEntity<?> getRatingSummary(@PathVariable Integer productId) {
+        try {
+            return ResponseEntity.ok(Map.of("success", true,
+                "data", toSummaryMap(reviewService.getRatingSummary(productId))));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("success", false, "message", "Error retrieving rating summary: " + e.getMessage()));
+        }
+    }
+
+    private static Map<String, Object> toSummaryMap(RatingSummary summary) {
+        long[] histogram = summary.getHistogram();
+        Map<String, Long> stars = new LinkedHashMap<>();
+        for (int i = 5; i >= 1; i--) {
+            stars.put(String.valueOf(i), histogram[i - 1]);
+        }
+        return Map.of(
+            "productId", summary.getProductId(),
+            "count", summary.getCount(),
+            "average", summary.getAverage(),
+            "histogram", stars);
+    }
+
     @GetMapping("/user/{userId}")
     public ResponseEntity<?> getReviewsByUser(@PathVariable Integer userId) {
         try {
@@ -236,4 +356,27 @@ public class ReviewController {
                 .body(Map.of("success", false, "message", "Error retrieving user reviews: " + e.getMessage()));
         }
     }
+
+    // Points each review image's displayUrl at the smallest variant at least imageWidth pixels wide
+    private static void fitImages(List<Review> reviews, Integer imageWidth) {
+        if (imageWidth == null) {
+            return;
+        }
+        for (Review review : reviews) {
+            if (review.getImages() != null) {
+                review.getImages().forEach(image -> image.fitToWidth(imageWidth));
+            }
+        }
+    }
+
+    private static Integer authenticatedUserId(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(authentication.getName());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 }
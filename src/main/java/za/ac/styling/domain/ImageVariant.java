@@ -0,0 +1,39 @@
+package za.ac.styling.domain;
+
+/**
+ * Resized copies stored next to every uploaded product and review image. Images are never upscaled,
+ * so a variant is missing whenever the original is narrower than its width.
+ */
+public enum ImageVariant {
+    THUMBNAIL(320),
+    MEDIUM(800),
+    LARGE(1600);
+
+    private final int width;
+
+    ImageVariant(int width) {
+        this.width = width;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public String suffix() {
+        return name().toLowerCase();
+    }
+
+    // Smallest available variant at least the requested width wide, else the original
+    public static String pick(int width, String thumbnailUrl, String mediumUrl, String largeUrl, String originalUrl) {
+        if (width <= THUMBNAIL.width && thumbnailUrl != null) {
+            return thumbnailUrl;
+        }
+        if (width <= MEDIUM.width && mediumUrl != null) {
+            return mediumUrl;
+        }
+        if (width <= LARGE.width && largeUrl != null) {
+            return largeUrl;
+        }
+        return originalUrl;
+    }
+}
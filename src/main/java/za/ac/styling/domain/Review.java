@@ -42,5 +42,7 @@ public class Review {
     @OneToMany(mappedBy = "review", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ReviewImage> images;
 
+    // Only ever changed by ReviewHelpfulVotes' relative UPDATEs, never by saving the entity
+    @Column(updatable = false)
     private int helpfulCount;
 }
\ No newline at end of file
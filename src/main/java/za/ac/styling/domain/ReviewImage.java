@@ -24,12 +24,34 @@ public class ReviewImage {
     @Column(length = 300)
     private String bucketPath;
 
+    // Filled in by ImageVariantService once the resized copies are stored
+    @Column(length = 500)
+    private String thumbnailUrl;
+
+    @Column(length = 500)
+    private String mediumUrl;
+
+    @Column(length = 500)
+    private String largeUrl;
+
+    // Set by listing endpoints that were asked for a display width; never persisted
+    @Transient
+    private String displayUrl;
+
     private String contentType;
 
     public String getImageUrl() {
         return supabaseUrl != null ? supabaseUrl : null;
     }
 
+    public String urlForWidth(int width) {
+        return ImageVariant.pick(width, thumbnailUrl, mediumUrl, largeUrl, getImageUrl());
+    }
+
+    public void fitToWidth(int width) {
+        this.displayUrl = urlForWidth(width);
+    }
+
     public boolean isSupabaseImage() {
         return supabaseUrl != null && !supabaseUrl.isEmpty();
     }
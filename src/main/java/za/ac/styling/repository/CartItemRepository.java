@@ -2,6 +2,8 @@ package za.ac.styling.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import za.ac.styling.domain.*;
@@ -33,4 +35,33 @@ public interface CartItemRepository extends JpaRepository<CartItem, Integer> {
     void deleteBySize(ProductColourSize size);
 
     long countByCart(Cart cart);
+
+    // Adds to an existing (cart, product, colour, size) line or inserts a new one, never exceeding
+    // :available. Returns one row [new quantity, lines in cart] or nothing when stock is insufficient.
+    @Query(value = """
+            WITH updated AS (
+                UPDATE cart_item SET quantity = quantity + :quantity
+                WHERE cart_cart_id = :cartId AND product_product_id = :productId
+                  AND colour_colour_id = :colourId AND size_size_id = :sizeId
+                  AND quantity + :quantity <= :available
+                RETURNING quantity
+            ), inserted AS (
+                INSERT INTO cart_item (cart_cart_id, product_product_id, colour_colour_id, size_size_id, quantity)
+                SELECT :cartId, :productId, :colourId, :sizeId, :quantity
+                WHERE :quantity <= :available
+                  AND NOT EXISTS (SELECT 1 FROM cart_item
+                                  WHERE cart_cart_id = :cartId AND product_product_id = :productId
+                                    AND colour_colour_id = :colourId AND size_size_id = :sizeId)
+                RETURNING quantity
+            )
+            SELECT u.quantity, (SELECT COUNT(*) FROM cart_item WHERE cart_cart_id = :cartId) FROM updated u
+            UNION ALL
+            SELECT i.quantity, (SELECT COUNT(*) FROM cart_item WHERE cart_cart_id = :cartId) + 1 FROM inserted i
+            """, nativeQuery = true)
+    List<Object[]> upsertLine(@Param("cartId") Integer cartId,
+                              @Param("productId") Integer productId,
+                              @Param("colourId") Integer colourId,
+                              @Param("sizeId") Integer sizeId,
+                              @Param("quantity") int quantity,
+                              @Param("available") int available);
 }
@@ -1,12 +1,14 @@
 package za.ac.styling.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import za.ac.styling.domain.Cart;
 import za.ac.styling.domain.User;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -20,4 +22,17 @@ public interface CartRepository extends JpaRepository<Cart, Integer> {
     Optional<Cart> findByUserUserId(Integer userId);
 
     boolean existsByUser(User user);
+
+    @Query("SELECT c.cartId FROM Cart c WHERE c.user.userId = :userId")
+    Optional<Integer> findCartIdByUserId(@Param("userId") Integer userId);
+
+    @Modifying
+    @Query(value = "INSERT INTO cart (user_id, created_at, updated_at) VALUES (:userId, :now, :now) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Integer userId, @Param("now") LocalDateTime now);
+
+    // Also takes the cart row lock, serialising concurrent mutations of the same cart
+    @Modifying
+    @Query("UPDATE Cart c SET c.updatedAt = :now WHERE c.cartId = :cartId")
+    int touch(@Param("cartId") Integer cartId, @Param("now") LocalDateTime now);
 }
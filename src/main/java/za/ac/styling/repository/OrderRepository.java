@@ -36,4 +36,8 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
             "AND o.status IN ('DELIVERED', 'COMPLETED')")
     boolean hasUserPurchasedProduct(@org.springframework.data.repository.query.Param("userId") Integer userId, 
                                    @org.springframework.data.repository.query.Param("productId") Integer productId);
+
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT oi.product.productId FROM Order o " +
+            "JOIN o.items oi WHERE o.user.userId = :userId AND o.status IN ('DELIVERED', 'COMPLETED')")
+    List<Integer> findPurchasedProductIds(@org.springframework.data.repository.query.Param("userId") Integer userId);
 }
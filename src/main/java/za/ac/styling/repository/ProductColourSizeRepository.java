@@ -2,6 +2,7 @@ package za.ac.styling.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import za.ac.styling.domain.ProductColour;
 import za.ac.styling.domain.ProductColourSize;
@@ -26,4 +27,10 @@ public interface ProductColourSizeRepository extends JpaRepository<ProductColour
 
     @Query("SELECT s FROM ProductColourSize s WHERE s.colour = ?1 AND (s.stockQuantity - s.reservedQuantity) > 0")
     List<ProductColourSize> findAvailableSizesByColour(ProductColour colour);
+
+    @Query("SELECT (s.stockQuantity - s.reservedQuantity) FROM ProductColourSize s JOIN s.colour c JOIN c.product p " +
+           "WHERE s.sizeId = :sizeId AND c.colourId = :colourId AND p.productId = :productId")
+    Optional<Integer> findAvailableStockForLine(@Param("productId") Integer productId,
+                                                @Param("colourId") Integer colourId,
+                                                @Param("sizeId") Integer sizeId);
 }
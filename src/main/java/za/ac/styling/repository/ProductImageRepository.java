@@ -1,7 +1,12 @@
 package za.ac.styling.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import za.ac.styling.domain.Product;
 import za.ac.styling.domain.ProductImage;
 
@@ -20,4 +25,32 @@ public interface ProductImageRepository extends JpaRepository<ProductImage, Long
     Optional<ProductImage> findByProductAndIsPrimaryTrue(Product product);
 
     List<ProductImage> findByProductAndIsPrimaryFalse(Product product);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ProductImage i SET i.thumbnailUrl = :thumbnailUrl, i.mediumUrl = :mediumUrl, i.largeUrl = :largeUrl " +
+           "WHERE i.imageId = :imageId")
+    int updateVariantUrls(@Param("imageId") Long imageId,
+                          @Param("thumbnailUrl") String thumbnailUrl,
+                          @Param("mediumUrl") String mediumUrl,
+                          @Param("largeUrl") String largeUrl);
+
+    // [imageId, productId, imageUrl] of images not yet in storage, keyset-paged by imageId
+    @Query("SELECT i.imageId, p.productId, i.imageUrl FROM ProductImage i JOIN i.product p " +
+           "WHERE i.imageId > :afterId AND (i.supabaseUrl IS NULL OR i.supabaseUrl = '') AND i.imageUrl IS NOT NULL " +
+           "ORDER BY i.imageId")
+    List<Object[]> findUnmigrated(@Param("afterId") Long afterId, Pageable pageable);
+
+    long countByBucketPath(String bucketPath);
+
+    // Only succeeds while the image still has no storage object, so a concurrent edit is never overwritten
+    @Transactional
+    @Modifying
+    @Query("UPDATE ProductImage i SET i.supabaseUrl = :supabaseUrl, i.bucketPath = :bucketPath, " +
+           "i.contentType = COALESCE(:contentType, i.contentType) " +
+           "WHERE i.imageId = :imageId AND (i.supabaseUrl IS NULL OR i.supabaseUrl = '')")
+    int attachStorageObject(@Param("imageId") Long imageId,
+                            @Param("supabaseUrl") String supabaseUrl,
+                            @Param("bucketPath") String bucketPath,
+                            @Param("contentType") String contentType);
 }
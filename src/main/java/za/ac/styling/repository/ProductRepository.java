@@ -1,12 +1,15 @@
 package za.ac.styling.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import za.ac.styling.domain.Category;
 import za.ac.styling.domain.Product;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -76,4 +79,14 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
 
     @Query("SELECT p FROM Product p WHERE p.deletedAt IS NULL")
     List<Product> findAllNotDeleted();
+
+    @Query("SELECT p.basePrice FROM Product p WHERE p.productId = :id")
+    Optional<Double> findBasePriceById(@Param("id") Integer id);
+
+    @Query("SELECT p.productId, p.basePrice FROM Product p WHERE p.productId IN :ids")
+    List<Object[]> findBasePricesByIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT p.primaryImage.bucketPath FROM Product p " +
+           "WHERE p.isActive = true AND p.deletedAt IS NULL AND p.primaryImage.bucketPath IS NOT NULL")
+    List<String> findActivePrimaryImagePaths(Pageable pageable);
 }
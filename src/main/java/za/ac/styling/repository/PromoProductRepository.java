@@ -28,4 +28,9 @@ public interface PromoProductRepository extends JpaRepository<PromoProduct, Inte
 
     @Query("SELECT pp.product.productId FROM PromoProduct pp WHERE pp.promoCode.promoId = :promoId")
     List<Integer> findProductIdsByPromoId(@Param("promoId") Integer promoId);
+
+    // [promoId, productId] for every mapping, ordered by promo so callers can group in one pass
+    @Query("SELECT pp.promoCode.promoId, pp.product.productId FROM PromoProduct pp " +
+           "ORDER BY pp.promoCode.promoId, pp.product.productId")
+    List<Object[]> findAllPromoProductIds();
 }
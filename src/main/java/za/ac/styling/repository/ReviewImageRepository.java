@@ -1,7 +1,11 @@
 package za.ac.styling.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import za.ac.styling.domain.Review;
 import za.ac.styling.domain.ReviewImage;
 
@@ -13,4 +17,13 @@ public interface ReviewImageRepository extends JpaRepository<ReviewImage, Long>
     List<ReviewImage> findByReview(Review review);
 
     List<ReviewImage> findByReviewReviewId(Long reviewId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReviewImage i SET i.thumbnailUrl = :thumbnailUrl, i.mediumUrl = :mediumUrl, i.largeUrl = :largeUrl " +
+           "WHERE i.imageId = :imageId")
+    int updateVariantUrls(@Param("imageId") Long imageId,
+                          @Param("thumbnailUrl") String thumbnailUrl,
+                          @Param("mediumUrl") String mediumUrl,
+                          @Param("largeUrl") String largeUrl);
 }
@@ -1,11 +1,15 @@
 package za.ac.styling.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import za.ac.styling.domain.Product;
 import za.ac.styling.domain.Review;
 import za.ac.styling.domain.User;
 
+import java.util.Date;
 import java.util.List;
 
 @Repository
@@ -30,4 +34,40 @@ public interface ReviewRepository extends JpaRepository<Review, Integer> {
     List<Review> findByProductAndRatingGreaterThanEqual(Product product, int minRating);
 
     long countByProduct(Product product);
+
+    // [rating, productId] of one review, before it is changed
+    @Query("SELECT r.rating, p.productId FROM Review r LEFT JOIN r.product p WHERE r.reviewId = :reviewId")
+    List<Object[]> findRatingAndProductId(@Param("reviewId") Integer reviewId);
+
+    // Keyset pages, newest first with undated reviews last; reviewId breaks ties
+    @Query("SELECT r FROM Review r WHERE r.product.productId = :productId " +
+           "ORDER BY r.reviewDate DESC NULLS LAST, r.reviewId DESC")
+    List<Review> findFirstPageByDate(@Param("productId") Integer productId, Pageable pageable);
+
+    @Query("SELECT r FROM Review r WHERE r.product.productId = :productId " +
+           "AND (r.reviewDate < :reviewDate OR (r.reviewDate = :reviewDate AND r.reviewId < :reviewId) " +
+           "OR r.reviewDate IS NULL) " +
+           "ORDER BY r.reviewDate DESC NULLS LAST, r.reviewId DESC")
+    List<Review> findPageByDateAfter(@Param("productId") Integer productId,
+                                     @Param("reviewDate") Date reviewDate,
+                                     @Param("reviewId") Integer reviewId,
+                                     Pageable pageable);
+
+    @Query("SELECT r FROM Review r WHERE r.product.productId = :productId " +
+           "AND r.reviewDate IS NULL AND r.reviewId < :reviewId ORDER BY r.reviewId DESC")
+    List<Review> findPageByNullDateAfter(@Param("productId") Integer productId,
+                                         @Param("reviewId") Integer reviewId,
+                                         Pageable pageable);
+
+    // Keyset pages, most helpful first; reviewId breaks ties
+    @Query("SELECT r FROM Review r WHERE r.product.productId = :productId ORDER BY r.helpfulCount DESC, r.reviewId DESC")
+    List<Review> findFirstPageByHelpful(@Param("productId") Integer productId, Pageable pageable);
+
+    @Query("SELECT r FROM Review r WHERE r.product.productId = :productId " +
+           "AND (r.helpfulCount < :helpfulCount OR (r.helpfulCount = :helpfulCount AND r.reviewId < :reviewId)) " +
+           "ORDER BY r.helpfulCount DESC, r.reviewId DESC")
+    List<Review> findPageByHelpfulAfter(@Param("productId") Integer productId,
+                                        @Param("helpfulCount") int helpfulCount,
+                                        @Param("reviewId") Integer reviewId,
+                                        Pageable pageable);
 }
@@ -0,0 +1,173 @@
+package za.ac.styling.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes carts (and their lines) that have not been touched for cart.purge.idle-days.
+ * <p>
+ * Each batch is one set-based statement in its own short transaction that locks at most
+ * cart.purge.batch-size carts, skipping rows held by in-flight cart mutations. Carts held by the
+ * {@link WriteBehindCartStore} are written first, so their last activity counts, and purged ones are dropped
+ * from it. With cart.purge.dry-run the job only counts what it would delete.
+ */
+@Component
+public class AbandonedCartPurgeJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbandonedCartPurgeJob.class);
+
+    private static final String PURGE_BATCH_SQL = """
+            WITH victims AS (
+                SELECT cart_id FROM cart
+                WHERE COALESCE(updated_at, created_at) < ?
+                ORDER BY cart_id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ), removed_items AS (
+                DELETE FROM cart_item WHERE cart_cart_id IN (SELECT cart_id FROM victims)
+                RETURNING 1
+            ), removed_carts AS (
+                DELETE FROM cart WHERE cart_id IN (SELECT cart_id FROM victims)
+                RETURNING cart_id
+            )
+            SELECT cart_id, (SELECT COUNT(*) FROM removed_items) FROM removed_carts
+            """;
+
+    private static final String DRY_RUN_SQL = """
+            SELECT COUNT(*),
+                   COALESCE(SUM((SELECT COUNT(*) FROM cart_item ci WHERE ci.cart_cart_id = c.cart_id)), 0)
+            FROM cart c
+            WHERE COALESCE(c.updated_at, c.created_at) < ?
+            """;
+
+    public record PurgeResult(boolean dryRun, long carts, long items, int batches) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteBehindCartStore cartStore;
+
+    private final boolean enabled;
+    private final boolean dryRun;
+    private final int idleDays;
+    private final int batchSize;
+    private final int maxBatches;
+
+    private final Counter purgedCarts;
+    private final Counter purgedItems;
+    private final Timer runTimer;
+    private final AtomicLong lastEligibleCarts = new AtomicLong();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public AbandonedCartPurgeJob(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 WriteBehindCartStore cartStore,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${cart.purge.enabled:true}") boolean enabled,
+                                 @Value("${cart.purge.dry-run:false}") boolean dryRun,
+                                 @Value("${cart.purge.idle-days:30}") int idleDays,
+                                 @Value("${cart.purge.batch-size:500}") int batchSize,
+                                 @Value("${cart.purge.max-batches:200}") int maxBatches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(30);
+        this.cartStore = cartStore;
+        this.enabled = enabled;
+        this.dryRun = dryRun;
+        this.idleDays = Math.max(1, idleDays);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatches = Math.max(1, maxBatches);
+
+        this.purgedCarts = Counter.builder("cart.purge.deleted").tag("table", "cart").register(meterRegistry);
+        this.purgedItems = Counter.builder("cart.purge.deleted").tag("table", "cart_item").register(meterRegistry);
+        this.runTimer = Timer.builder("cart.purge.duration").register(meterRegistry);
+        meterRegistry.gauge("cart.purge.last.eligible", lastEligibleCarts);
+    }
+
+    @Scheduled(cron = "${cart.purge.cron:0 30 3 * * *}")
+    public void scheduledPurge() {
+        if (enabled) {
+            purge(dryRun);
+        }
+    }
+
+    public PurgeResult purge(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Abandoned cart purge already running, skipping");
+            return new PurgeResult(dryRun, 0, 0, 0);
+        }
+        try {
+            return runTimer.record(() -> dryRun ? countEligible() : deleteInBatches());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Timestamp cutoff() {
+        return Timestamp.valueOf(LocalDateTime.now().minusDays(idleDays));
+    }
+
+    private PurgeResult countEligible() {
+        long[] counts = jdbcTemplate.queryForObject(DRY_RUN_SQL,
+                (rs, rowNum) -> new long[] { rs.getLong(1), rs.getLong(2) }, cutoff());
+        lastEligibleCarts.set(counts[0]);
+        logger.info("Abandoned cart purge (dry run): {} carts with {} items idle for more than {} days",
+                counts[0], counts[1], idleDays);
+        return new PurgeResult(true, counts[0], counts[1], 0);
+    }
+
+    private PurgeResult deleteInBatches() {
+        Timestamp cutoff = cutoff();
+        long carts = 0;
+        long items = 0;
+        int batches = 0;
+
+        cartStore.flushDirty();
+        while (batches < maxBatches) {
+            List<long[]> rows = transactionTemplate.execute(status -> jdbcTemplate.query(PURGE_BATCH_SQL,
+                    (rs, rowNum) -> new long[] { rs.getLong(1), rs.getLong(2) }, cutoff, batchSize));
+            if (rows == null || rows.isEmpty()) {
+                break;
+            }
+            List<Integer> cartIds = new ArrayList<>(rows.size());
+            for (long[] row : rows) {
+                cartIds.add((int) row[0]);
+            }
+            cartStore.discardCarts(cartIds);
+
+            batches++;
+            carts += rows.size();
+            items += rows.get(0)[1];
+            purgedCarts.increment(rows.size());
+            purgedItems.increment(rows.get(0)[1]);
+            if (rows.size() < batchSize) {
+                break;
+            }
+        }
+
+        lastEligibleCarts.set(carts);
+        if (carts > 0) {
+            logger.info("Abandoned cart purge: removed {} carts and {} items in {} batches", carts, items, batches);
+        }
+        if (batches == maxBatches) {
+            logger.warn("Abandoned cart purge stopped after {} batches; the rest is left for the next run", maxBatches);
+        }
+        return new PurgeResult(false, carts, items, batches);
+    }
+}
@@ -0,0 +1,80 @@
+package za.ac.styling.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import za.ac.styling.repository.CartItemRepository;
+import za.ac.styling.repository.CartRepository;
+import za.ac.styling.repository.ProductColourSizeRepository;
+import za.ac.styling.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class CartMutationService {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final ProductColourSizeRepository productColourSizeRepository;
+    private final UserRepository userRepository;
+
+    private static final int MAX_CART_ATTEMPTS = 3;
+
+    public enum Outcome { ADDED, INVALID_ITEM, INSUFFICIENT_STOCK, USER_NOT_FOUND }
+
+    public record AddItemResult(Outcome outcome, Integer cartId, int quantity, int itemCount, int availableStock) {
+
+        public boolean isSuccess() {
+            return outcome == Outcome.ADDED;
+        }
+
+        static AddItemResult failure(Outcome outcome, int availableStock) {
+            return new AddItemResult(outcome, null, 0, 0, availableStock);
+        }
+    }
+
+    @Transactional
+    public AddItemResult addItem(Integer userId, Integer productId, Integer colourId, Integer sizeId, int quantity) {
+        Optional<Integer> available = productColourSizeRepository.findAvailableStockForLine(productId, colourId, sizeId);
+        if (available.isEmpty()) {
+            return AddItemResult.failure(Outcome.INVALID_ITEM, 0);
+        }
+        int availableStock = available.get();
+        if (quantity > availableStock) {
+            return AddItemResult.failure(Outcome.INSUFFICIENT_STOCK, availableStock);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Integer cartId = null;
+        for (int attempt = 0; attempt < MAX_CART_ATTEMPTS && cartId == null; attempt++) {
+            Integer candidate = cartRepository.findCartIdByUserId(userId).orElse(null);
+            if (candidate == null) {
+                if (!userRepository.existsById(userId)) {
+                    return AddItemResult.failure(Outcome.USER_NOT_FOUND, availableStock);
+                }
+                // A concurrent first add for the same user makes this wait for that insert and then do nothing
+                cartRepository.insertIfAbsent(userId, now);
+                candidate = cartRepository.findCartIdByUserId(userId).orElse(null);
+            }
+            // No row means the cart was cleared or purged after its id was read; look it up (or create it) again
+            if (candidate != null && cartRepository.touch(candidate, now) > 0) {
+                cartId = candidate;
+            }
+        }
+        if (cartId == null) {
+            throw new IllegalStateException("Cart for user " + userId + " kept disappearing while adding an item");
+        }
+
+        List<Object[]> rows = cartItemRepository.upsertLine(cartId, productId, colourId, sizeId, quantity, availableStock);
+        if (rows.isEmpty()) {
+            return AddItemResult.failure(Outcome.INSUFFICIENT_STOCK, availableStock);
+        }
+
+        Object[] row = rows.get(0);
+        return new AddItemResult(Outcome.ADDED, cartId, ((Number) row[0]).intValue(), ((Number) row[1]).intValue(),
+                availableStock);
+    }
+}
@@ -0,0 +1,157 @@
+package za.ac.styling.service;
+
+import za.ac.styling.domain.PromoCode;
+import za.ac.styling.util.IntOpenHashSet;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable, pre-validated form of a {@link PromoCode} and its eligible products, built once by
+ * {@link PromoRuleCache} so evaluating a promo against a cart needs no further lookups.
+ */
+public final class CompiledPromo {
+
+    private static final long NONE = -1L;
+
+    private final Integer promoId;
+    private final String code;
+    private final PromoCode promoCode;
+    private final boolean active;
+    private final LocalDateTime startDate;
+    private final LocalDateTime endOfLastDay;
+    private final long usageLimit;
+    private final long currentUsage;
+    private final long minPurchaseCents;
+    private final double minPurchaseAmount;
+    private final PromoCode.DiscountType discountType;
+    private final double discountPercent;
+    private final long fixedDiscountCents;
+    private final boolean oneTimeUse;
+    private final long perUserUsageLimit;
+    private final IntOpenHashSet eligibleProducts;
+    private final List<Integer> eligibleProductIds;
+
+    CompiledPromo(PromoCode promo, List<Integer> eligibleProductIds) {
+        this.promoId = promo.getPromoId();
+        this.code = promo.getCode();
+        this.promoCode = snapshot(promo);
+        this.active = promo.isActive();
+        this.startDate = promo.getStartDate();
+        this.endOfLastDay = promo.getEndDate() != null ? promo.getEndDate().toLocalDate().atTime(23, 59, 59) : null;
+        this.usageLimit = promo.getUsageLimit() != null ? promo.getUsageLimit() : NONE;
+        this.currentUsage = promo.getCurrentUsage() != null ? promo.getCurrentUsage() : 0;
+        this.minPurchaseCents = promo.getMinPurchaseAmount() != null
+                ? PricingEngine.toCents(promo.getMinPurchaseAmount()) : NONE;
+        this.minPurchaseAmount = promo.getMinPurchaseAmount() != null ? promo.getMinPurchaseAmount() : 0;
+        this.discountType = promo.getDiscountType();
+        this.discountPercent = promo.getDiscountValue();
+        this.fixedDiscountCents = PricingEngine.toCents(promo.getDiscountValue());
+        this.oneTimeUse = promo.isOneTimeUse();
+        this.perUserUsageLimit = promo.getPerUserUsageLimit() != null && promo.getPerUserUsageLimit() > 0
+                ? promo.getPerUserUsageLimit() : NONE;
+        this.eligibleProducts = IntOpenHashSet.of(eligibleProductIds);
+        this.eligibleProductIds = Collections.unmodifiableList(this.eligibleProducts.toList());
+    }
+
+    // Detached copy so the cached value never drags a persistence context or lazy collections around
+    private static PromoCode snapshot(PromoCode promo) {
+        return PromoCode.builder()
+                .promoId(promo.getPromoId())
+                .code(promo.getCode())
+                .discountType(promo.getDiscountType())
+                .discountValue(promo.getDiscountValue())
+                .startDate(promo.getStartDate())
+                .endDate(promo.getEndDate())
+                .usageLimit(promo.getUsageLimit())
+                .currentUsage(promo.getCurrentUsage())
+                .minPurchaseAmount(promo.getMinPurchaseAmount())
+                .isActive(promo.isActive())
+                .oneTimeUse(promo.isOneTimeUse())
+                .perUserUsageLimit(promo.getPerUserUsageLimit())
+                .description(promo.getDescription())
+                .createdAt(promo.getCreatedAt())
+                .updatedAt(promo.getUpdatedAt())
+                .build();
+    }
+
+    // Returns the reason the promo cannot be used right now, or null when it can
+    public String checkAvailability(LocalDateTime now) {
+        if (!active) {
+            return "Promo code is inactive";
+        }
+        if (startDate != null && now.isBefore(startDate)) {
+            return "Promo code not yet valid";
+        }
+        if (endOfLastDay != null && now.isAfter(endOfLastDay)) {
+            return "Promo code has expired";
+        }
+        if (usageLimit != NONE && currentUsage >= usageLimit) {
+            return "Promo code usage limit reached";
+        }
+        return null;
+    }
+
+    public boolean needsUserUsageCheck() {
+        return oneTimeUse || perUserUsageLimit != NONE;
+    }
+
+    // Returns the reason this user may not use the promo again, or null when they may
+    public String checkUserUsage(long userUsageCount) {
+        if (oneTimeUse && userUsageCount > 0) {
+            return "You have already used this promo code";
+        }
+        if (perUserUsageLimit != NONE && userUsageCount >= perUserUsageLimit) {
+            return String.format("You have reached your usage limit (%d) for this promo code", perUserUsageLimit);
+        }
+        return null;
+    }
+
+    public boolean meetsMinimumPurchase(long subtotalCents) {
+        return minPurchaseCents == NONE || subtotalCents >= minPurchaseCents;
+    }
+
+    public boolean restrictsProducts() {
+        return !eligibleProducts.isEmpty();
+    }
+
+    public boolean isEligible(int productId) {
+        return eligibleProducts.contains(productId);
+    }
+
+    public long discountCents(long eligibleTotalCents) {
+        if (discountType == PromoCode.DiscountType.PERCENTAGE) {
+            return PricingEngine.percentOf(eligibleTotalCents, discountPercent);
+        }
+        if (discountType == PromoCode.DiscountType.FIXED) {
+            return Math.min(fixedDiscountCents, eligibleTotalCents);
+        }
+        return 0L;
+    }
+
+    // Only a compiled rule can issue a redeemable evaluation
+    public PromoEvaluation seal(PromoCodeService.PromoApplicationResult result, Integer userId, long subtotalCents) {
+        return PromoEvaluation.applied(result, this, userId, subtotalCents);
+    }
+
+    public Integer getPromoId() {
+        return promoId;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public PromoCode getPromoCode() {
+        return promoCode;
+    }
+
+    public double getMinPurchaseAmount() {
+        return minPurchaseAmount;
+    }
+
+    public List<Integer> getEligibleProductIds() {
+        return eligibleProductIds;
+    }
+}
@@ -0,0 +1,315 @@
+package za.ac.styling.service;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import za.ac.styling.domain.Address;
+import za.ac.styling.domain.Order;
+import za.ac.styling.domain.OrderItem;
+import za.ac.styling.domain.OrderStatus;
+import za.ac.styling.domain.Product;
+import za.ac.styling.domain.ProductImage;
+import za.ac.styling.domain.User;
+import za.ac.styling.template.HtmlTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Component
+public class EmailTemplateRenderer {
+
+    private static final String TEMPLATE_LOCATION = "templates/email/";
+
+    private static final DateTimeFormatter ORDER_DATE_FORMAT = DateTimeFormatter.ofPattern("MMMM dd, yyyy");
+
+    // NumberFormat is not thread-safe; one instance per mail-sending thread
+    private static final ThreadLocal<NumberFormat> CURRENCY = ThreadLocal
+            .withInitial(() -> NumberFormat.getCurrencyInstance(Locale.of("en", "ZA")));
+
+    private final Map<OrderStatus, String> statusClasses = new EnumMap<>(OrderStatus.class);
+    private final Map<OrderStatus, String> statusLabels = new EnumMap<>(OrderStatus.class);
+
+    private final HtmlTemplate invoice;
+    private final HtmlTemplate invoiceItems;
+    private final int invFirstName, invOrderNumber, invOrderDate, invStatus, invItems;
+    private final int invImage, invNoImage, invImageUrl, invProductName, invQuantity, invPrice, invLineSubtotal;
+    private final int invSubtotal, invShippingCost, invTaxAmount, invDiscount, invDiscountAmount, invTotalAmount;
+    private final int invShipping, invFullName, invAddressLine1, invAddressLine2, invAddressLine2Text;
+    private final int invCity, invProvince, invPostalCode, invPhone, invShippingMethod, invEstimatedDays, invEmail;
+
+    private final HtmlTemplate orderStatus;
+    private final HtmlTemplate orderStatusItems;
+    private final int stFirstName, stOrderNumber, stStatusClass, stStatusLabel, stOrderDate, stTotalAmount;
+    private final int stHasItems, stItems, stImage, stNoImage, stImageUrl, stProductName, stQuantity;
+
+
+    private final HtmlTemplate lowStockDigest;
+    private final HtmlTemplate lowStockDigestItems;
+    private final int ldCount, ldItems, ldProductName, ldSku, ldSizeName, ldCategoryName, ldCurrentStock, ldReorderLevel;
+    private final int ldOutOfStock, ldCritical, ldLow;
+
+    private final HtmlTemplate passwordResetOtp;
+    private final int otpUserName, otpCode, otpResetLink;
+
+    private final HtmlTemplate passwordReset;
+    private final int prUserName, prResetLink;
+
+    private final HtmlTemplate welcome;
+    private final int wDisplayName, wEmail, wMemberSince;
+
+    public EmailTemplateRenderer() {
+        for (OrderStatus status : OrderStatus.values()) {
+            statusClasses.put(status, "status-" + status.name().toLowerCase().replace("_", "-"));
+            statusLabels.put(status, status.name().replace("_", " "));
+        }
+
+        invoice = load("invoice");
+        invoiceItems = invoice.section("items");
+        invFirstName = invoice.slot("firstName");
+        invOrderNumber = invoice.slot("orderNumber");
+        invOrderDate = invoice.slot("orderDate");
+        invStatus = invoice.slot("status");
+        invItems = invoice.slot("items");
+        invImage = invoice.slot("image");
+        invNoImage = invoice.slot("noImage");
+        invImageUrl = invoice.slot("imageUrl");
+        invProductName = invoice.slot("productName");
+        invQuantity = invoice.slot("quantity");
+        invPrice = invoice.slot("price");
+        invLineSubtotal = invoice.slot("lineSubtotal");
+        invSubtotal = invoice.slot("subtotal");
+        invShippingCost = invoice.slot("shippingCost");
+        invTaxAmount = invoice.slot("taxAmount");
+        invDiscount = invoice.slot("discount");
+        invDiscountAmount = invoice.slot("discountAmount");
+        invTotalAmount = invoice.slot("totalAmount");
+        invShipping = invoice.slot("shipping");
+        invFullName = invoice.slot("fullName");
+        invAddressLine1 = invoice.slot("addressLine1");
+        invAddressLine2 = invoice.slot("addressLine2");
+        invAddressLine2Text = invoice.slot("addressLine2Text");
+        invCity = invoice.slot("city");
+        invProvince = invoice.slot("province");
+        invPostalCode = invoice.slot("postalCode");
+        invPhone = invoice.slot("phone");
+        invShippingMethod = invoice.slot("shippingMethod");
+        invEstimatedDays = invoice.slot("estimatedDays");
+        invEmail = invoice.slot("email");
+
+        orderStatus = load("order-status");
+        orderStatusItems = orderStatus.section("items");
+        stFirstName = orderStatus.slot("firstName");
+        stOrderNumber = orderStatus.slot("orderNumber");
+        stStatusClass = orderStatus.slot("statusClass");
+        stStatusLabel = orderStatus.slot("statusLabel");
+        stOrderDate = orderStatus.slot("orderDate");
+        stTotalAmount = orderStatus.slot("totalAmount");
+        stHasItems = orderStatus.slot("hasItems");
+        stItems = orderStatus.slot("items");
+        stImage = orderStatus.slot("image");
+        stNoImage = orderStatus.slot("noImage");
+        stImageUrl = orderStatus.slot("imageUrl");
+        stProductName = orderStatus.slot("productName");
+        stQuantity = orderStatus.slot("quantity");
+
+        lowStockDigest = load("low-stock-digest");
+        lowStockDigestItems = lowStockDigest.section("items");
+        ldCount = lowStockDigest.slot("count");
+        ldItems = lowStockDigest.slot("items");
+        ldProductName = lowStockDigest.slot("productName");
+        ldSku = lowStockDigest.slot("sku");
+        ldSizeName = lowStockDigest.slot("sizeName");
+        ldCategoryName = lowStockDigest.slot("categoryName");
+        ldCurrentStock = lowStockDigest.slot("currentStock");
+        ldReorderLevel = lowStockDigest.slot("reorderLevel");
+        ldOutOfStock = lowStockDigest.slot("outOfStock");
+        ldCritical = lowStockDigest.slot("critical");
+        ldLow = lowStockDigest.slot("low");
+
+        passwordResetOtp = load("password-reset-otp");
+        otpUserName = passwordResetOtp.slot("userName");
+        otpCode = passwordResetOtp.slot("otpCode");
+        otpResetLink = passwordResetOtp.slot("resetLink");
+
+        passwordReset = load("password-reset");
+        prUserName = passwordReset.slot("userName");
+        prResetLink = passwordReset.slot("resetLink");
+
+        welcome = load("welcome");
+        wDisplayName = welcome.slot("displayName");
+        wEmail = welcome.slot("email");
+        wMemberSince = welcome.slot("memberSince");
+    }
+
+    private static HtmlTemplate load(String name) {
+        ClassPathResource resource = new ClassPathResource(TEMPLATE_LOCATION + name + ".html");
+        try (InputStream in = resource.getInputStream()) {
+            return HtmlTemplate.compile(name, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load email template " + resource.getPath(), e);
+        }
+    }
+
+    public String renderInvoice(User user, Order order) {
+        NumberFormat currency = CURRENCY.get();
+        Object[] model = invoice.newModel();
+
+        model[invFirstName] = user.getFirstName();
+        model[invOrderNumber] = order.getOrderNumber();
+        model[invOrderDate] = formatDate(order.getOrderDate());
+        model[invStatus] = order.getStatus();
+        model[invItems] = (HtmlTemplate.Fragment) out -> {
+            if (order.getItems() == null) {
+                return;
+            }
+            Object[] row = invoice.newModel();
+            for (OrderItem item : order.getItems()) {
+                Product product = item.getProduct();
+                String imageUrl = resolveImageUrl(product);
+                row[invImage] = !imageUrl.isEmpty();
+                row[invNoImage] = imageUrl.isEmpty();
+                row[invImageUrl] = imageUrl;
+                row[invProductName] = product.getName();
+                row[invQuantity] = item.getQuantity();
+                row[invPrice] = currency.format(item.getPrice());
+                row[invLineSubtotal] = currency.format(item.getSubtotal());
+                invoiceItems.render(out, row);
+            }
+        };
+        model[invSubtotal] = currency.format(order.getSubtotal());
+        model[invShippingCost] = currency.format(order.getShippingCost());
+        model[invTaxAmount] = currency.format(order.getTaxAmount());
+        if (order.getDiscountAmount() > 0) {
+            model[invDiscount] = Boolean.TRUE;
+            model[invDiscountAmount] = currency.format(order.getDiscountAmount());
+        }
+        model[invTotalAmount] = currency.format(order.getTotalAmount());
+
+        Address address = order.getShippingAddress();
+        if (address != null) {
+            model[invShipping] = Boolean.TRUE;
+            model[invFullName] = address.getFullName();
+            model[invAddressLine1] = address.getAddressLine1();
+            if (address.getAddressLine2() != null && !address.getAddressLine2().isEmpty()) {
+                model[invAddressLine2] = Boolean.TRUE;
+                model[invAddressLine2Text] = address.getAddressLine2();
+            }
+            model[invCity] = address.getCity();
+            model[invProvince] = address.getProvince();
+            model[invPostalCode] = address.getPostalCode();
+            model[invPhone] = address.getPhone();
+            model[invShippingMethod] = order.getShippingMethod().getName();
+            model[invEstimatedDays] = order.getShippingMethod().getEstimatedDays();
+        }
+        model[invEmail] = user.getEmail();
+
+        return invoice.render(model);
+    }
+
+    public String renderOrderStatusUpdate(User user, Order order) {
+        Object[] model = orderStatus.newModel();
+
+        model[stFirstName] = user.getFirstName();
+        model[stOrderNumber] = order.getOrderNumber();
+        model[stStatusClass] = statusClasses.get(order.getStatus());
+        model[stStatusLabel] = statusLabels.get(order.getStatus());
+        model[stOrderDate] = formatDate(order.getOrderDate());
+        model[stTotalAmount] = CURRENCY.get().format(order.getTotalAmount());
+
+        if (order.getItems() != null && !order.getItems().isEmpty()) {
+            model[stHasItems] = Boolean.TRUE;
+            model[stItems] = (HtmlTemplate.Fragment) out -> {
+                Object[] row = orderStatus.newModel();
+                for (OrderItem item : order.getItems()) {
+                    Product product = item.getProduct();
+                    String imageUrl = resolveImageUrl(product);
+                    row[stImage] = !imageUrl.isEmpty();
+                    row[stNoImage] = imageUrl.isEmpty();
+                    row[stImageUrl] = imageUrl;
+                    row[stProductName] = product.getName();
+                    row[stQuantity] = item.getQuantity();
+                    orderStatusItems.render(out, row);
+                }
+            };
+        }
+
+        return orderStatus.render(model);
+    }
+
+    public String renderLowStockDigest(List<LowStockAlertAggregator.LowStockAlert> alerts) {
+        Object[] model = lowStockDigest.newModel();
+        model[ldCount] = alerts.size();
+        model[ldItems] = (HtmlTemplate.Fragment) out -> {
+            Object[] row = lowStockDigest.newModel();
+            for (LowStockAlertAggregator.LowStockAlert alert : alerts) {
+                row[ldProductName] = alert.productName();
+                row[ldSku] = alert.sku();
+                row[ldSizeName] = alert.sizeName();
+                row[ldCategoryName] = alert.categoryName();
+                row[ldCurrentStock] = alert.currentStock();
+                row[ldReorderLevel] = alert.reorderLevel();
+                row[ldOutOfStock] = alert.currentStock() == 0;
+                row[ldCritical] = alert.currentStock() != 0 && alert.currentStock() <= alert.reorderLevel() / 2;
+                row[ldLow] = alert.currentStock() > alert.reorderLevel() / 2;
+                lowStockDigestItems.render(out, row);
+            }
+        };
+        return lowStockDigest.render(model);
+    }
+
+    public String renderPasswordResetWithOtp(String resetLink, String userName, String otp) {
+        Object[] model = passwordResetOtp.newModel();
+        model[otpUserName] = userName;
+        model[otpCode] = otp;
+        model[otpResetLink] = resetLink;
+        return passwordResetOtp.render(model);
+    }
+
+    public String renderPasswordReset(String resetLink, String userName) {
+        Object[] model = passwordReset.newModel();
+        model[prUserName] = userName;
+        model[prResetLink] = resetLink;
+        return passwordReset.render(model);
+    }
+
+    public String renderWelcome(User user) {
+        Object[] model = welcome.newModel();
+        model[wDisplayName] = user.getFirstName() != null ? user.getFirstName() : user.getUsername();
+        model[wEmail] = user.getEmail();
+        model[wMemberSince] = LocalDate.now().toString();
+        return welcome.render(model);
+    }
+
+    private static String formatDate(Date date) {
+        if (date == null) {
+            return null;
+        }
+        return ORDER_DATE_FORMAT.format(Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()));
+    }
+
+    private static String resolveImageUrl(Product product) {
+        ProductImage primary = product.getPrimaryImage();
+        if (primary != null && primary.getSupabaseUrl() != null && !primary.getSupabaseUrl().isEmpty()) {
+            return primary.getSupabaseUrl();
+        }
+        if (primary != null && primary.getImageUrl() != null) {
+            return primary.getImageUrl();
+        }
+        if (product.getImages() != null && !product.getImages().isEmpty()) {
+            String url = product.getImages().iterator().next().getSupabaseUrl();
+            return url != null ? url : "";
+        }
+        return "";
+    }
+}
@@ -0,0 +1,281 @@
+package za.ac.styling.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import za.ac.styling.repository.ProductRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Local disk copy of storage objects for the image proxy endpoint, bounded to image.proxy.max-bytes and
+ * evicted least-recently-used first.
+ * <p>
+ * Each object is fetched once (concurrent misses for the same object share the download), written to a temp
+ * file and atomically moved into place, with a strong ETag taken from its SHA-256. The index lives in memory,
+ * so the directory is emptied on startup.
+ * <p>
+ * Every fetch gets its own file name, and evicted or replaced files are only deleted after
+ * image.proxy.eviction-grace-ms. The container's sendfile opens a file by name after the request handler has
+ * returned, so the file must still be there when it does.
+ */
+@Component
+public class ImageProxyCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageProxyCache.class);
+
+    public record CachedImage(Path file, long size, String etag, String contentType) {
+    }
+
+    private final SupabaseStorageService storageService;
+    private final ProductRepository productRepository;
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxBytes;
+    private final int warmLimit;
+    private final boolean warmOnStartup;
+    private final Counter hits;
+    private final Counter misses;
+
+    // Access-ordered, so iteration starts at the least recently used entry; guarded by this
+    private final LinkedHashMap<String, CachedImage> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final Map<String, CompletableFuture<CachedImage>> inflight = new ConcurrentHashMap<>();
+
+    private record RetiredFile(Path file, long deleteAfterNanos) {
+    }
+
+    private final Queue<RetiredFile> retired = new ConcurrentLinkedQueue<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final long evictionGraceNanos;
+
+    public ImageProxyCache(SupabaseStorageService storageService,
+                           ProductRepository productRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${image.proxy.enabled:false}") boolean enabled,
+                           @Value("${image.proxy.dir:${java.io.tmpdir}/image-proxy}") String directory,
+                           @Value("${image.proxy.max-bytes:1073741824}") long maxBytes,
+                           @Value("${image.proxy.warm-limit:200}") int warmLimit,
+                           @Value("${image.proxy.warm-on-startup:true}") boolean warmOnStartup,
+                           @Value("${image.proxy.eviction-grace-ms:30000}") long evictionGraceMs) throws IOException {
+        this.storageService = storageService;
+        this.productRepository = productRepository;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        this.warmLimit = warmLimit;
+        this.warmOnStartup = warmOnStartup;
+        this.evictionGraceNanos = TimeUnit.MILLISECONDS.toNanos(evictionGraceMs);
+        this.hits = Counter.builder("image.proxy.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("image.proxy.requests").tag("result", "miss").register(meterRegistry);
+        meterRegistry.gauge("image.proxy.bytes", this, ImageProxyCache::currentBytes);
+
+        if (enabled) {
+            Files.createDirectories(this.directory);
+            try (Stream<Path> stale = Files.list(this.directory)) {
+                stale.forEach(ImageProxyCache::deleteQuietly);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CachedImage get(String bucket, String path) throws IOException {
+        String key = bucket + "/" + path;
+        CachedImage cached;
+        synchronized (this) {
+            cached = entries.get(key);
+        }
+        if (cached != null && Files.exists(cached.file())) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        CompletableFuture<CachedImage> mine = new CompletableFuture<>();
+        CompletableFuture<CachedImage> running = inflight.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+        }
+        try {
+            CachedImage fetched = fetch(key, bucket, path);
+            mine.complete(fetched);
+            return fetched;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(key, mine);
+        }
+    }
+
+    private CachedImage fetch(String key, String bucket, String path) throws IOException {
+        String name = HexFormat.of().formatHex(sha256().digest(key.getBytes(StandardCharsets.UTF_8)));
+        Path target = directory.resolve(name + "." + generation.incrementAndGet());
+        Path temp = Files.createTempFile(directory, name, ".part");
+        try {
+            MessageDigest digest = sha256();
+            String contentType;
+            try (OutputStream out = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)), digest)) {
+                contentType = storageService.download(bucket, path, out);
+            }
+            long size = Files.size(temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            String etag = "\"" + HexFormat.of().formatHex(digest.digest()).substring(0, 32) + "\"";
+            CachedImage image = new CachedImage(target, size, etag, contentType);
+            admit(key, image);
+            return image;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private synchronized void admit(String key, CachedImage image) {
+        CachedImage previous = entries.put(key, image);
+        if (previous != null) {
+            totalBytes -= previous.size();
+            retire(previous.file());
+        }
+        totalBytes += image.size();
+
+        Iterator<Map.Entry<String, CachedImage>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, CachedImage> entry = eldest.next();
+            if (entry.getKey().equals(key)) {
+                continue;
+            }
+            eldest.remove();
+            totalBytes -= entry.getValue().size();
+            retire(entry.getValue().file());
+        }
+    }
+
+    public void invalidate(String bucket, String path) {
+        CachedImage removed;
+        synchronized (this) {
+            removed = entries.remove(bucket + "/" + path);
+            if (removed != null) {
+                totalBytes -= removed.size();
+            }
+        }
+        if (removed != null) {
+            retire(removed.file());
+        }
+    }
+
+    private void retire(Path file) {
+        retired.add(new RetiredFile(file, System.nanoTime() + evictionGraceNanos));
+    }
+
+    // Files still open elsewhere (e.g. on Windows) cannot be deleted yet and are retried on the next sweep
+    @Scheduled(fixedDelayString = "${image.proxy.eviction-grace-ms:30000}")
+    public void deleteRetiredFiles() {
+        long now = System.nanoTime();
+        for (int pending = retired.size(); pending > 0; pending--) {
+            RetiredFile next = retired.poll();
+            if (next == null) {
+                return;
+            }
+            if (now - next.deleteAfterNanos() < 0) {
+                retired.add(next);
+                continue;
+            }
+            try {
+                Files.deleteIfExists(next.file());
+            } catch (IOException e) {
+                logger.debug("Could not delete evicted image {} yet", next.file(), e);
+                retire(next.file());
+            }
+        }
+    }
+
+    private synchronized double currentBytes() {
+        return totalBytes;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled && warmOnStartup) {
+            warmPrimaryImages();
+        }
+    }
+
+    /**
+     * Pulls the primary images of up to image.proxy.warm-limit active products into the cache.
+     */
+    public int warmPrimaryImages() {
+        if (!enabled) {
+            return 0;
+        }
+        List<String> paths = productRepository.findActivePrimaryImagePaths(PageRequest.of(0, Math.max(1, warmLimit)));
+        String bucket = storageService.getProductImagesBucket();
+        int warmed = 0;
+        for (String path : paths) {
+            try {
+                get(bucket, path);
+                warmed++;
+            } catch (IOException | UncheckedIOException e) {
+                logger.warn("Could not warm image proxy cache with {}: {}", path, e.getMessage());
+            }
+        }
+        logger.info("Image proxy cache warmed with {} of {} primary images", warmed, paths.size());
+        return warmed;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.debug("Could not delete cached image {}", path, e);
+        }
+    }
+}
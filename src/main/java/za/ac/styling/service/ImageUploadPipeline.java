@@ -0,0 +1,244 @@
+package za.ac.styling.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads the images of one request concurrently on a shared, bounded pool.
+ * <p>
+ * A request never has more than upload.pipeline.per-request uploads in flight, and the pool itself never runs
+ * more than upload.pipeline.pool-size. Results come back in the order of the input files, with a failure
+ * message in place of every upload that did not succeed. Uploads that finish after the request has given up
+ * waiting are deleted again so they do not leave orphans in storage.
+ */
+@Component
+public class ImageUploadPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageUploadPipeline.class);
+
+    @FunctionalInterface
+    public interface Uploader {
+        SupabaseStorageService.UploadResult upload(MultipartFile file) throws IOException;
+    }
+
+    public static final class BatchResult {
+        private final List<SupabaseStorageService.UploadResult> results;
+        private final List<String> failures;
+
+        private BatchResult(List<SupabaseStorageService.UploadResult> results, List<String> failures) {
+            this.results = Collections.unmodifiableList(results);
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        // One entry per input file, null where that upload failed
+        public List<SupabaseStorageService.UploadResult> getResults() {
+            return results;
+        }
+
+        public List<SupabaseStorageService.UploadResult> getUploaded() {
+            List<SupabaseStorageService.UploadResult> uploaded = new ArrayList<>(results.size());
+            for (SupabaseStorageService.UploadResult result : results) {
+                if (result != null) {
+                    uploaded.add(result);
+                }
+            }
+            return uploaded;
+        }
+
+        public List<String> getFailures() {
+            return failures;
+        }
+
+        public boolean hasFailures() {
+            return !failures.isEmpty();
+        }
+    }
+
+    // Shared by the submitting request thread and the workers; abandoned once the request stops waiting
+    private static final class Batch {
+        final SupabaseStorageService.UploadResult[] results;
+        final String[] errors;
+        boolean abandoned;
+
+        Batch(int size) {
+            results = new SupabaseStorageService.UploadResult[size];
+            errors = new String[size];
+        }
+    }
+
+    private final SupabaseStorageService storageService;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final int perRequestLimit;
+    private final long batchTimeoutMs;
+
+    public ImageUploadPipeline(SupabaseStorageService storageService,
+                               MeterRegistry meterRegistry,
+                               @Value("${upload.pipeline.pool-size:8}") int poolSize,
+                               @Value("${upload.pipeline.queue-capacity:64}") int queueCapacity,
+                               @Value("${upload.pipeline.per-request:3}") int perRequestLimit,
+                               @Value("${upload.pipeline.batch-timeout-ms:60000}") long batchTimeoutMs) {
+        this.storageService = storageService;
+        this.meterRegistry = meterRegistry;
+        this.perRequestLimit = Math.max(1, perRequestLimit);
+        this.batchTimeoutMs = batchTimeoutMs;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        int threads = Math.max(1, poolSize);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "image-upload-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("upload.pipeline.tasks", executor, ThreadPoolExecutor::getActiveCount)
+                .tag("state", "active")
+                .register(meterRegistry);
+        Gauge.builder("upload.pipeline.tasks", executor, e -> e.getQueue().size())
+                .tag("state", "queued")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Uploads every file with the given uploader and waits for all of them, up to upload.pipeline.batch-timeout-ms.
+     * The kind ("product", "review", ...) only tags the latency metrics.
+     */
+    public BatchResult uploadAll(String kind, List<MultipartFile> files, Uploader uploader) {
+        Timer.Sample batchSample = Timer.start(meterRegistry);
+        Batch batch = new Batch(files.size());
+        Semaphore inFlight = new Semaphore(perRequestLimit);
+        List<Future<?>> futures = new ArrayList<>(files.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchTimeoutMs);
+
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                int index = i;
+                if (!inFlight.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    fail(batch, index, "Timed out waiting to start upload");
+                    continue;
+                }
+                try {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            uploadOne(kind, files.get(index), uploader, batch, index);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    fail(batch, index, "Upload queue is full, try again shortly");
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            logger.warn("Image upload batch ({}) timed out after {} ms", kind, batchTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // uploadOne records its own failures; anything reaching here is a bug in the uploader wrapper
+            logger.error("Unexpected image upload error ({})", kind, e.getCause());
+        }
+
+        List<SupabaseStorageService.UploadResult> results = new ArrayList<>(files.size());
+        List<String> failures = new ArrayList<>();
+        synchronized (batch) {
+            batch.abandoned = true;
+            for (int i = 0; i < files.size(); i++) {
+                results.add(batch.results[i]);
+                if (batch.results[i] == null) {
+                    String error = batch.errors[i] != null ? batch.errors[i] : "Upload did not finish in time";
+                    failures.add(files.get(i).getOriginalFilename() + ": " + error);
+                }
+            }
+        }
+        for (Future<?> future : futures) {
+            // Drops uploads still queued; running ones see the abandoned flag and delete what they upload
+            future.cancel(false);
+        }
+        batchSample.stop(Timer.builder("upload.pipeline.batch.duration")
+                .tag("kind", kind)
+                .tag("outcome", failures.isEmpty() ? "success" : "partial")
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        return new BatchResult(results, failures);
+    }
+
+    private void uploadOne(String kind, MultipartFile file, Uploader uploader, Batch batch, int index) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        SupabaseStorageService.UploadResult result = null;
+        String error = null;
+        try {
+            result = uploader.upload(file);
+        } catch (Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            logger.warn("Image upload failed ({}, {}): {}", kind, file.getOriginalFilename(), error);
+        }
+        sample.stop(Timer.builder("upload.pipeline.upload.duration")
+                .tag("kind", kind)
+                .tag("outcome", result != null ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+
+        boolean orphaned;
+        synchronized (batch) {
+            orphaned = batch.abandoned;
+            if (!orphaned) {
+                batch.results[index] = result;
+                batch.errors[index] = error;
+            }
+        }
+        if (orphaned && result != null) {
+            rollback(List.of(result));
+        }
+    }
+
+    private static void fail(Batch batch, int index, String error) {
+        synchronized (batch) {
+            batch.errors[index] = error;
+        }
+    }
+
+    /**
+     * Deletes uploaded objects again, e.g. when the rest of the request failed. Errors are logged, not thrown.
+     */
+    public void rollback(List<SupabaseStorageService.UploadResult> uploaded) {
+        for (SupabaseStorageService.UploadResult result : uploaded) {
+            try {
+                storageService.releaseFile(result.getBucket(), result.getPath());
+            } catch (Exception e) {
+                logger.error("Failed to roll back upload {}/{}", result.getBucket(), result.getPath(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
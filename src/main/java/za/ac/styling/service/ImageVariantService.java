@@ -0,0 +1,291 @@
+package za.ac.styling.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import za.ac.styling.domain.ImageVariant;
+import za.ac.styling.domain.ProductImage;
+import za.ac.styling.domain.ReviewImage;
+import za.ac.styling.repository.ProductImageRepository;
+import za.ac.styling.repository.ReviewImageRepository;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the {@link ImageVariant} copies of uploaded product and review images on a small background pool.
+ * <p>
+ * The upload is spooled to a temp file on the request thread, then decoded with ImageIO (subsampled while
+ * reading, so large photos never decode at full resolution), resized in steps, re-encoded (JPEG, or PNG when
+ * the image has transparency) and stored next to the original. Formats ImageIO cannot read, such as WebP,
+ * simply get no variants and keep serving the original.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private interface VariantSink {
+        int save(String thumbnailUrl, String mediumUrl, String largeUrl);
+    }
+
+    private final SupabaseStorageService storageService;
+    private final ProductImageRepository productImageRepository;
+    private final ReviewImageRepository reviewImageRepository;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final boolean enabled;
+    private final long maxPixels;
+    private final float jpegQuality;
+
+    public ImageVariantService(SupabaseStorageService storageService,
+                               ProductImageRepository productImageRepository,
+                               ReviewImageRepository reviewImageRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${image.variants.enabled:true}") boolean enabled,
+                               @Value("${image.variants.threads:2}") int threads,
+                               @Value("${image.variants.queue-capacity:100}") int queueCapacity,
+                               @Value("${image.variants.max-pixels:50000000}") long maxPixels,
+                               @Value("${image.variants.jpeg-quality:0.82}") float jpegQuality) {
+        this.storageService = storageService;
+        this.productImageRepository = productImageRepository;
+        this.reviewImageRepository = reviewImageRepository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        meterRegistry.gauge("image.variants.queued", executor, e -> e.getQueue().size());
+    }
+
+    public void generate(ProductImage image, MultipartFile file) {
+        Long imageId = image.getImageId();
+        schedule(file, storageService.getProductImagesBucket(), image.getBucketPath(),
+                (thumbnail, medium, large) -> productImageRepository.updateVariantUrls(imageId, thumbnail, medium, large));
+    }
+
+    public void generate(ReviewImage image, MultipartFile file) {
+        Long imageId = image.getImageId();
+        schedule(file, storageService.getReviewImagesBucket(), image.getBucketPath(),
+                (thumbnail, medium, large) -> reviewImageRepository.updateVariantUrls(imageId, thumbnail, medium, large));
+    }
+
+    // Must be called on the request thread: the multipart data is gone once the request completes
+    private void schedule(MultipartFile file, String bucket, String bucketPath, VariantSink sink) {
+        if (!enabled || bucketPath == null || file == null || file.isEmpty()) {
+            return;
+        }
+        Path spool;
+        try {
+            spool = Files.createTempFile("image-variant-", ".upload");
+            file.transferTo(spool);
+        } catch (IOException e) {
+            logger.warn("Could not spool {} for variant generation: {}", bucketPath, e.getMessage());
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                String outcome = "failure";
+                try {
+                    outcome = process(spool, bucket, bucketPath, sink);
+                } catch (Exception e) {
+                    logger.error("Variant generation failed for {}/{}", bucket, bucketPath, e);
+                } finally {
+                    deleteQuietly(spool);
+                    sample.stop(Timer.builder("image.variants.duration")
+                            .tag("outcome", outcome)
+                            .register(meterRegistry));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Variant queue full, serving the original only for {}/{}", bucket, bucketPath);
+            deleteQuietly(spool);
+        }
+    }
+
+    private String process(Path spool, String bucket, String bucketPath, VariantSink sink) throws IOException {
+        Map<ImageVariant, byte[]> encoded = new EnumMap<>(ImageVariant.class);
+        boolean png;
+        try (ImageInputStream in = ImageIO.createImageInputStream(spool.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                return "unsupported";
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    logger.warn("Skipping variants for {}: {}x{} exceeds image.variants.max-pixels", bucketPath, width, height);
+                    return "too-large";
+                }
+
+                // Decode at no less than twice the largest variant; the resize steps below do the rest
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, width / (ImageVariant.LARGE.getWidth() * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+
+                png = decoded.getColorModel().hasAlpha();
+                for (ImageVariant variant : ImageVariant.values()) {
+                    if (width <= variant.getWidth()) {
+                        continue;
+                    }
+                    int targetHeight = Math.max(1, (int) Math.round((double) height * variant.getWidth() / width));
+                    BufferedImage resized = resize(decoded, variant.getWidth(), targetHeight, png);
+                    encoded.put(variant, png ? encodePng(resized) : encodeJpeg(resized));
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+        if (encoded.isEmpty()) {
+            return "small";
+        }
+
+        String base = bucketPath.contains(".") ? bucketPath.substring(0, bucketPath.lastIndexOf('.')) : bucketPath;
+        String extension = png ? ".png" : ".jpg";
+        Map<ImageVariant, SupabaseStorageService.UploadResult> stored = new EnumMap<>(ImageVariant.class);
+        try {
+            for (Map.Entry<ImageVariant, byte[]> entry : encoded.entrySet()) {
+                String path = base + "_" + entry.getKey().suffix() + extension;
+                stored.put(entry.getKey(), storageService.uploadBytes(entry.getValue(), bucket, path,
+                        png ? "image/png" : "image/jpeg"));
+            }
+        } catch (IOException e) {
+            release(bucket, bucketPath, stored.values(), 1);
+            throw e;
+        }
+
+        int updated = sink.save(urlOf(stored, ImageVariant.THUMBNAIL), urlOf(stored, ImageVariant.MEDIUM),
+                urlOf(stored, ImageVariant.LARGE));
+        if (updated == 0) {
+            // The image was deleted while its variants were being generated
+            release(bucket, bucketPath, stored.values(), 0);
+            return "orphaned";
+        }
+        return "success";
+    }
+
+    private static BufferedImage resize(BufferedImage source, int targetWidth, int targetHeight, boolean alpha) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        // Halve repeatedly so bilinear sampling never skips source pixels
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                if (!alpha) {
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, width, height);
+                }
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static String urlOf(Map<ImageVariant, SupabaseStorageService.UploadResult> stored, ImageVariant variant) {
+        SupabaseStorageService.UploadResult result = stored.get(variant);
+        return result != null ? result.getUrl() : null;
+    }
+
+    // Deduplicated images share one object and therefore its variant paths, so another image may own them too
+    private void release(String bucket, String bucketPath, Collection<SupabaseStorageService.UploadResult> results,
+                         int heldByImage) {
+        List<String> paths = new ArrayList<>(results.size());
+        for (SupabaseStorageService.UploadResult result : results) {
+            paths.add(result.getPath());
+        }
+        try {
+            storageService.releaseVariants(bucket, bucketPath, paths, heldByImage);
+        } catch (RuntimeException e) {
+            logger.warn("Could not release {} orphaned image variants: {}", paths.size(), e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.debug("Could not delete temp file {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
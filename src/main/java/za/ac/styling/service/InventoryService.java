@@ -14,6 +14,7 @@ import java.util.List;
 public class InventoryService {
 
     private final ProductColourSizeRepository productColourSizeRepository;
+    private final LowStockAlertAggregator lowStockAlertAggregator;
 
     public boolean checkStockAvailability(List<OrderItem> items) {
         for (OrderItem item : items) {
@@ -46,6 +47,7 @@ public class InventoryService {
 
             size.setReservedQuantity(size.getReservedQuantity() + item.getQuantity());
             productColourSizeRepository.save(size);
+            lowStockAlertAggregator.record(item.getProduct(), size);
 
             System.out.println("Reserved " + item.getQuantity() + " units of " + 
                 item.getProduct().getName() + " (Size: " + size.getSizeName() + ")");
@@ -61,6 +63,7 @@ public class InventoryService {
             size.setStockQuantity(size.getStockQuantity() - item.getQuantity());
 
             productColourSizeRepository.save(size);
+            lowStockAlertAggregator.record(item.getProduct(), size);
 
             System.out.println("Committed " + item.getQuantity() + " units of " + 
                 item.getProduct().getName() + " (Size: " + size.getSizeName() + 
@@ -76,6 +79,7 @@ public class InventoryService {
             size.setReservedQuantity(Math.max(0, size.getReservedQuantity() - item.getQuantity()));
 
             productColourSizeRepository.save(size);
+            lowStockAlertAggregator.record(item.getProduct(), size);
 
             System.out.println("Released " + item.getQuantity() + " units of " + 
                 item.getProduct().getName() + " (Size: " + size.getSizeName() + ")");
@@ -90,6 +94,7 @@ public class InventoryService {
             size.setStockQuantity(size.getStockQuantity() + item.getQuantity());
 
             productColourSizeRepository.save(size);
+            lowStockAlertAggregator.record(item.getProduct(), size);
 
             System.out.println("Returned " + item.getQuantity() + " units of " + 
                 item.getProduct().getName() + " (Size: " + size.getSizeName() + 
@@ -0,0 +1,126 @@
+package za.ac.styling.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import za.ac.styling.domain.Product;
+import za.ac.styling.domain.ProductColourSize;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class LowStockAlertAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LowStockAlertAggregator.class);
+
+    public record LowStockAlert(Integer sizeId, String productName, String sku, String sizeName,
+                                String categoryName, int currentStock, int reorderLevel) {
+    }
+
+    private final EmailService emailService;
+
+    // sizeIds that already alerted (or are waiting in the digest) and stay silent until restocked
+    private final Set<Integer> alerted = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, LowStockAlert> pending = new ConcurrentHashMap<>();
+
+    @Value("${inventory.low-stock.digest-interval-ms:300000}")
+    private long digestIntervalMs;
+
+    @Value("${inventory.low-stock.digest-max-items:50}")
+    private int digestMaxItems;
+
+    private volatile long lastDigestAt = System.currentTimeMillis();
+
+    public LowStockAlertAggregator(EmailService emailService) {
+        this.emailService = emailService;
+    }
+
+    public void record(Product product, ProductColourSize size) {
+        if (product == null || size == null || size.getSizeId() == null) {
+            return;
+        }
+        int available = size.getStockQuantity() - size.getReservedQuantity();
+        LowStockAlert snapshot = available <= size.getReorderLevel()
+                ? new LowStockAlert(size.getSizeId(), product.getName(), product.getSku(), size.getSizeName(),
+                        product.getCategory() != null ? product.getCategory().getName() : null,
+                        Math.max(0, available), size.getReorderLevel())
+                : null;
+
+        // Only act on stock levels that actually commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(size.getSizeId(), snapshot);
+                }
+            });
+        } else {
+            apply(size.getSizeId(), snapshot);
+        }
+    }
+
+    private void apply(Integer sizeId, LowStockAlert snapshot) {
+        if (snapshot == null) {
+            if (alerted.remove(sizeId)) {
+                pending.remove(sizeId);
+            }
+            return;
+        }
+        if (alerted.add(sizeId)) {
+            pending.put(sizeId, snapshot);
+        } else {
+            pending.computeIfPresent(sizeId, (id, existing) -> snapshot);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.low-stock.check-interval-ms:10000}")
+    public void flushIfDue() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (pending.size() >= digestMaxItems || now - lastDigestAt >= digestIntervalMs) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() {
+        List<LowStockAlert> digest = new ArrayList<>(pending.size());
+        for (Integer sizeId : new ArrayList<>(pending.keySet())) {
+            LowStockAlert alert = pending.remove(sizeId);
+            if (alert != null) {
+                digest.add(alert);
+            }
+        }
+        lastDigestAt = System.currentTimeMillis();
+        if (digest.isEmpty()) {
+            return;
+        }
+
+        digest.sort(Comparator.comparingInt(LowStockAlert::currentStock)
+                .thenComparing(LowStockAlert::productName, Comparator.nullsLast(Comparator.naturalOrder())));
+        try {
+            emailService.sendLowStockDigest(digest);
+        } catch (Exception e) {
+            logger.error("Failed to send low stock digest ({} items), requeueing: {}", digest.size(), e.getMessage());
+            for (LowStockAlert alert : digest) {
+                if (alerted.contains(alert.sizeId())) {
+                    pending.putIfAbsent(alert.sizeId(), alert);
+                }
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+}
@@ -1,32 +1,69 @@
 package za.ac.styling.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
-import org.springframework.http.*;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class MiljetEmailClient {
     private static final Logger logger = LoggerFactory.getLogger(MiljetEmailClient.class);
-    private final Environment env;
-    private final RestTemplate restTemplate;
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final boolean configured;
+    private final String url;
+    private final String authorization;
+    private final ObjectNode from;
 
     @Autowired
-    public MiljetEmailClient(Environment env) {
-        this.env = env;
-        this.restTemplate = new RestTemplate();
-    }
+    public MiljetEmailClient(Environment env, OkHttpClient httpClient, ObjectMapper objectMapper) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
 
-    public boolean isConfigured() {
         String apiKey = env.getProperty("mailjet.api.key");
         String apiSecret = env.getProperty("mailjet.api.secret");
         boolean enabled = "true".equalsIgnoreCase(env.getProperty("mailjet.enabled", "true"));
-        return enabled && apiKey != null && !apiKey.isBlank() && apiSecret != null && !apiSecret.isBlank();
+        boolean hasCredentials = apiKey != null && !apiKey.isBlank() && apiSecret != null && !apiSecret.isBlank();
+        this.configured = enabled && hasCredentials;
+
+        this.url = env.getProperty("mailjet.api.url", "https://api.mailjet.com/v3.1/send");
+        this.authorization = hasCredentials
+                ? "Basic " + Base64.getEncoder().encodeToString((apiKey + ":" + apiSecret).getBytes(StandardCharsets.UTF_8))
+                : null;
+
+        String fromEmail = env.getProperty("mail.sender.email");
+        if (fromEmail == null || fromEmail.isBlank()) {
+            fromEmail = env.getProperty("spring.mail.from", "hloniyacho@gmail.com");
+        }
+        String fromName = env.getProperty("mail.sender.name", "MAISON LUXE");
+        this.from = objectMapper.createObjectNode()
+                .put("Email", fromEmail)
+                .put("Name", fromName);
+
+        logger.info("Mailjet client - URL: {}, From: {} <{}>, configured: {}", url, fromName, fromEmail, configured);
+    }
+
+    public boolean isConfigured() {
+        return configured;
     }
 
     public void sendEmail(String to, String subject, String html) {
@@ -34,69 +71,98 @@ public class MiljetEmailClient {
     }
 
     public void sendEmail(String to, String toName, String subject, String html) {
-        String apiKey = env.getProperty("mailjet.api.key");
-        String apiSecret = env.getProperty("mailjet.api.secret");
+        Request request = buildRequest(to, toName, subject, html);
 
-        if (apiKey == null || apiKey.isBlank() || apiSecret == null || apiSecret.isBlank()) {
-            logger.error("Mailjet API credentials not configured. Check 'mailjet.api.key' and 'mailjet.api.secret'");
-            throw new IllegalStateException(
-                    "Mailjet API credentials not configured. Both API key and secret are required.");
+        try (Response resp = httpClient.newCall(request).execute()) {
+            handleResponse(to, resp);
+        } catch (Exception e) {
+            logger.error("Failed to send email via Mailjet to {}: {} - {}", to, e.getClass().getSimpleName(), e.getMessage(), e);
+            throw new RuntimeException("Mailjet send failed: " + e.getMessage(), e);
         }
+    }
 
-        String url = env.getProperty("mailjet.api.url", "https://api.mailjet.com/v3.1/send");
+    public CompletableFuture<Void> sendEmailAsync(String to, String subject, String html) {
+        return sendEmailAsync(to, null, subject, html);
+    }
 
-        String fromEmail = env.getProperty("mail.sender.email");
-        if (fromEmail == null || fromEmail.isBlank()) {
-            fromEmail = env.getProperty("spring.mail.from", "hloniyacho@gmail.com");
+    public CompletableFuture<Void> sendEmailAsync(String to, String toName, String subject, String html) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Request request;
+        try {
+            request = buildRequest(to, toName, subject, html);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return result;
         }
-        String fromName = env.getProperty("mail.sender.name", "MAISON LUXE");
-
-        logger.info("Mailjet configuration - URL: {}, From: {} <{}>, To: {} <{}>", url, fromName, fromEmail, toName != null ? toName : "User", to);
 
-        String credentials = apiKey + ":" + apiSecret;
-        String encodedAuth = Base64.getEncoder().encodeToString(credentials.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        Call call = httpClient.newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call c, Response resp) {
+                try (resp) {
+                    handleResponse(to, resp);
+                    result.complete(null);
+                } catch (Exception e) {
+                    logger.error("Failed to send email via Mailjet to {}: {}", to, e.getMessage());
+                    result.completeExceptionally(new RuntimeException("Mailjet send failed: " + e.getMessage(), e));
+                }
+            }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("Authorization", "Basic " + encodedAuth);
+            @Override
+            public void onFailure(Call c, IOException e) {
+                logger.error("Failed to send email via Mailjet to {}: {} - {}", to, e.getClass().getSimpleName(), e.getMessage());
+                result.completeExceptionally(new RuntimeException("Mailjet send failed: " + e.getMessage(), e));
+            }
+        });
+        // Cancelling the returned future aborts the in-flight HTTP call.
+        result.whenComplete((ignored, error) -> {
+            if (result.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return result;
+    }
 
-        Map<String, Object> payload = new HashMap<>();
-        List<Map<String, Object>> messages = new ArrayList<>();
+    private Request buildRequest(String to, String toName, String subject, String html) {
+        if (authorization == null) {
+            logger.error("Mailjet API credentials not configured. Check 'mailjet.api.key' and 'mailjet.api.secret'");
+            throw new IllegalStateException(
+                    "Mailjet API credentials not configured. Both API key and secret are required.");
+        }
 
-        Map<String, Object> message = new HashMap<>();
-        message.put("From", Map.of(
-                "Email", fromEmail,
-                "Name", fromName));
+        ObjectNode payload = objectMapper.createObjectNode();
+        ObjectNode message = payload.putArray("Messages").addObject();
+        message.set("From", from);
 
-        Map<String, String> recipient = new HashMap<>();
-        recipient.put("Email", to);
+        ArrayNode recipients = message.putArray("To");
+        ObjectNode recipient = recipients.addObject().put("Email", to);
         if (toName != null && !toName.isBlank()) {
             recipient.put("Name", toName);
         }
-        message.put("To", List.of(recipient));
-
         message.put("Subject", subject);
         message.put("HTMLPart", html);
 
-        messages.add(message);
-        payload.put("Messages", messages);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Mailjet payload serialization failed: " + e.getMessage(), e);
+        }
 
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(payload, headers);
+        return new Request.Builder()
+                .url(url)
+                .header("Authorization", authorization)
+                .post(RequestBody.create(body, JSON))
+                .build();
+    }
 
-        try {
-            logger.info("Sending email via Mailjet API to: {}", to);
-            ResponseEntity<String> resp = restTemplate.exchange(url, HttpMethod.POST, request, String.class);
-
-            if (resp.getStatusCode().is2xxSuccessful()) {
-                logger.info("✅ Mailjet email sent successfully to {} (status={})", to, resp.getStatusCode().value());
-            } else {
-                logger.error("Mailjet API error - Status: {}, Body: {}", resp.getStatusCode().value(), resp.getBody());
-                throw new RuntimeException(
-                        "Mailjet API returned status: " + resp.getStatusCode().value() + " body=" + resp.getBody());
-            }
-        } catch (Exception e) {
-            logger.error("Failed to send email via Mailjet to {}: {} - {}", to, e.getClass().getSimpleName(), e.getMessage(), e);
-            throw new RuntimeException("Mailjet send failed: " + e.getMessage(), e);
+    private void handleResponse(String to, Response resp) throws IOException {
+        if (resp.isSuccessful()) {
+            logger.info("✅ Mailjet email sent successfully to {} (status={}, protocol={})", to, resp.code(), resp.protocol());
+            return;
         }
+        String body = resp.body() != null ? resp.body().string() : "";
+        logger.error("Mailjet API error - Status: {}, Body: {}", resp.code(), body);
+        throw new RuntimeException("Mailjet API returned status: " + resp.code() + " body=" + body);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package za.ac.styling.service;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Byte transport to an object store, selected with storage.backend (supabase or local).
+ * <p>
+ * Implementations only move bytes; validation, content deduplication and signed-URL caching live in
+ * {@link SupabaseStorageService}. Uploads overwrite an existing object at the same path, and deleting an
+ * object that does not exist is not an error.
+ */
+public interface ObjectStorage {
+
+    // content may be opened more than once (e.g. to retry or resume), and must yield the same bytes each time
+    void upload(String bucket, String path, InputStreamSource content, long size, String contentType)
+            throws IOException;
+
+    // Writes the object into out and returns its content type; a missing object throws FileNotFoundException
+    String download(String bucket, String path, OutputStream out) throws IOException;
+
+    void delete(String bucket, String path) throws IOException;
+
+    void deleteAll(String bucket, Collection<String> paths) throws IOException;
+
+    String sign(String bucket, String path, int expiresInSeconds) throws IOException;
+
+    // path -> signed URL; paths that could not be signed are left out
+    Map<String, String> signAll(String bucket, Collection<String> paths, int expiresInSeconds) throws IOException;
+
+    String publicUrl(String bucket, String path);
+}
@@ -28,6 +28,5 @@ public interface OrderService extends IService<Order, Integer> {
 
     double calculateOrderTotal(Integer orderId);
 
-    Order createOrderWithPromo(Order order, java.util.Map<Integer, Integer> productQuantities, String promoCode,
-            Integer userId);
+    Order createOrderWithPromo(Order order, PriceBreakdown pricing, PromoEvaluation promo, Integer userId);
 }
@@ -0,0 +1,147 @@
+package za.ac.styling.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Line totals and order totals for one cart, in cents. Built by {@link PricingEngine} in a single pass and
+ * passed along (cart view, promo evaluation, order creation) instead of recomputing the same sums.
+ */
+public final class PriceBreakdown {
+
+    private int[] productIds;
+    private int[] quantities;
+    private long[] unitPriceCents;
+    private long[] lineTotalCents;
+    private int lineCount;
+
+    private long subtotalCents;
+    private long shippingCents;
+    private long taxCents;
+    private long discountCents;
+    private long totalCents;
+
+    public PriceBreakdown() {
+        this(8);
+    }
+
+    public PriceBreakdown(int capacity) {
+        int size = Math.max(1, capacity);
+        productIds = new int[size];
+        quantities = new int[size];
+        unitPriceCents = new long[size];
+        lineTotalCents = new long[size];
+    }
+
+    void addLine(int productId, int quantity, long unitCents) {
+        if (lineCount == productIds.length) {
+            int size = lineCount * 2;
+            productIds = Arrays.copyOf(productIds, size);
+            quantities = Arrays.copyOf(quantities, size);
+            unitPriceCents = Arrays.copyOf(unitPriceCents, size);
+            lineTotalCents = Arrays.copyOf(lineTotalCents, size);
+        }
+        long lineCents = unitCents * quantity;
+        productIds[lineCount] = productId;
+        quantities[lineCount] = quantity;
+        unitPriceCents[lineCount] = unitCents;
+        lineTotalCents[lineCount] = lineCents;
+        lineCount++;
+        subtotalCents += lineCents;
+    }
+
+    void setCharges(long shippingCents, long taxCents, long discountCents) {
+        this.shippingCents = shippingCents;
+        this.taxCents = taxCents;
+        this.discountCents = discountCents;
+        this.totalCents = subtotalCents + shippingCents + taxCents - discountCents;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public int getProductId(int line) {
+        return productIds[line];
+    }
+
+    public int getQuantity(int line) {
+        return quantities[line];
+    }
+
+    public long getUnitPriceCents(int line) {
+        return unitPriceCents[line];
+    }
+
+    public long getLineTotalCents(int line) {
+        return lineTotalCents[line];
+    }
+
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    public long getSubtotalCents(IntPredicate productFilter) {
+        long sum = 0;
+        for (int i = 0; i < lineCount; i++) {
+            if (productFilter.test(productIds[i])) {
+                sum += lineTotalCents[i];
+            }
+        }
+        return sum;
+    }
+
+    public long getShippingCents() {
+        return shippingCents;
+    }
+
+    public long getTaxCents() {
+        return taxCents;
+    }
+
+    public long getDiscountCents() {
+        return discountCents;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    public int getTotalQuantity() {
+        int total = 0;
+        for (int i = 0; i < lineCount; i++) {
+            total += quantities[i];
+        }
+        return total;
+    }
+
+    public Map<Integer, Integer> toProductQuantities() {
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < lineCount; i++) {
+            result.merge(productIds[i], quantities[i], Integer::sum);
+        }
+        return result;
+    }
+
+    public double getSubtotal() {
+        return PricingEngine.toAmount(subtotalCents);
+    }
+
+    public double getShipping() {
+        return PricingEngine.toAmount(shippingCents);
+    }
+
+    public double getTax() {
+        return PricingEngine.toAmount(taxCents);
+    }
+
+    public double getDiscount() {
+        return PricingEngine.toAmount(discountCents);
+    }
+
+    public double getTotal() {
+        return PricingEngine.toAmount(totalCents);
+    }
+}
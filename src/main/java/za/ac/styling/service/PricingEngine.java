@@ -0,0 +1,82 @@
+package za.ac.styling.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import za.ac.styling.domain.CartItem;
+import za.ac.styling.domain.ShippingMethod;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntToLongFunction;
+
+@Component
+public class PricingEngine {
+
+    public static final long NO_PRICE = -1L;
+
+    // Tax in basis points of the subtotal (1500 = 15% VAT)
+    private final long taxRateBps;
+
+    public PricingEngine(@Value("${pricing.tax-rate-bps:1500}") long taxRateBps) {
+        this.taxRateBps = taxRateBps;
+    }
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    // Rounds half up; percent is e.g. 12.5 for 12.5%
+    public static long percentOf(long cents, double percent) {
+        return applyBps(cents, Math.round(percent * 100));
+    }
+
+    private static long applyBps(long cents, long bps) {
+        return (cents * bps + 5_000) / 10_000;
+    }
+
+    public PriceBreakdown priceCart(List<CartItem> items, ShippingMethod shippingMethod) {
+        PriceBreakdown breakdown = new PriceBreakdown(items != null ? items.size() : 0);
+        if (items != null) {
+            for (CartItem item : items) {
+                if (item.getProduct() == null || item.getColour() == null || item.getSize() == null) {
+                    continue;
+                }
+                breakdown.addLine(item.getProduct().getProductId(), item.getQuantity(),
+                        toCents(item.getProduct().getBasePrice()));
+            }
+        }
+        return finish(breakdown, shippingMethod != null ? toCents(shippingMethod.getCost()) : 0L);
+    }
+
+    // unitPriceCents returns NO_PRICE for products that cannot be priced; those lines are skipped
+    public PriceBreakdown priceProducts(Map<Integer, Integer> quantities, IntToLongFunction unitPriceCents) {
+        PriceBreakdown breakdown = new PriceBreakdown(quantities != null ? quantities.size() : 0);
+        if (quantities != null) {
+            for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) {
+                    continue;
+                }
+                long unit = unitPriceCents.applyAsLong(entry.getKey());
+                if (unit != NO_PRICE) {
+                    breakdown.addLine(entry.getKey(), entry.getValue(), unit);
+                }
+            }
+        }
+        return finish(breakdown, 0L);
+    }
+
+    public PriceBreakdown applyDiscount(PriceBreakdown breakdown, long discountCents) {
+        long discount = Math.max(0L, Math.min(discountCents, breakdown.getSubtotalCents()));
+        breakdown.setCharges(breakdown.getShippingCents(), breakdown.getTaxCents(), discount);
+        return breakdown;
+    }
+
+    private PriceBreakdown finish(PriceBreakdown breakdown, long shippingCents) {
+        breakdown.setCharges(shippingCents, applyBps(breakdown.getSubtotalCents(), taxRateBps), 0L);
+        return breakdown;
+    }
+}
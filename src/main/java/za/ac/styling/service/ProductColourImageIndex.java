@@ -0,0 +1,107 @@
+package za.ac.styling.service;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import za.ac.styling.domain.Product;
+import za.ac.styling.domain.ProductColour;
+import za.ac.styling.domain.ProductImage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+public class ProductColourImageIndex {
+
+    public static final String CACHE = "productColourImages";
+
+    // Immutable colourId -> image URL table for one product; lookups are a binary search over ints
+    public static final class ColourImages {
+        private final int[] colourIds;
+        private final String[] imageUrls;
+        private final String fallbackUrl;
+
+        ColourImages(int[] colourIds, String[] imageUrls, String fallbackUrl) {
+            this.colourIds = colourIds;
+            this.imageUrls = imageUrls;
+            this.fallbackUrl = fallbackUrl;
+        }
+
+        public String resolve(Integer colourId) {
+            if (colourId != null) {
+                int index = Arrays.binarySearch(colourIds, colourId);
+                if (index >= 0) {
+                    return imageUrls[index];
+                }
+            }
+            return fallbackUrl;
+        }
+    }
+
+    @Cacheable(value = CACHE, key = "#product.productId")
+    public ColourImages forProduct(Product product) {
+        return build(product, product.getImages());
+    }
+
+    @CachePut(value = CACHE, key = "#product.productId")
+    public ColourImages rebuild(Product product, Collection<ProductImage> images) {
+        return build(product, images);
+    }
+
+    @CacheEvict(value = CACHE, key = "#productId")
+    public void evict(Integer productId) {
+    }
+
+    private static ColourImages build(Product product, Collection<ProductImage> images) {
+        List<ProductImage> ordered = images != null ? new ArrayList<>(images) : new ArrayList<>();
+        ordered.sort(Comparator.comparingInt(ProductImage::getDisplayOrder));
+
+        String[] altTexts = new String[ordered.size()];
+        for (int i = 0; i < ordered.size(); i++) {
+            String alt = ordered.get(i).getAltText();
+            altTexts[i] = alt != null ? alt.toLowerCase(Locale.ROOT) : null;
+        }
+
+        String fallbackUrl = null;
+        if (product.getPrimaryImage() != null) {
+            fallbackUrl = product.getPrimaryImage().getImageUrl();
+        }
+        if (fallbackUrl == null && !ordered.isEmpty()) {
+            fallbackUrl = ordered.get(0).getImageUrl();
+        }
+
+        List<ProductColour> colours = product.getColours() != null
+                ? product.getColours().stream()
+                        .filter(colour -> colour.getColourId() != null)
+                        .sorted(Comparator.comparingInt(ProductColour::getColourId))
+                        .toList()
+                : List.of();
+
+        int[] colourIds = new int[colours.size()];
+        String[] imageUrls = new String[colours.size()];
+        for (int c = 0; c < colours.size(); c++) {
+            ProductColour colour = colours.get(c);
+            colourIds[c] = colour.getColourId();
+            imageUrls[c] = fallbackUrl;
+            if (colour.getName() == null) {
+                continue;
+            }
+            String name = colour.getName().toLowerCase(Locale.ROOT);
+            for (int i = 0; i < altTexts.length; i++) {
+                if (altTexts[i] != null && altTexts[i].contains(name)) {
+                    String url = ordered.get(i).getImageUrl();
+                    if (url != null) {
+                        imageUrls[c] = url;
+                    }
+                    break;
+                }
+            }
+        }
+        return new ColourImages(colourIds, imageUrls, fallbackUrl);
+    }
+}
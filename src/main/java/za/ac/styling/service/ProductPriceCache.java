@@ -0,0 +1,68 @@
+package za.ac.styling.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import za.ac.styling.repository.ProductRepository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+@Component
+public class ProductPriceCache {
+
+    private final ProductRepository productRepository;
+
+    // productId -> base price in cents, or PricingEngine.NO_PRICE for unknown products
+    private final Cache<Integer, Long> prices;
+
+    public ProductPriceCache(ProductRepository productRepository,
+                             @Value("${pricing.price-cache.max-size:10000}") long maxSize,
+                             @Value("${pricing.price-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.productRepository = productRepository;
+        this.prices = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public long priceCents(Integer productId) {
+        if (productId == null) {
+            return PricingEngine.NO_PRICE;
+        }
+        return prices.get(productId, id -> productRepository.findBasePriceById(id)
+                .map(PricingEngine::toCents)
+                .orElse(PricingEngine.NO_PRICE));
+    }
+
+    // Loads every uncached id with a single query
+    public Map<Integer, Long> priceCents(Collection<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return Map.of();
+        }
+        return prices.getAll(productIds.stream().filter(Objects::nonNull).toList(), this::loadPrices);
+    }
+
+    private Map<Integer, Long> loadPrices(Set<? extends Integer> productIds) {
+        Map<Integer, Long> loaded = new HashMap<>();
+        for (Object[] row : productRepository.findBasePricesByIds(List.copyOf(productIds))) {
+            loaded.put((Integer) row[0], PricingEngine.toCents(((Number) row[1]).doubleValue()));
+        }
+        for (Integer productId : productIds) {
+            loaded.putIfAbsent(productId, PricingEngine.NO_PRICE);
+        }
+        return loaded;
+    }
+
+    public void evict(Integer productId) {
+        if (productId != null) {
+            prices.invalidate(productId);
+        }
+    }
+}
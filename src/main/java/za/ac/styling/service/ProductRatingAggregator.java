@@ -0,0 +1,143 @@
+package za.ac.styling.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Per-product {@link RatingSummary}, persisted as one product_rating_summary row and cached in memory.
+ * <p>
+ * A row is seeded from the product's reviews the first time it is needed. After that, review writes add
+ * their star delta to the row in the same transaction, so product pages read one row instead of grouping
+ * the reviews. The writing transaction must have flushed its review change first: when it is the one that
+ * seeds the row, the seed already counts that change. Cache entries are adjusted once the write commits,
+ * and they expire after review.rating-summary.ttl-minutes so changes made by other instances are picked up.
+ */
+@Component
+public class ProductRatingAggregator {
+
+    private static final String SEED_COLUMNS = """
+            INSERT INTO product_rating_summary (product_id, stars_1, stars_2, stars_3, stars_4, stars_5, updated_at)
+            SELECT ?, COUNT(*) FILTER (WHERE rating = 1), COUNT(*) FILTER (WHERE rating = 2),
+                COUNT(*) FILTER (WHERE rating = 3), COUNT(*) FILTER (WHERE rating = 4),
+                COUNT(*) FILTER (WHERE rating = 5), now()
+            FROM review WHERE product_product_id = ?
+            """;
+
+    private static final String SEED_SQL = SEED_COLUMNS + "ON CONFLICT (product_id) DO NOTHING";
+
+    // Seeds a missing row from the reviews (which already include this transaction's change) or adds the delta
+    private static final String ADJUST_SQL = SEED_COLUMNS + """
+            ON CONFLICT (product_id) DO UPDATE SET
+                stars_1 = GREATEST(product_rating_summary.stars_1 + ?, 0),
+                stars_2 = GREATEST(product_rating_summary.stars_2 + ?, 0),
+                stars_3 = GREATEST(product_rating_summary.stars_3 + ?, 0),
+                stars_4 = GREATEST(product_rating_summary.stars_4 + ?, 0),
+                stars_5 = GREATEST(product_rating_summary.stars_5 + ?, 0),
+                updated_at = now()""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<Integer, RatingSummary> summaries;
+
+    public ProductRatingAggregator(JdbcTemplate jdbcTemplate,
+                                   @Value("${review.rating-summary.max-products:10000}") long maxProducts,
+                                   @Value("${review.rating-summary.ttl-minutes:60}") long ttlMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.summaries = Caffeine.newBuilder()
+                .maximumSize(maxProducts)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    public RatingSummary getSummary(Integer productId) {
+        return summaries.get(productId, this::load);
+    }
+
+    private RatingSummary load(Integer productId) {
+        long[] histogram = read(productId);
+        if (histogram == null) {
+            jdbcTemplate.update(SEED_SQL, productId, productId);
+            histogram = read(productId);
+        }
+        return histogram != null ? new RatingSummary(productId, histogram) : RatingSummary.empty(productId);
+    }
+
+    private long[] read(Integer productId) {
+        List<long[]> rows = jdbcTemplate.query(
+                "SELECT stars_1, stars_2, stars_3, stars_4, stars_5 FROM product_rating_summary WHERE product_id = ?",
+                (rs, rowNum) -> new long[] { rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5) },
+                productId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Records a review moving from (oldProductId, oldRating) to (newProductId, newRating); pass null ids for
+     * creates and deletes. Must run in the transaction that changed the review, after it has been flushed.
+     * The stored row changes straight away and the cache once the transaction commits.
+     */
+    public void reviewChanged(Integer oldProductId, int oldRating, Integer newProductId, int newRating) {
+        if (Objects.equals(oldProductId, newProductId) && oldRating == newRating) {
+            return;
+        }
+        if (Objects.equals(oldProductId, newProductId)) {
+            store(oldProductId, oldRating, newRating);
+        } else {
+            store(oldProductId, oldRating, 0);
+            store(newProductId, 0, newRating);
+        }
+        Runnable apply = () -> {
+            if (Objects.equals(oldProductId, newProductId)) {
+                adjust(oldProductId, oldRating, newRating);
+            } else {
+                adjust(oldProductId, oldRating, 0);
+                adjust(newProductId, 0, newRating);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        apply.run();
+                    }
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private void store(Integer productId, int removedRating, int addedRating) {
+        if (productId == null) {
+            return;
+        }
+        Object[] args = new Object[7];
+        args[0] = productId;
+        args[1] = productId;
+        for (int stars = 1; stars <= 5; stars++) {
+            args[1 + stars] = (stars == addedRating ? 1 : 0) - (stars == removedRating ? 1 : 0);
+        }
+        jdbcTemplate.update(ADJUST_SQL, args);
+    }
+
+    // Unseeded products are left alone; they load the committed state on first read
+    private void adjust(Integer productId, int removedRating, int addedRating) {
+        if (productId != null) {
+            summaries.asMap().computeIfPresent(productId, (id, summary) -> summary.with(removedRating, addedRating));
+        }
+    }
+
+    public void evict(Integer productId) {
+        if (productId != null) {
+            summaries.invalidate(productId);
+        }
+    }
+}
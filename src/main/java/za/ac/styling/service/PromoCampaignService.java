@@ -0,0 +1,196 @@
+package za.ac.styling.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import za.ac.styling.domain.PromoCode;
+import za.ac.styling.repository.ProductRepository;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Issues a campaign's worth of single-use promo codes (usage limit 1, one use per user) sharing the same
+ * discount rule. Codes are random and upper case, written in multi-row INSERT batches that skip any code
+ * already taken in any letter case, and a batch that collides is simply regenerated.
+ * <p>
+ * Each batch commits on its own and is handed to the caller's sink straight away, so a large campaign never
+ * holds one long transaction or keeps its codes in memory. If generation stops part way, the batches already
+ * handed out stay issued.
+ */
+@Service
+public class PromoCampaignService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromoCampaignService.class);
+
+    // No 0/O or 1/I/L, so codes survive being read aloud or retyped
+    private static final char[] ALPHABET = "23456789ABCDEFGHJKMNPQRSTUVWXYZ".toCharArray();
+    private static final int MAX_ATTEMPTS_PER_BATCH = 5;
+
+    public record Campaign(String name, String prefix, int count, int randomLength, PromoCode rule,
+                           List<Integer> productIds) {
+    }
+
+    @FunctionalInterface
+    public interface CodeSink {
+        void accept(List<String> codes) throws IOException;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final PromoCodeBloomFilter promoCodeBloomFilter;
+    private final PromoRuleCache promoRuleCache;
+    private final TransactionTemplate transactionTemplate;
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${promo.campaign.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${promo.campaign.max-codes:500000}")
+    private int maxCodes;
+
+    public PromoCampaignService(JdbcTemplate jdbcTemplate, ProductRepository productRepository,
+                                PromoCodeBloomFilter promoCodeBloomFilter, PromoRuleCache promoRuleCache,
+                                PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productRepository = productRepository;
+        this.promoCodeBloomFilter = promoCodeBloomFilter;
+        this.promoRuleCache = promoRuleCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Validates a campaign request before anything is written.
+     */
+    public Campaign plan(String campaign, int count, int randomLength, PromoCode rule, List<Integer> productIds) {
+        if (campaign == null || !campaign.matches("[A-Za-z0-9]{1,20}")) {
+            throw new IllegalArgumentException("Campaign must be 1-20 letters or digits");
+        }
+        if (count < 1 || count > maxCodes) {
+            throw new IllegalArgumentException("Code count must be between 1 and " + maxCodes);
+        }
+        if (randomLength < 6 || randomLength > 16) {
+            throw new IllegalArgumentException("Random part must be 6-16 characters");
+        }
+        if (rule.getDiscountType() == null) {
+            throw new IllegalArgumentException("Discount type is required");
+        }
+        List<Integer> products = productIds != null ? List.copyOf(productIds) : List.of();
+        for (Integer productId : products) {
+            if (!productRepository.existsById(productId)) {
+                throw new IllegalArgumentException("Product not found: " + productId);
+            }
+        }
+        return new Campaign(campaign, campaign.toUpperCase(Locale.ROOT) + "-", count, randomLength, rule, products);
+    }
+
+    /**
+     * Issues the campaign's codes one committed batch at a time, passing each batch to the sink after it
+     * commits. Returns the number of codes issued.
+     */
+    public int generate(Campaign campaign, CodeSink sink) throws IOException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // Nine bind parameters per row; stay well below the driver's 32767 limit
+        int maxBatch = Math.min(Math.max(1, batchSize), 3000);
+        int issued = 0;
+
+        while (issued < campaign.count()) {
+            int wanted = Math.min(maxBatch, campaign.count() - issued);
+            List<String> codes = transactionTemplate.execute(status -> insertCampaignBatch(campaign, wanted, now));
+            if (codes == null || codes.isEmpty()) {
+                throw new IllegalStateException("Could not generate unique codes; use a longer random part");
+            }
+            // Any of these codes may have been probed (and cached as unknown) before they existed
+            promoRuleCache.invalidateAll();
+            issued += codes.size();
+            sink.accept(codes);
+        }
+
+        logger.info("Generated {} promo codes for campaign {}", issued, campaign.name());
+        return issued;
+    }
+
+    private List<String> insertCampaignBatch(Campaign campaign, int wanted, Timestamp now) {
+        List<Object[]> inserted = List.of();
+        for (int attempt = 0; attempt < MAX_ATTEMPTS_PER_BATCH && inserted.isEmpty(); attempt++) {
+            // Repeats across batches are rejected by the insert itself, so only this batch needs tracking
+            Set<String> batch = new LinkedHashSet<>(wanted * 2);
+            while (batch.size() < wanted) {
+                batch.add(campaign.prefix() + randomPart(campaign.randomLength()));
+            }
+            inserted = insertBatch(List.copyOf(batch), campaign.rule(), campaign.name(), now);
+        }
+
+        List<String> codes = new ArrayList<>(inserted.size());
+        List<Object[]> links = new ArrayList<>(inserted.size() * campaign.productIds().size());
+        for (Object[] row : inserted) {
+            int promoId = ((Number) row[0]).intValue();
+            codes.add((String) row[1]);
+            for (Integer productId : campaign.productIds()) {
+                links.add(new Object[] { promoId, productId });
+            }
+        }
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO promo_products (promo_id, product_id) VALUES (?, ?)", links);
+        }
+        promoCodeBloomFilter.addAll(codes);
+        return codes;
+    }
+
+    // Returns [promo_id, code] for each row whose code is not already taken, compared case-insensitively
+    // because codes are looked up ignoring case
+    private List<Object[]> insertBatch(List<String> codes, PromoCode rule, String campaign, Timestamp now) {
+        StringBuilder sql = new StringBuilder("""
+                INSERT INTO promo_codes (code, discount_type, discount_value, start_date, end_date, usage_limit,
+                    current_usage, min_purchase_amount, is_active, one_time_use, per_user_usage_limit, description,
+                    created_at, updated_at)
+                SELECT v.code, v.discount_type, v.discount_value, v.start_date, v.end_date, 1, 0,
+                    v.min_purchase_amount, true, true, 1, v.description, v.created_at, v.updated_at
+                FROM (VALUES\s""");
+        List<Object> args = new ArrayList<>(codes.size() * 9);
+        String description = rule.getDescription() != null ? rule.getDescription() : "Campaign " + campaign;
+        for (int i = 0; i < codes.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS DOUBLE PRECISION), CAST(? AS TIMESTAMP), "
+                    + "CAST(? AS TIMESTAMP), CAST(? AS DOUBLE PRECISION), CAST(? AS VARCHAR), CAST(? AS TIMESTAMP), "
+                    + "CAST(? AS TIMESTAMP))");
+            args.add(codes.get(i));
+            args.add(rule.getDiscountType().name());
+            args.add(rule.getDiscountValue());
+            args.add(rule.getStartDate() != null ? Timestamp.valueOf(rule.getStartDate()) : null);
+            args.add(rule.getEndDate() != null ? Timestamp.valueOf(rule.getEndDate()) : null);
+            args.add(rule.getMinPurchaseAmount());
+            args.add(description);
+            args.add(now);
+            args.add(now);
+        }
+        sql.append("""
+                ) AS v (code, discount_type, discount_value, start_date, end_date, min_purchase_amount, description,
+                    created_at, updated_at)
+                WHERE NOT EXISTS (SELECT 1 FROM promo_codes p WHERE UPPER(p.code) = v.code)
+                ON CONFLICT DO NOTHING RETURNING promo_id, code""");
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new Object[] { rs.getInt(1), rs.getString(2) },
+                args.toArray());
+    }
+
+    private String randomPart(int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return new String(chars);
+    }
+}
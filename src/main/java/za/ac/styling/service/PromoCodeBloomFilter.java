@@ -0,0 +1,143 @@
+package za.ac.styling.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import za.ac.styling.util.StringBloomFilter;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bloom filter of every issued promo code, used to answer most lookups of unknown codes without pricing the
+ * cart. Codes are stored upper-cased because lookups ignore case.
+ * <p>
+ * It is rebuilt from promo_codes on startup and every promo.bloom.refresh-ms, and codes created through this
+ * instance are added as they commit. Until the first build finishes every code passes through. A negative
+ * answer is final, so a code created on another instance is rejected here until the next refresh; keep the
+ * interval short.
+ */
+@Component
+public class PromoCodeBloomFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromoCodeBloomFilter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final long expectedCodes;
+    private final double falsePositiveRate;
+
+    private volatile StringBloomFilter filter;
+    private volatile StringBloomFilter building;
+
+    public PromoCodeBloomFilter(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${promo.bloom.enabled:true}") boolean enabled,
+                                @Value("${promo.bloom.expected-codes:1000000}") long expectedCodes,
+                                @Value("${promo.bloom.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.expectedCodes = expectedCodes;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public boolean mightContain(String code) {
+        if (code == null || code.isBlank()) {
+            return false;
+        }
+        StringBloomFilter current = filter;
+        return current == null || current.mightContain(normalize(code));
+    }
+
+    public void add(String code) {
+        addAll(List.of(code));
+    }
+
+    // Adds once the surrounding transaction commits, or immediately without one
+    public void addAll(Collection<String> codes) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addNow(codes);
+                }
+            });
+        } else {
+            addNow(codes);
+        }
+    }
+
+    private void addNow(Collection<String> codes) {
+        StringBloomFilter current = filter;
+        StringBloomFilter next = building;
+        for (String code : codes) {
+            if (code == null) {
+                continue;
+            }
+            String key = normalize(code);
+            if (current != null) {
+                current.add(key);
+            }
+            if (next != null) {
+                next.add(key);
+            }
+        }
+    }
+
+    private static String normalize(String code) {
+        return code.toUpperCase(Locale.ROOT);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${promo.bloom.refresh-ms:60000}", initialDelayString = "${promo.bloom.refresh-ms:60000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM promo_codes", Long.class);
+            long capacity = Math.max(expectedCodes, (count != null ? count : 0) * 2);
+            StringBloomFilter next = new StringBloomFilter(capacity, falsePositiveRate);
+            building = next;
+
+            // Read-only transaction so the driver streams rows with the fetch size instead of buffering them all
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement("SELECT code FROM promo_codes");
+                ps.setFetchSize(5000);
+                return ps;
+            }, rs -> {
+                String code = rs.getString(1);
+                if (code != null) {
+                    next.add(normalize(code));
+                }
+            }));
+
+            filter = next;
+            logger.info("Promo code Bloom filter rebuilt: {} codes, {} bits, {} hashes in {} ms", count,
+                    next.getBitCount(), next.getHashCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Failed to rebuild promo code Bloom filter; keeping the previous one", e);
+        } finally {
+            building = null;
+        }
+    }
+}
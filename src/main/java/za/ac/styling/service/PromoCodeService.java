@@ -15,6 +15,15 @@ public interface PromoCodeService extends IService<PromoCode, Integer> {
     PromoApplicationResult processPromo(String code, Integer userId, Map<Integer, Integer> productQuantities,
                                          long cartSubtotalCents, boolean finalizeUsage, Integer orderId);
 
+    PromoApplicationResult processPromo(String code, Integer userId, PriceBreakdown pricing, boolean finalizeUsage,
+                                         Integer orderId);
+
+    // Evaluates once; the returned token is what order creation redeems
+    PromoEvaluation evaluatePromo(String code, Integer userId, PriceBreakdown pricing);
+
+    PromoApplicationResult redeemPromo(PromoEvaluation evaluation, Integer userId, PriceBreakdown pricing,
+                                       Integer orderId);
+
     PromoValidationResult validatePromoCode(String code, Integer userId, List<Integer> productIds, double cartTotal);
 
     PromoDiscountResult applyPromoCode(String code, Integer userId, Map<Integer, Integer> productQuantities,
@@ -32,6 +41,8 @@ public interface PromoCodeService extends IService<PromoCode, Integer> {
 
     List<Integer> getEligibleProductIds(Integer promoId);
 
+    Map<Integer, List<Integer>> getEligibleProductIdsByPromo();
+
     class PromoValidationResult {
         private boolean valid;
         private String message;
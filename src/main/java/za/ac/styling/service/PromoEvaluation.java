@@ -0,0 +1,69 @@
+package za.ac.styling.service;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Immutable outcome of evaluating one promo code against one cart, produced once per checkout and handed to
+ * {@link PromoCodeService#redeemPromo} so order creation does not repeat the evaluation. Only successful
+ * evaluations can be redeemed, and only for the same user and cart subtotal they were issued for.
+ */
+public final class PromoEvaluation {
+
+    private final PromoCodeService.PromoApplicationResult result;
+    private final CompiledPromo promo;
+    private final Integer userId;
+    private final long subtotalCents;
+    private final long evaluatedAtNanos;
+
+    private PromoEvaluation(PromoCodeService.PromoApplicationResult result, CompiledPromo promo, Integer userId,
+                            long subtotalCents) {
+        this.result = result;
+        this.promo = promo;
+        this.userId = userId;
+        this.subtotalCents = subtotalCents;
+        this.evaluatedAtNanos = System.nanoTime();
+    }
+
+    static PromoEvaluation applied(PromoCodeService.PromoApplicationResult result, CompiledPromo promo,
+                                   Integer userId, long subtotalCents) {
+        return new PromoEvaluation(result, promo, userId, subtotalCents);
+    }
+
+    public static PromoEvaluation rejected(PromoCodeService.PromoApplicationResult result) {
+        return new PromoEvaluation(result, null, null, 0L);
+    }
+
+    public boolean isApplied() {
+        return promo != null && result.isApplied();
+    }
+
+    public boolean isIssuedFor(Integer userId, PriceBreakdown pricing) {
+        return isApplied() && Objects.equals(this.userId, userId)
+                && pricing != null && pricing.getSubtotalCents() == subtotalCents;
+    }
+
+    public boolean isOlderThan(Duration maxAge) {
+        return System.nanoTime() - evaluatedAtNanos > maxAge.toNanos();
+    }
+
+    public PromoCodeService.PromoApplicationResult getResult() {
+        return result;
+    }
+
+    public CompiledPromo getPromo() {
+        return promo;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public String getMessage() {
+        return result.getMessage();
+    }
+
+    public long getDiscountAmountCents() {
+        return result.getDiscountAmountCents();
+    }
+}
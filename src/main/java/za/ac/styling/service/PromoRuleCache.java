@@ -0,0 +1,73 @@
+package za.ac.styling.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import za.ac.styling.repository.PromoCodeRepository;
+import za.ac.styling.repository.PromoProductRepository;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+@Component
+public class PromoRuleCache {
+
+    private final PromoCodeRepository promoCodeRepository;
+    private final PromoProductRepository promoProductRepository;
+
+    // Keyed by lower-cased code; unknown codes are cached as empty until the next promo write
+    private final Cache<String, Optional<CompiledPromo>> rules;
+
+    public PromoRuleCache(PromoCodeRepository promoCodeRepository,
+                          PromoProductRepository promoProductRepository,
+                          @Value("${promo.rules.cache.max-size:1000}") long maxSize,
+                          @Value("${promo.rules.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.promoCodeRepository = promoCodeRepository;
+        this.promoProductRepository = promoProductRepository;
+        this.rules = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public CompiledPromo get(String code) {
+        if (code == null || code.isBlank()) {
+            return null;
+        }
+        return rules.get(code.toLowerCase(Locale.ROOT), this::compile).orElse(null);
+    }
+
+    private Optional<CompiledPromo> compile(String code) {
+        return promoCodeRepository.findByCodeIgnoreCase(code)
+                .map(promo -> new CompiledPromo(promo,
+                        promoProductRepository.findProductIdsByPromoId(promo.getPromoId())));
+    }
+
+    public void invalidate(String code) {
+        if (code != null) {
+            String key = code.toLowerCase(Locale.ROOT);
+            runNowAndAfterCommit(() -> rules.invalidate(key));
+        }
+    }
+
+    public void invalidateAll() {
+        runNowAndAfterCommit(rules::invalidateAll);
+    }
+
+    // A reader could recompile the old rule before the writing transaction commits, so drop it again afterwards
+    private static void runNowAndAfterCommit(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+}
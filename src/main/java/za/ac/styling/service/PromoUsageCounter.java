@@ -0,0 +1,85 @@
+package za.ac.styling.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import za.ac.styling.repository.PromoUsageRepository;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-(promo, user) usage counts, seeded lazily from promo_usage and incremented when a usage row commits,
+ * so limit checks on cart views and validate/apply calls do not run a COUNT each time.
+ */
+@Component
+public class PromoUsageCounter {
+
+    private final PromoUsageRepository promoUsageRepository;
+    private final Cache<Long, AtomicLong> counts;
+
+    public PromoUsageCounter(PromoUsageRepository promoUsageRepository,
+                             @Value("${promo.usage-cache.max-size:50000}") long maxSize,
+                             @Value("${promo.usage-cache.idle-minutes:60}") long idleMinutes) {
+        this.promoUsageRepository = promoUsageRepository;
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+    }
+
+    private static long key(int promoId, int userId) {
+        return ((long) promoId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    public long count(Integer promoId, Integer userId) {
+        return counts.get(key(promoId, userId),
+                k -> new AtomicLong(promoUsageRepository.countByPromoIdAndUserId(promoId, userId))).get();
+    }
+
+    // Reads the database and reseeds the cached value; used where the limit is about to be enforced
+    public long countExact(Integer promoId, Integer userId) {
+        long count = promoUsageRepository.countByPromoIdAndUserId(promoId, userId);
+        counts.asMap().compute(key(promoId, userId), (k, current) -> {
+            if (current == null) {
+                return new AtomicLong(count);
+            }
+            current.set(count);
+            return current;
+        });
+        return count;
+    }
+
+    // Call after saving a PromoUsage row; the cached count only moves once that row commits
+    public void recordUsage(Integer promoId, Integer userId) {
+        if (promoId == null || userId == null) {
+            return;
+        }
+        long key = key(promoId, userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        increment(key);
+                    } else {
+                        counts.invalidate(key);
+                    }
+                }
+            });
+        } else {
+            increment(key);
+        }
+    }
+
+    // Unseeded entries are left alone; they load the committed count on first use
+    private void increment(long key) {
+        AtomicLong current = counts.getIfPresent(key);
+        if (current != null) {
+            current.incrementAndGet();
+        }
+    }
+}
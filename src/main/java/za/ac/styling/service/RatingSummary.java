@@ -0,0 +1,64 @@
+package za.ac.styling.service;
+
+import java.util.Arrays;
+
+/**
+ * Immutable rating aggregate for one product: review count, rating sum and a 1-5 star histogram.
+ */
+public final class RatingSummary {
+
+    private final Integer productId;
+    private final long count;
+    private final long sum;
+    private final long[] histogram;
+
+    RatingSummary(Integer productId, long[] histogram) {
+        this.productId = productId;
+        this.histogram = histogram;
+        long c = 0;
+        long s = 0;
+        for (int stars = 1; stars <= 5; stars++) {
+            c += histogram[stars - 1];
+            s += stars * histogram[stars - 1];
+        }
+        this.count = c;
+        this.sum = s;
+    }
+
+    static RatingSummary empty(Integer productId) {
+        return new RatingSummary(productId, new long[5]);
+    }
+
+    // Returns a copy with one rating removed (0 = none) and one added (0 = none)
+    RatingSummary with(int removedRating, int addedRating) {
+        long[] next = Arrays.copyOf(histogram, 5);
+        if (removedRating >= 1 && removedRating <= 5 && next[removedRating - 1] > 0) {
+            next[removedRating - 1]--;
+        }
+        if (addedRating >= 1 && addedRating <= 5) {
+            next[addedRating - 1]++;
+        }
+        return new RatingSummary(productId, next);
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public double getAverage() {
+        return count == 0 ? 0.0 : Math.round(sum * 100.0 / count) / 100.0;
+    }
+
+    // Index 0 holds the number of 1-star reviews, index 4 the number of 5-star reviews
+    public long[] getHistogram() {
+        return Arrays.copyOf(histogram, 5);
+    }
+}
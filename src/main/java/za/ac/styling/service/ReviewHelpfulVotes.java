@@ -0,0 +1,100 @@
+package za.ac.styling.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records "helpful" votes and writes them to review.helpful_count as relative increments every
+ * review.helpful.flush-ms, so concurrent votes never overwrite each other and a vote does not rewrite the row.
+ * <p>
+ * Each user may vote once per review: every vote is a row in review_helpful_vote keyed by (review, user), so
+ * the rule holds across restarts and instances. Only the count increments are batched in memory.
+ */
+@Component
+public class ReviewHelpfulVotes {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReviewHelpfulVotes.class);
+
+    // reviewId -> votes not yet written. Increments happen inside compute() so that flush can drop an adder
+    // once it is back at zero without losing a vote that races with the removal.
+    private final Map<Integer, LongAdder> pending = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReviewHelpfulVotes(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Records a vote, returning false if this user has already voted for the review.
+     */
+    public boolean vote(Integer reviewId, Integer userId) {
+        int inserted = jdbcTemplate.update("""
+                INSERT INTO review_helpful_vote (review_id, user_id, created_at) VALUES (?, ?, now())
+                ON CONFLICT (review_id, user_id) DO NOTHING""", reviewId, userId);
+        if (inserted == 0) {
+            return false;
+        }
+        pending.compute(reviewId, (id, adder) -> {
+            LongAdder counter = adder != null ? adder : new LongAdder();
+            counter.increment();
+            return counter;
+        });
+        return true;
+    }
+
+    public boolean hasVoted(Integer reviewId, Integer userId) {
+        Integer votes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM review_helpful_vote WHERE review_id = ? AND user_id = ?",
+                Integer.class, reviewId, userId);
+        return votes != null && votes > 0;
+    }
+
+    // Votes recorded on this instance that are not in the database yet
+    public long pendingVotes(Integer reviewId) {
+        LongAdder adder = pending.get(reviewId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${review.helpful.flush-ms:5000}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Integer, LongAdder> entry : pending.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta != 0) {
+                batch.add(new Object[] { delta, entry.getKey() });
+            }
+            pending.computeIfPresent(entry.getKey(), (id, adder) -> adder.sum() == 0 ? null : adder);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate("UPDATE review SET helpful_count = helpful_count + ? WHERE review_id = ?", batch);
+        } catch (Exception e) {
+            logger.error("Failed to flush helpful votes for {} reviews; retrying next run", batch.size(), e);
+            for (Object[] row : batch) {
+                pending.compute((Integer) row[1], (id, adder) -> {
+                    LongAdder counter = adder != null ? adder : new LongAdder();
+                    counter.add((Long) row[0]);
+                    return counter;
+                });
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -25,4 +25,31 @@ public interface ReviewService extends IService<Review, Integer> {
     double calculateAverageRating(Product product);
 
     long countByProduct(Product product);
+
+    RatingSummary getRatingSummary(Integer productId);
+
+    // sort is "date" (newest first) or "helpful"; cursor is the nextCursor of the previous page, or null
+    ReviewPage findPageByProductId(Integer productId, String sort, String cursor, int size);
+
+    class ReviewPage {
+        private final List<Review> reviews;
+        private final String nextCursor;
+
+        public ReviewPage(List<Review> reviews, String nextCursor) {
+            this.reviews = reviews;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Review> getReviews() {
+            return reviews;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        public boolean hasMore() {
+            return nextCursor != null;
+        }
+    }
 }
@@ -0,0 +1,184 @@
+package za.ac.styling.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Durable queue of storage objects to delete (storage_deletion).
+ * <p>
+ * Callers enqueue inside their own transaction, so a delete is recorded exactly when the image rows that used
+ * the object are removed, and removing an image never waits on storage. A scheduled worker claims due rows in
+ * batches (SKIP LOCKED, so several instances can drain the same queue), deletes them with one storage call per
+ * bucket and retries failures with exponential backoff. A claim expires after storage.deletion.lease-seconds,
+ * so rows held by an instance that dies are picked up again.
+ */
+@Component
+public class StorageDeletionQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageDeletionQueue.class);
+
+    private record Pending(long id, String bucket, String path, int attempts) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectStorage objectStorage;
+    private final ObjectProvider<ImageProxyCache> proxyCache;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long leaseSeconds;
+    private final long initialBackoffSeconds;
+    private final long maxBackoffSeconds;
+    private final int alertAfterAttempts;
+    private final Counter deleted;
+    private final Counter failed;
+
+    public StorageDeletionQueue(JdbcTemplate jdbcTemplate,
+                                ObjectStorage objectStorage,
+                                ObjectProvider<ImageProxyCache> proxyCache,
+                                MeterRegistry meterRegistry,
+                                @Value("${storage.deletion.batch-size:500}") int batchSize,
+                                @Value("${storage.deletion.max-batches-per-run:20}") int maxBatchesPerRun,
+                                @Value("${storage.deletion.lease-seconds:300}") long leaseSeconds,
+                                @Value("${storage.deletion.initial-backoff-seconds:30}") long initialBackoffSeconds,
+                                @Value("${storage.deletion.max-backoff-seconds:21600}") long maxBackoffSeconds,
+                                @Value("${storage.deletion.alert-after-attempts:10}") int alertAfterAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectStorage = objectStorage;
+        this.proxyCache = proxyCache;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.leaseSeconds = leaseSeconds;
+        this.initialBackoffSeconds = Math.max(1, initialBackoffSeconds);
+        this.maxBackoffSeconds = Math.max(this.initialBackoffSeconds, maxBackoffSeconds);
+        this.alertAfterAttempts = alertAfterAttempts;
+        this.deleted = Counter.builder("storage.deletion.objects").tag("result", "deleted").register(meterRegistry);
+        this.failed = Counter.builder("storage.deletion.objects").tag("result", "failed").register(meterRegistry);
+    }
+
+    public void enqueue(String bucket, String path) {
+        enqueue(bucket, List.of(path));
+    }
+
+    /**
+     * Records objects for deletion. Joins the caller's transaction when there is one; paths already queued
+     * are left as they are.
+     */
+    public void enqueue(String bucket, Collection<String> paths) {
+        List<Object[]> rows = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            if (path != null && !path.isBlank()) {
+                rows.add(new Object[] { bucket, path });
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO storage_deletion (bucket, path, attempts, next_attempt_at, created_at)
+                VALUES (?, ?, 0, now(), now())
+                ON CONFLICT (bucket, path) DO NOTHING""", rows);
+    }
+
+    @Scheduled(fixedDelayString = "${storage.deletion.poll-ms:10000}",
+            initialDelayString = "${storage.deletion.poll-ms:10000}")
+    public void drain() {
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                if (drainBatch() < batchSize) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Storage deletion run failed", e);
+        }
+    }
+
+    private int drainBatch() {
+        List<Pending> claimed = jdbcTemplate.query("""
+                UPDATE storage_deletion
+                SET attempts = attempts + 1, next_attempt_at = now() + ? * INTERVAL '1 second'
+                WHERE deletion_id IN (
+                    SELECT deletion_id FROM storage_deletion
+                    WHERE next_attempt_at <= now()
+                    ORDER BY next_attempt_at
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING deletion_id, bucket, path, attempts""",
+                (rs, rowNum) -> new Pending(rs.getLong("deletion_id"), rs.getString("bucket"),
+                        rs.getString("path"), rs.getInt("attempts")),
+                leaseSeconds, batchSize);
+
+        Map<String, List<Pending>> byBucket = new LinkedHashMap<>();
+        for (Pending pending : claimed) {
+            byBucket.computeIfAbsent(pending.bucket(), b -> new ArrayList<>()).add(pending);
+        }
+        for (Map.Entry<String, List<Pending>> entry : byBucket.entrySet()) {
+            deleteBucketBatch(entry.getKey(), entry.getValue());
+        }
+        return claimed.size();
+    }
+
+    private void deleteBucketBatch(String bucket, List<Pending> batch) {
+        List<String> paths = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            paths.add(pending.path());
+        }
+        try {
+            objectStorage.deleteAll(bucket, paths);
+        } catch (Exception e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            retryLater(batch, error.length() > 500 ? error.substring(0, 500) : error);
+            return;
+        }
+
+        List<Object[]> ids = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            ids.add(new Object[] { pending.id() });
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM storage_deletion WHERE deletion_id = ?", ids);
+        deleted.increment(batch.size());
+
+        ImageProxyCache cache = proxyCache.getIfAvailable();
+        if (cache != null) {
+            paths.forEach(path -> cache.invalidate(bucket, path));
+        }
+    }
+
+    private void retryLater(List<Pending> batch, String error) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            rows.add(new Object[] { backoffSeconds(pending.attempts()), error, pending.id() });
+            if (pending.attempts() == alertAfterAttempts) {
+                logger.error("Storage object {}/{} still not deleted after {} attempts: {}",
+                        pending.bucket(), pending.path(), pending.attempts(), error);
+            }
+        }
+        jdbcTemplate.batchUpdate("""
+                UPDATE storage_deletion
+                SET next_attempt_at = now() + ? * INTERVAL '1 second', last_error = ?
+                WHERE deletion_id = ?""", rows);
+        failed.increment(batch.size());
+        logger.warn("Could not delete {} storage objects, retrying later: {}", batch.size(), error);
+    }
+
+    // Doubles per attempt up to the cap, with jitter so a storage outage does not end in a retry stampede
+    private long backoffSeconds(int attempts) {
+        long backoff = initialBackoffSeconds << Math.min(Math.max(0, attempts - 1), 30);
+        backoff = Math.min(maxBackoffSeconds, backoff);
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+}
@@ -0,0 +1,126 @@
+package za.ac.styling.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Content-hash index of stored objects (storage_object), so identical uploads share one object.
+ * <p>
+ * Every row carries the number of images pointing at its object. Rows are removed when the count would drop
+ * to zero, and acquiring only ever matches rows that still exist, so an object is never handed out while it
+ * is being deleted. Objects uploaded before this index existed have no row and are treated as unshared.
+ */
+@Component
+public class StorageObjectIndex {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    public StorageObjectIndex(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              @Value("${storage.dedup.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Takes a reference on an existing object with this content, returning its path.
+     */
+    public Optional<String> acquire(String bucket, String sha256) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        List<String> paths = jdbcTemplate.queryForList(
+                "UPDATE storage_object SET ref_count = ref_count + 1 WHERE bucket = ? AND sha256 = ? RETURNING path",
+                String.class, bucket, sha256);
+        return paths.stream().findFirst();
+    }
+
+    /**
+     * Records a freshly uploaded object with one reference. If the same content was registered concurrently,
+     * a reference is taken on that object instead and its path is returned; the caller should then delete its
+     * own copy.
+     */
+    public String register(String bucket, String sha256, String path, long sizeBytes) {
+        if (!enabled) {
+            return path;
+        }
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO storage_object (bucket, path, sha256, size_bytes, ref_count, created_at)
+                VALUES (?, ?, ?, ?, 1, now())
+                ON CONFLICT (bucket, sha256) DO UPDATE SET ref_count = storage_object.ref_count + 1
+                RETURNING path""", String.class, bucket, path, sha256, sizeBytes);
+    }
+
+    /**
+     * Starts tracking an object that images were pointed at directly rather than through an upload. An existing
+     * row gains one reference; a new row starts at references, the number of images now using the path. If the
+     * same content is already tracked under another path, this path stays untracked and false is returned.
+     */
+    public boolean adopt(String bucket, String path, String sha256, long sizeBytes, int references) {
+        if (!enabled) {
+            return true;
+        }
+        Boolean tracked = transactionTemplate.execute(status -> {
+            String increment = "UPDATE storage_object SET ref_count = ref_count + 1 WHERE bucket = ? AND path = ?";
+            if (jdbcTemplate.update(increment, bucket, path) > 0) {
+                return true;
+            }
+            int inserted = jdbcTemplate.update("""
+                    INSERT INTO storage_object (bucket, path, sha256, size_bytes, ref_count, created_at)
+                    VALUES (?, ?, ?, ?, ?, now())
+                    ON CONFLICT DO NOTHING""", bucket, path, sha256, sizeBytes, Math.max(references, 1));
+            // Nothing inserted: either this path was registered concurrently or the content lives elsewhere
+            return inserted > 0 || jdbcTemplate.update(increment, bucket, path) > 0;
+        });
+        return Boolean.TRUE.equals(tracked);
+    }
+
+    /**
+     * Number of images sharing the object, or 0 if it is not tracked.
+     */
+    public int references(String bucket, String path) {
+        if (!enabled) {
+            return 0;
+        }
+        List<Integer> counts = jdbcTemplate.queryForList(
+                "SELECT ref_count FROM storage_object WHERE bucket = ? AND path = ?", Integer.class, bucket, path);
+        return counts.isEmpty() ? 0 : counts.get(0);
+    }
+
+    /**
+     * Drops one reference and returns true if the object is no longer used and may be deleted.
+     */
+    public boolean release(String bucket, String path) {
+        if (!enabled) {
+            return true;
+        }
+        Boolean unused = transactionTemplate.execute(status -> {
+            List<Integer> counts = jdbcTemplate.queryForList(
+                    "SELECT ref_count FROM storage_object WHERE bucket = ? AND path = ? FOR UPDATE",
+                    Integer.class, bucket, path);
+            if (counts.isEmpty()) {
+                return true;
+            }
+            if (counts.get(0) <= 1) {
+                jdbcTemplate.update("DELETE FROM storage_object WHERE bucket = ? AND path = ?", bucket, path);
+                return true;
+            }
+            jdbcTemplate.update("UPDATE storage_object SET ref_count = ref_count - 1 WHERE bucket = ? AND path = ?",
+                    bucket, path);
+            return false;
+        });
+        return Boolean.TRUE.equals(unused);
+    }
+}
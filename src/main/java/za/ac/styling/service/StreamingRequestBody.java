@@ -0,0 +1,60 @@
+package za.ac.styling.service;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * OkHttp request body that copies from a freshly opened stream each time it is written, through Okio's
+ * fixed-size segment buffers, so an upload never holds the whole file on the heap. Because the source is
+ * reopened per write, OkHttp can safely replay it on a retried connection.
+ */
+public final class StreamingRequestBody extends RequestBody {
+
+    private final InputStreamSource source;
+    private final MediaType mediaType;
+    private final long offset;
+    private final long length;
+
+    private StreamingRequestBody(InputStreamSource source, MediaType mediaType, long offset, long length) {
+        this.source = source;
+        this.mediaType = mediaType;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static StreamingRequestBody of(InputStreamSource source, MediaType mediaType, long length) {
+        return new StreamingRequestBody(source, mediaType, 0, length);
+    }
+
+    // Bytes [offset, offset + length) of the source, used for chunked uploads
+    public static StreamingRequestBody slice(InputStreamSource source, MediaType mediaType, long offset, long length) {
+        return new StreamingRequestBody(source, mediaType, offset, length);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        try (InputStream in = source.getInputStream()) {
+            in.skipNBytes(offset);
+            Source stream = Okio.source(in);
+            // Throws EOFException if the source is shorter than the advertised length
+            sink.write(stream, length);
+        }
+    }
+}
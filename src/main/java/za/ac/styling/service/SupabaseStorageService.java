@@ -1,25 +1,50 @@
 package za.ac.styling.service;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import za.ac.styling.domain.ProductImage;
+import za.ac.styling.domain.ReviewImage;
+import za.ac.styling.util.ImageContentSniffer;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionException;
 
+/**
+ * Image storage for the application: validates and deduplicates uploads, releases shared objects and caches
+ * signed URLs. The bytes themselves go through the configured {@link ObjectStorage} backend.
+ */
 @Slf4j
 @Service
 public class SupabaseStorageService {
 
-    @Value("${SUPABASE_URL}")
-    private String supabaseUrl;
-
-    @Value("${SUPABASE_SERVICE_KEY}")
-    private String serviceRoleKey;
-
     @Value("${SUPABASE_BUCKET_PRODUCT_IMAGES:product-images}")
     private String productImagesBucket;
 
@@ -29,15 +54,28 @@ public class SupabaseStorageService {
     @Value("${SUPABASE_BUCKET_CATEGORY_IMAGES:category-images}")
     private String categoryImagesBucket;
 
-    private final OkHttpClient httpClient;
+    @Autowired
+    private StorageObjectIndex objectIndex;
 
-    public SupabaseStorageService() {
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .build();
-    }
+    @Autowired
+    private ObjectStorage objectStorage;
+
+    @Autowired
+    private StorageDeletionQueue deletionQueue;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${storage.signed-url.expires-seconds:3600}")
+    private int signedUrlExpiresSeconds;
+
+    @Value("${storage.signed-url.refresh-margin-seconds:300}")
+    private int signedUrlRefreshMarginSeconds;
+
+    @Value("${storage.signed-url.cache-size:20000}")
+    private long signedUrlCacheSize;
+
+    private LoadingCache<SignedUrlKey, String> signedUrls;
 
     public UploadResult uploadCategoryImage(MultipartFile file, Long categoryId) throws IOException {
         String folder = "categories/" + categoryId;
@@ -70,11 +108,33 @@ public class SupabaseStorageService {
             throw new IllegalArgumentException("File is empty");
         }
 
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("image/")) {
+        String declaredType = file.getContentType();
+        if (declaredType == null || !declaredType.startsWith("image/")) {
             throw new IllegalArgumentException("Only image files are allowed");
         }
 
+        // Trust the bytes, not the declared type; the same local pass hashes the content for deduplication
+        String contentType;
+        String sha256;
+        try (InputStream in = file.getInputStream()) {
+            MessageDigest digest = newSha256();
+            DigestInputStream hashing = new DigestInputStream(in, digest);
+            contentType = ImageContentSniffer.sniff(hashing);
+            if (contentType == null) {
+                throw new IllegalArgumentException("File content is not a supported image");
+            }
+            hashing.transferTo(OutputStream.nullOutputStream());
+            sha256 = HexFormat.of().formatHex(digest.digest());
+        }
+
+        Optional<String> existing = objectIndex.acquire(bucket, sha256);
+        if (existing.isPresent()) {
+            UploadResult reused = new UploadResult(publicUrl(bucket, existing.get()), existing.get(), bucket);
+            log.info("♻️ Storage upload SKIPPED (identical content) - File: {}, Reusing: {}",
+                    file.getOriginalFilename(), reused.getUrl());
+            return reused;
+        }
+
         String originalFilename = file.getOriginalFilename();
         String extension = originalFilename != null && originalFilename.contains(".")
                 ? originalFilename.substring(originalFilename.lastIndexOf("."))
@@ -85,88 +145,234 @@ public class SupabaseStorageService {
                 ? folder + "/" + filename
                 : filename;
 
-        String uploadUrl = String.format("%s/storage/v1/object/%s/%s",
-                supabaseUrl, bucket, path);
-
-        RequestBody requestBody = RequestBody.create(file.getBytes(), MediaType.parse(contentType));
-
-        Request request = new Request.Builder()
-                .url(uploadUrl)
-                .post(requestBody)
-                .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                .addHeader("Content-Type", contentType)
-                .addHeader("x-upsert", "true")
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                log.error("❌ Supabase upload FAILED - Bucket: {}, Path: {}, Status: {}, Error: {}",
-                        bucket, path, response.code(), errorBody);
-                throw new IOException("Upload failed: " + response.code() + " - " + errorBody);
-            }
+        objectStorage.upload(bucket, path, file, file.getSize(), contentType);
 
-            String publicUrl = String.format("%s/storage/v1/object/public/%s/%s",
-                    supabaseUrl, bucket, path);
+        String registered;
+        try {
+            registered = objectIndex.register(bucket, sha256, path, file.getSize());
+        } catch (RuntimeException e) {
+            deleteFile(bucket, path);
+            throw e;
+        }
+        if (!registered.equals(path)) {
+            // The same content was uploaded concurrently and registered first; keep that copy
+            deleteFile(bucket, path);
+            path = registered;
+        }
 
-            log.info("✅ Supabase upload SUCCESS - File: {}, Size: {} bytes, URL: {}",
-                    file.getOriginalFilename(), file.getSize(), publicUrl);
+        String publicUrl = publicUrl(bucket, path);
 
-            return new UploadResult(publicUrl, path, bucket);
+        log.info("✅ Storage upload SUCCESS - File: {}, Size: {} bytes, URL: {}",
+                file.getOriginalFilename(), file.getSize(), publicUrl);
+
+        return new UploadResult(publicUrl, path, bucket);
+    }
+
+    // Stores generated content (e.g. resized variants) at a fixed path
+    public UploadResult uploadBytes(byte[] data, String bucket, String path, String contentType) throws IOException {
+        objectStorage.upload(bucket, path, new ByteArrayResource(data), data.length, contentType);
+        return new UploadResult(publicUrl(bucket, path), path, bucket);
+    }
+
+    private String publicUrl(String bucket, String path) {
+        return objectStorage.publicUrl(bucket, path);
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 
     public void deleteFile(String bucket, String path) throws IOException {
-        String deleteUrl = String.format("%s/storage/v1/object/%s/%s",
-                supabaseUrl, bucket, path);
-
-        Request request = new Request.Builder()
-                .url(deleteUrl)
-                .delete()
-                .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful() && response.code() != 404) {
-                String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                throw new IOException("Delete failed: " + response.code() + " - " + errorBody);
+        objectStorage.delete(bucket, path);
+    }
+
+    // One storage call for many objects; missing objects are skipped
+    public void deleteFiles(String bucket, Collection<String> paths) throws IOException {
+        if (!paths.isEmpty()) {
+            objectStorage.deleteAll(bucket, paths);
+        }
+    }
+
+    /**
+     * Streams an object's bytes into out with the backend's own credentials, so private buckets work too. Returns the
+     * object's content type; a missing object throws FileNotFoundException.
+     */
+    public String download(String bucket, String path, OutputStream out) throws IOException {
+        return objectStorage.download(bucket, path, out);
+    }
+
+    /**
+     * Registers an object that already exists in storage with the deduplication index, hashing it from storage.
+     * references is the number of images now pointing at the path, used if it is not tracked yet.
+     */
+    public void adoptFile(String bucket, String path, int references) throws IOException {
+        if (!objectIndex.isEnabled()) {
+            return;
+        }
+        MessageDigest digest = newSha256();
+        long[] size = new long[1];
+        try (OutputStream hashing = new DigestOutputStream(OutputStream.nullOutputStream(), digest) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                super.write(b, off, len);
+                size[0] += len;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                super.write(b);
+                size[0]++;
             }
+        }) {
+            objectStorage.download(bucket, path, hashing);
+        }
+        if (!objectIndex.adopt(bucket, path, HexFormat.of().formatHex(digest.digest()), size[0], references)) {
+            log.warn("Storage object {}/{} duplicates an indexed object and stays untracked", bucket, path);
         }
     }
 
-    public void deleteProductImage(String path) throws IOException {
-        deleteFile(productImagesBucket, path);
+    // Object path of one of our public URLs in this bucket, or null if the URL points elsewhere
+    public String pathFromPublicUrl(String bucket, String url) {
+        String prefix = publicUrl(bucket, "");
+        return url != null && url.startsWith(prefix) && url.length() > prefix.length()
+                ? url.substring(prefix.length())
+                : null;
     }
 
-    public void deleteReviewImage(String path) throws IOException {
-        deleteFile(reviewImagesBucket, path);
+    /**
+     * Queues an uploaded object for deletion unless other images still share it through content deduplication.
+     */
+    public void releaseFile(String bucket, String path) {
+        releaseImage(bucket, path);
     }
 
-    public String getSignedUrl(String bucket, String path) throws IOException {
-        String signedUrl = String.format("%s/storage/v1/object/sign/%s/%s",
-                supabaseUrl, bucket, path);
-
-        String jsonBody = "{\"expiresIn\": 3600}";
-        RequestBody requestBody = RequestBody.create(jsonBody, MediaType.parse("application/json"));
-
-        Request request = new Request.Builder()
-                .url(signedUrl)
-                .post(requestBody)
-                .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                .addHeader("Content-Type", "application/json")
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("Failed to generate signed URL: " + response.code());
+    /**
+     * Releases a deleted image's object and generated variants. Only database writes happen here; they join the
+     * caller's transaction and {@link StorageDeletionQueue} removes the objects from storage afterwards.
+     */
+    public void deleteProductImage(ProductImage image) {
+        releaseImage(productImagesBucket, image.getBucketPath(),
+                image.getThumbnailUrl(), image.getMediumUrl(), image.getLargeUrl());
+    }
+
+    public void deleteReviewImage(ReviewImage image) {
+        releaseImage(reviewImagesBucket, image.getBucketPath(),
+                image.getThumbnailUrl(), image.getMediumUrl(), image.getLargeUrl());
+    }
+
+    // Variants are stored next to the object they were made from, so they go when it goes
+    private void releaseImage(String bucket, String path, String... variantUrls) {
+        if (path == null || path.isBlank() || !objectIndex.release(bucket, path)) {
+            return;
+        }
+        List<String> paths = new ArrayList<>(1 + variantUrls.length);
+        paths.add(path);
+        for (String url : variantUrls) {
+            String variantPath = pathFromPublicUrl(bucket, url);
+            if (variantPath != null) {
+                paths.add(variantPath);
             }
+        }
+        deletionQueue.enqueue(bucket, paths);
+    }
+
+    /**
+     * Queues variants generated from an object for deletion unless another image still uses that object (and so
+     * the variants stored next to it). heldByCaller is how many of its references belong to the caller's own
+     * image: 1 while that image exists, 0 once it has been deleted.
+     */
+    public void releaseVariants(String bucket, String path, Collection<String> variantPaths, int heldByCaller) {
+        if (!variantPaths.isEmpty() && objectIndex.references(bucket, path) <= heldByCaller) {
+            deletionQueue.enqueue(bucket, variantPaths);
+        }
+    }
+
+    public String getProductImagesBucket() {
+        return productImagesBucket;
+    }
+
+    public String getReviewImagesBucket() {
+        return reviewImagesBucket;
+    }
+
+    /**
+     * Signed URL for a private object, served from a cache that renews each entry in the background once it is
+     * storage.signed-url.refresh-margin-seconds from the end of its cached life. Concurrent callers asking for
+     * the same object share a single signing request.
+     */
+    public String getSignedUrl(String bucket, String path) throws IOException {
+        try {
+            return signedUrls.get(new SignedUrlKey(bucket, path));
+        } catch (CompletionException | UncheckedIOException e) {
+            throw asIOException(e);
+        }
+    }
+
+    /**
+     * Signs many objects of one bucket at once (e.g. every image on a page), using the batch endpoint for
+     * those not already cached. Returns path -> signed URL; paths the backend could not sign are left out.
+     */
+    public Map<String, String> getSignedUrls(String bucket, Collection<String> paths) throws IOException {
+        List<SignedUrlKey> keys = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            keys.add(new SignedUrlKey(bucket, path));
+        }
+        Map<SignedUrlKey, String> signed;
+        try {
+            signed = signedUrls.getAll(keys);
+        } catch (CompletionException | UncheckedIOException e) {
+            throw asIOException(e);
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        signed.forEach((key, url) -> result.put(key.path(), url));
+        return result;
+    }
+
+    private record SignedUrlKey(String bucket, String path) {
+    }
+
+    private final class SignedUrlLoader implements CacheLoader<SignedUrlKey, String> {
+        @Override
+        public String load(SignedUrlKey key) throws IOException {
+            return objectStorage.sign(key.bucket(), key.path(), signedUrlExpiresSeconds);
+        }
 
-            String responseBody = response.body().string();
-            String signedUrlPath = responseBody.split("\"signedURL\":\"")[1].split("\"")[0];
-            return supabaseUrl + signedUrlPath;
+        @Override
+        public Map<SignedUrlKey, String> loadAll(Set<? extends SignedUrlKey> keys) throws IOException {
+            Map<String, List<String>> pathsByBucket = new HashMap<>();
+            for (SignedUrlKey key : keys) {
+                pathsByBucket.computeIfAbsent(key.bucket(), b -> new ArrayList<>()).add(key.path());
+            }
+            Map<SignedUrlKey, String> loaded = new HashMap<>();
+            for (Map.Entry<String, List<String>> entry : pathsByBucket.entrySet()) {
+                objectStorage.signAll(entry.getKey(), entry.getValue(), signedUrlExpiresSeconds)
+                        .forEach((path, url) -> loaded.put(new SignedUrlKey(entry.getKey(), path), url));
+            }
+            return loaded;
         }
     }
 
+    @PostConstruct
+    void initSignedUrlCache() {
+        long ttlSeconds = Math.max(60, signedUrlExpiresSeconds - signedUrlRefreshMarginSeconds);
+        this.signedUrls = Caffeine.newBuilder()
+                .maximumSize(signedUrlCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .refreshAfterWrite(Duration.ofSeconds(Math.max(30, ttlSeconds - signedUrlRefreshMarginSeconds)))
+                .recordStats()
+                .build(new SignedUrlLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, signedUrls, "storage.signed-urls");
+    }
+
+    private static IOException asIOException(RuntimeException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+    }
+
     public static class UploadResult {
         private final String url;
         private final String path;
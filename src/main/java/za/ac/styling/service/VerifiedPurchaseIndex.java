@@ -0,0 +1,104 @@
+package za.ac.styling.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import za.ac.styling.domain.Order;
+import za.ac.styling.domain.OrderItem;
+import za.ac.styling.domain.OrderStatus;
+import za.ac.styling.repository.OrderRepository;
+import za.ac.styling.util.IntOpenHashSet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-user set of product ids the user has received in a delivered order, used for verified-purchase checks.
+ * A user's set is loaded with one query on first use and kept current from order saves: a delivery adds the
+ * order's products, and any other status touching a product in the set drops the user so it reloads.
+ * Entries are dropped review.purchase-index.ttl-minutes after they were loaded or last changed, however often
+ * they are read, so changes made by other instances show up within that time.
+ */
+@Component
+public class VerifiedPurchaseIndex {
+
+    private final OrderRepository orderRepository;
+    private final Cache<Integer, IntOpenHashSet> purchases;
+
+    public VerifiedPurchaseIndex(OrderRepository orderRepository,
+                                 @Value("${review.purchase-index.max-users:50000}") long maxUsers,
+                                 @Value("${review.purchase-index.ttl-minutes:30}") long ttlMinutes) {
+        this.orderRepository = orderRepository;
+        this.purchases = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    public boolean hasPurchased(Integer userId, Integer productId) {
+        if (userId == null || productId == null) {
+            return false;
+        }
+        return purchases.get(userId, this::load).contains(productId);
+    }
+
+    private IntOpenHashSet load(Integer userId) {
+        return IntOpenHashSet.of(orderRepository.findPurchasedProductIds(userId));
+    }
+
+    /**
+     * Call after an order has been saved. Applied once the surrounding transaction commits.
+     */
+    public void orderSaved(Order order) {
+        if (order == null || order.getUser() == null || order.getItems() == null) {
+            return;
+        }
+        Integer userId = order.getUser().getUserId();
+        boolean delivered = order.getStatus() == OrderStatus.DELIVERED;
+        List<Integer> productIds = new ArrayList<>(order.getItems().size());
+        for (OrderItem item : order.getItems()) {
+            if (item.getProduct() != null && item.getProduct().getProductId() != null) {
+                productIds.add(item.getProduct().getProductId());
+            }
+        }
+        if (userId == null || productIds.isEmpty()) {
+            return;
+        }
+
+        Runnable apply = () -> {
+            if (delivered) {
+                purchases.asMap().computeIfPresent(userId, (id, current) -> {
+                    List<Integer> merged = current.toList();
+                    merged.addAll(productIds);
+                    return IntOpenHashSet.of(merged);
+                });
+            } else {
+                // The products may still be covered by another delivered order, so reload rather than remove
+                IntOpenHashSet current = purchases.getIfPresent(userId);
+                if (current != null && productIds.stream().anyMatch(current::contains)) {
+                    purchases.invalidate(userId);
+                }
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    public void evict(Integer userId) {
+        if (userId != null) {
+            purchases.invalidate(userId);
+        }
+    }
+}
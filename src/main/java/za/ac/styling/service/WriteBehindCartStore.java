@@ -0,0 +1,630 @@
+package za.ac.styling.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import za.ac.styling.domain.Cart;
+import za.ac.styling.domain.CartItem;
+import za.ac.styling.repository.CartRepository;
+import za.ac.styling.repository.ProductColourSizeRepository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-behind store for active carts (cart.store.write-behind.enabled).
+ * <p>
+ * Carts are loaded once into a bounded in-memory map and guarded by a per-cart lock. Quantity changes,
+ * removals and increments of existing lines are applied in memory and written to the cart tables in
+ * JDBC batches on a schedule. New lines go straight to the database through {@link CartMutationService}
+ * so they receive their ids immediately. Checkout flushes synchronously.
+ * <p>
+ * Carts evicted from the map are parked until the scheduled flush has written them; a request for the user in
+ * the meantime takes the parked entry back instead of reading stale rows. Entry locks are never held while
+ * calling into the map, so the map's loader may take them.
+ * <p>
+ * Anything else that writes or deletes cart rows directly must first call {@link #evictCart}, {@link #evictItem},
+ * {@link #evictProduct} or {@link #discardCarts}, or the held copy goes stale and a later flush overwrites it.
+ */
+@Component
+public class WriteBehindCartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    private static final class Entry {
+        final Integer userId;
+        final ReentrantLock lock = new ReentrantLock();
+        Cart cart;
+        final Map<Integer, Integer> changedQuantities = new HashMap<>();
+        final Set<Integer> removedItemIds = new HashSet<>();
+        LocalDateTime touchedAt;
+        // Set under the lock once the entry has left the map; holders must reload instead of using it
+        boolean retired;
+
+        Entry(Integer userId, Cart cart) {
+            this.userId = userId;
+            this.cart = cart;
+        }
+
+        boolean isDirty() {
+            return touchedAt != null;
+        }
+    }
+
+    private record PendingWrite(Integer cartId, Map<Integer, Integer> quantities, Set<Integer> removed,
+                                LocalDateTime touchedAt) {
+    }
+
+    private final boolean enabled;
+    private final CartRepository cartRepository;
+    private final ProductColourSizeRepository productColourSizeRepository;
+    private final CartMutationService cartMutationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Cache<Integer, Entry> carts;
+    private final Map<Integer, Integer> itemOwners = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> cartOwners = new ConcurrentHashMap<>();
+    private final Set<Integer> dirtyUsers = ConcurrentHashMap.newKeySet();
+    // Evicted entries whose changes may not be written yet, by user id
+    private final Map<Integer, Entry> evicted = new ConcurrentHashMap<>();
+
+    public WriteBehindCartStore(@Value("${cart.store.write-behind.enabled:false}") boolean enabled,
+                                @Value("${cart.store.max-carts:10000}") long maxCarts,
+                                @Value("${cart.store.idle-minutes:30}") long idleMinutes,
+                                CartRepository cartRepository,
+                                ProductColourSizeRepository productColourSizeRepository,
+                                CartMutationService cartMutationService,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager) {
+        this.enabled = enabled;
+        this.cartRepository = cartRepository;
+        this.productColourSizeRepository = productColourSizeRepository;
+        this.cartMutationService = cartMutationService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // The listener runs inside the map's own lock, so it only parks the entry for flushDirty
+        this.carts = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .evictionListener((Integer userId, Entry entry, RemovalCause cause) -> {
+                    if (userId != null && entry != null) {
+                        evicted.put(userId, entry);
+                    }
+                })
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<Cart> getCart(Integer userId) {
+        while (true) {
+            Entry entry = entry(userId);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            entry.lock.lock();
+            try {
+                if (!entry.retired) {
+                    return Optional.of(copyOf(entry.cart));
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    public CartMutationService.AddItemResult addItem(Integer userId, Integer productId, Integer colourId,
+                                                     Integer sizeId, int quantity) {
+        while (true) {
+            Entry entry = entry(userId);
+            CartMutationService.AddItemResult result = addItem(entry, userId, productId, colourId, sizeId, quantity);
+            if (result != null) {
+                return result;
+            }
+        }
+    }
+
+    // Returns null when the entry was retired while waiting for its lock
+    private CartMutationService.AddItemResult addItem(Entry entry, Integer userId, Integer productId,
+                                                      Integer colourId, Integer sizeId, int quantity) {
+        if (entry == null) {
+            CartMutationService.AddItemResult result = cartMutationService.addItem(userId, productId, colourId, sizeId, quantity);
+            if (result.isSuccess()) {
+                carts.invalidate(userId);
+            }
+            return result;
+        }
+
+        entry.lock.lock();
+        try {
+            if (entry.retired) {
+                return null;
+            }
+            CartItem existing = findLine(entry.cart, productId, colourId, sizeId);
+            if (existing == null) {
+                // New line: write what we hold, insert it in the database, then refresh the cached cart
+                flushEntry(entry);
+                CartMutationService.AddItemResult result = cartMutationService.addItem(userId, productId, colourId, sizeId, quantity);
+                if (result.isSuccess()) {
+                    forgetItems(entry);
+                    entry.cart = cartRepository.findByUserUserIdWithItems(userId).orElse(entry.cart);
+                    rememberItems(entry);
+                }
+                return result;
+            }
+
+            Optional<Integer> available = productColourSizeRepository.findAvailableStockForLine(productId, colourId, sizeId);
+            if (available.isEmpty()) {
+                return CartMutationService.AddItemResult.failure(CartMutationService.Outcome.INVALID_ITEM, 0);
+            }
+            int newQuantity = existing.getQuantity() + quantity;
+            if (newQuantity > available.get()) {
+                return CartMutationService.AddItemResult.failure(CartMutationService.Outcome.INSUFFICIENT_STOCK,
+                        available.get());
+            }
+            existing.setQuantity(newQuantity);
+            markChanged(entry, existing.getCartItemId(), newQuantity);
+            return new CartMutationService.AddItemResult(CartMutationService.Outcome.ADDED, entry.cart.getCartId(),
+                    newQuantity, entry.cart.getItems().size(), available.get());
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    // Returns null when the item's cart is not held in memory; callers then fall back to the database path.
+    public CartItem updateQuantity(Integer cartItemId, int quantity) {
+        Entry entry = entryForItem(cartItemId);
+        if (entry == null) {
+            return null;
+        }
+        entry.lock.lock();
+        try {
+            CartItem item = entry.retired ? null : findItem(entry.cart, cartItemId);
+            if (item == null) {
+                return null;
+            }
+            if (item.getProduct() != null && item.getColour() != null && item.getSize() != null) {
+                // Checked against current stock, not the copy loaded with the cart
+                int available = productColourSizeRepository.findAvailableStockForLine(item.getProduct().getProductId(),
+                                item.getColour().getColourId(), item.getSize().getSizeId())
+                        .orElseThrow(() -> new IllegalArgumentException("This item is no longer available."));
+                if (quantity > available) {
+                    throw new IllegalArgumentException("Insufficient stock. Only " + available + " items available.");
+                }
+            }
+            item.setQuantity(quantity);
+            markChanged(entry, cartItemId, quantity);
+            return copyOf(item, null);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    public boolean removeItem(Integer cartItemId) {
+        Entry entry = entryForItem(cartItemId);
+        if (entry == null) {
+            return false;
+        }
+        entry.lock.lock();
+        try {
+            CartItem item = entry.retired ? null : findItem(entry.cart, cartItemId);
+            if (item == null) {
+                return false;
+            }
+            entry.cart.getItems().remove(item);
+            itemOwners.remove(cartItemId);
+            entry.changedQuantities.remove(cartItemId);
+            entry.removedItemIds.add(cartItemId);
+            entry.touchedAt = LocalDateTime.now();
+            dirtyUsers.add(entry.userId);
+            return true;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    // Writes any pending changes for the user's cart before it is read from the database (checkout).
+    public void flush(Integer userId) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = held(userId);
+        if (entry != null) {
+            flushEntry(entry);
+        }
+    }
+
+    // Drops the user's cart without writing it, for when the cart itself is being deleted.
+    public void discard(Integer userId) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = held(userId);
+        if (entry != null) {
+            retire(entry, false);
+        }
+    }
+
+    // Same as discard, for carts identified by id (e.g. removed by the abandoned cart purge)
+    public void discardCarts(Collection<Integer> cartIds) {
+        if (!enabled) {
+            return;
+        }
+        for (Integer cartId : cartIds) {
+            Entry entry = entryForCart(cartId);
+            if (entry != null) {
+                retire(entry, false);
+            }
+        }
+    }
+
+    // Writes pending changes and drops the held copy, before the cart is changed directly in the database
+    public void evictCart(Integer cartId) {
+        if (!enabled || cartId == null) {
+            return;
+        }
+        Entry entry = entryForCart(cartId);
+        if (entry != null) {
+            retire(entry, true);
+        }
+    }
+
+    public void evictItem(Integer cartItemId) {
+        if (cartItemId == null) {
+            return;
+        }
+        Entry entry = entryForItem(cartItemId);
+        if (entry != null) {
+            retire(entry, true);
+        }
+    }
+
+    // Before a product (and with it its cart lines) is deleted
+    public void evictProduct(Integer productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        for (Entry entry : new ArrayList<>(carts.asMap().values())) {
+            boolean holdsProduct;
+            entry.lock.lock();
+            try {
+                holdsProduct = !entry.retired && entry.cart.getItems() != null && entry.cart.getItems().stream()
+                        .anyMatch(item -> item.getProduct() != null && productId.equals(item.getProduct().getProductId()));
+            } finally {
+                entry.lock.unlock();
+            }
+            if (holdsProduct) {
+                retire(entry, true);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:2000}")
+    public void flushDirty() {
+        if (!enabled) {
+            return;
+        }
+        carts.cleanUp();
+
+        List<Entry> flushed = new ArrayList<>();
+        List<PendingWrite> batch = new ArrayList<>();
+        for (Iterator<Integer> it = dirtyUsers.iterator(); it.hasNext(); ) {
+            Integer userId = it.next();
+            it.remove();
+            Entry entry = held(userId);
+            if (entry == null) {
+                continue;
+            }
+            if (!entry.lock.tryLock()) {
+                dirtyUsers.add(userId);
+                continue;
+            }
+            try {
+                PendingWrite pending = drain(entry);
+                if (pending != null) {
+                    batch.add(pending);
+                    flushed.add(entry);
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+        for (Entry entry : evicted.values()) {
+            if (flushed.contains(entry) || !entry.lock.tryLock()) {
+                continue;
+            }
+            try {
+                PendingWrite pending = drain(entry);
+                if (pending != null) {
+                    batch.add(pending);
+                    flushed.add(entry);
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            try {
+                write(batch);
+            } catch (Exception e) {
+                // Restored entries stay dirty (and parked, if evicted) until a later flush succeeds
+                logger.error("Write-behind flush of {} cart(s) failed, will retry: {}", batch.size(), e.getMessage());
+                for (int i = 0; i < flushed.size(); i++) {
+                    restore(flushed.get(i), batch.get(i));
+                }
+                return;
+            }
+        }
+        releaseEvicted();
+    }
+
+    // Drops parked entries that have nothing left to write and were not taken back in the meantime
+    private void releaseEvicted() {
+        for (Map.Entry<Integer, Entry> parked : evicted.entrySet()) {
+            Entry entry = parked.getValue();
+            if (!entry.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (!entry.isDirty() && !entry.retired && evicted.remove(parked.getKey(), entry)) {
+                    entry.retired = true;
+                    forget(entry);
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    public int getCachedCartCount() {
+        return (int) carts.estimatedSize();
+    }
+
+    public int getDirtyCartCount() {
+        return dirtyUsers.size();
+    }
+
+    private Entry entry(Integer userId) {
+        return carts.get(userId, id -> {
+            Entry parked = takeBackEvicted(id);
+            return parked != null ? parked : load(id);
+        });
+    }
+
+    // Runs inside the map's loader; safe because no entry lock holder ever calls into the map
+    private Entry takeBackEvicted(Integer userId) {
+        Entry parked = evicted.get(userId);
+        if (parked == null) {
+            return null;
+        }
+        parked.lock.lock();
+        try {
+            return !parked.retired && evicted.remove(userId, parked) ? parked : null;
+        } finally {
+            parked.lock.unlock();
+        }
+    }
+
+    private Entry load(Integer userId) {
+        return cartRepository.findByUserUserIdWithItems(userId)
+                .map(cart -> {
+                    Entry entry = new Entry(userId, cart);
+                    rememberItems(entry);
+                    cartOwners.put(cart.getCartId(), userId);
+                    return entry;
+                })
+                .orElse(null);
+    }
+
+    // The live entry, or the parked one if the cart was evicted and not written yet
+    private Entry held(Integer userId) {
+        Entry entry = carts.getIfPresent(userId);
+        return entry != null ? entry : evicted.get(userId);
+    }
+
+    private Entry entryForCart(Integer cartId) {
+        Integer userId = cartOwners.get(cartId);
+        return userId != null ? held(userId) : null;
+    }
+
+    // Takes the entry out of the map, optionally writing its pending changes first. The map is only touched
+    // after the entry lock is released; until then other callers see the entry as retired and reload.
+    private void retire(Entry entry, boolean write) {
+        entry.lock.lock();
+        try {
+            if (entry.retired) {
+                return;
+            }
+            if (write) {
+                flushEntry(entry);
+            } else {
+                drain(entry);
+            }
+            entry.retired = true;
+            forget(entry);
+        } finally {
+            entry.lock.unlock();
+        }
+        evicted.remove(entry.userId, entry);
+        carts.asMap().remove(entry.userId, entry);
+    }
+
+    private void forget(Entry entry) {
+        forgetItems(entry);
+        cartOwners.remove(entry.cart.getCartId(), entry.userId);
+    }
+
+    private Entry entryForItem(Integer cartItemId) {
+        if (!enabled) {
+            return null;
+        }
+        Integer userId = itemOwners.get(cartItemId);
+        return userId != null ? held(userId) : null;
+    }
+
+    private void flushEntry(Entry entry) {
+        entry.lock.lock();
+        try {
+            PendingWrite pending = drain(entry);
+            if (pending == null) {
+                return;
+            }
+            try {
+                write(List.of(pending));
+            } catch (RuntimeException e) {
+                restore(entry, pending);
+                throw e;
+            }
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    private PendingWrite drain(Entry entry) {
+        if (!entry.isDirty()) {
+            return null;
+        }
+        PendingWrite pending = new PendingWrite(entry.cart.getCartId(), new HashMap<>(entry.changedQuantities),
+                new HashSet<>(entry.removedItemIds), entry.touchedAt);
+        entry.changedQuantities.clear();
+        entry.removedItemIds.clear();
+        entry.touchedAt = null;
+        return pending;
+    }
+
+    private void restore(Entry entry, PendingWrite pending) {
+        entry.lock.lock();
+        try {
+            pending.quantities().forEach(entry.changedQuantities::putIfAbsent);
+            entry.removedItemIds.addAll(pending.removed());
+            entry.changedQuantities.keySet().removeAll(entry.removedItemIds);
+            if (entry.touchedAt == null) {
+                entry.touchedAt = pending.touchedAt();
+            }
+            dirtyUsers.add(entry.userId);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> touches = new ArrayList<>();
+        for (PendingWrite pending : batch) {
+            pending.quantities().forEach((itemId, quantity) -> updates.add(new Object[] { quantity, itemId, pending.cartId() }));
+            pending.removed().forEach(itemId -> deletes.add(new Object[] { itemId, pending.cartId() }));
+            touches.add(new Object[] { Timestamp.valueOf(pending.touchedAt()), pending.cartId() });
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE cart_item SET quantity = ? WHERE cart_item_id = ? AND cart_cart_id = ?", updates);
+            }
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.batchUpdate("DELETE FROM cart_item WHERE cart_item_id = ? AND cart_cart_id = ?", deletes);
+            }
+            jdbcTemplate.batchUpdate("UPDATE cart SET updated_at = ? WHERE cart_id = ?", touches);
+        });
+    }
+
+    private void markChanged(Entry entry, Integer cartItemId, int quantity) {
+        entry.changedQuantities.put(cartItemId, quantity);
+        entry.touchedAt = LocalDateTime.now();
+        entry.cart.setUpdatedAt(entry.touchedAt);
+        dirtyUsers.add(entry.userId);
+    }
+
+    private void rememberItems(Entry entry) {
+        if (entry.cart.getItems() != null) {
+            for (CartItem item : entry.cart.getItems()) {
+                itemOwners.put(item.getCartItemId(), entry.userId);
+            }
+        }
+    }
+
+    private void forgetItems(Entry entry) {
+        if (entry.cart.getItems() != null) {
+            for (CartItem item : entry.cart.getItems()) {
+                itemOwners.remove(item.getCartItemId(), entry.userId);
+            }
+        }
+    }
+
+    private static CartItem findLine(Cart cart, Integer productId, Integer colourId, Integer sizeId) {
+        if (cart.getItems() == null) {
+            return null;
+        }
+        for (CartItem item : cart.getItems()) {
+            if (item.getProduct() != null && item.getColour() != null && item.getSize() != null
+                    && item.getProduct().getProductId().equals(productId)
+                    && item.getColour().getColourId().equals(colourId)
+                    && item.getSize().getSizeId().equals(sizeId)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private static CartItem findItem(Cart cart, Integer cartItemId) {
+        if (cart.getItems() == null) {
+            return null;
+        }
+        for (CartItem item : cart.getItems()) {
+            if (cartItemId.equals(item.getCartItemId())) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private static Cart copyOf(Cart cart) {
+        Cart copy = Cart.builder()
+                .cartId(cart.getCartId())
+                .createdAt(cart.getCreatedAt())
+                .updatedAt(cart.getUpdatedAt())
+                .items(new ArrayList<>())
+                .build();
+        if (cart.getItems() != null) {
+            for (CartItem item : cart.getItems()) {
+                copy.getItems().add(copyOf(item, copy));
+            }
+        }
+        return copy;
+    }
+
+    private static CartItem copyOf(CartItem item, Cart cart) {
+        return CartItem.builder()
+                .cartItemId(item.getCartItemId())
+                .cart(cart)
+                .product(item.getProduct())
+                .colour(item.getColour())
+                .size(item.getSize())
+                .quantity(item.getQuantity())
+                .build();
+    }
+}
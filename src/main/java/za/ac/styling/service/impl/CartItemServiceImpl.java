@@ -2,12 +2,15 @@ package za.ac.styling.service.impl;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import za.ac.styling.domain.Cart;
 import za.ac.styling.domain.CartItem;
 import za.ac.styling.domain.Product;
 import za.ac.styling.repository.CartItemRepository;
+import za.ac.styling.repository.CartRepository;
 import za.ac.styling.service.CartItemService;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,15 +18,20 @@ import java.util.Optional;
 public class CartItemServiceImpl implements CartItemService {
 
     private CartItemRepository cartItemRepository;
+    private CartRepository cartRepository;
 
     @Autowired
-    public CartItemServiceImpl(CartItemRepository cartItemRepository) {
+    public CartItemServiceImpl(CartItemRepository cartItemRepository, CartRepository cartRepository) {
         this.cartItemRepository = cartItemRepository;
+        this.cartRepository = cartRepository;
     }
 
     @Override
+    @Transactional
     public CartItem create(CartItem cartItem) {
-        return cartItemRepository.save(cartItem);
+        CartItem saved = cartItemRepository.save(cartItem);
+        touchCart(saved);
+        return saved;
     }
 
     @Override
@@ -32,8 +40,11 @@ public class CartItemServiceImpl implements CartItemService {
     }
 
     @Override
+    @Transactional
     public CartItem update(CartItem cartItem) {
-        return cartItemRepository.save(cartItem);
+        CartItem saved = cartItemRepository.save(cartItem);
+        touchCart(saved);
+        return saved;
     }
 
     @Override
@@ -52,6 +63,7 @@ public class CartItemServiceImpl implements CartItemService {
     }
 
     @Override
+    @Transactional
     public CartItem addToCart(Cart cart, Product product, Integer quantity) {
         Optional<CartItem> existingItem = cartItemRepository.findByCartAndProduct(cart, product);
         if (existingItem.isPresent()) {
@@ -70,6 +82,7 @@ public class CartItemServiceImpl implements CartItemService {
     }
 
     @Override
+    @Transactional
     public CartItem updateQuantity(Integer cartItemId, Integer quantity) {
         CartItem cartItem = read(cartItemId);
         if (cartItem != null) {
@@ -87,10 +100,12 @@ public class CartItemServiceImpl implements CartItemService {
     }
 
     @Override
+    @Transactional
     public void removeFromCart(Integer cartItemId) {
         CartItem cartItem = read(cartItemId);
         if (cartItem != null) {
             cartItemRepository.delete(cartItem);
+            touchCart(cartItem);
         }
     }
 
@@ -100,7 +115,15 @@ public class CartItemServiceImpl implements CartItemService {
     }
 
     @Override
+    @Transactional
     public void delete(Integer id) {
-        cartItemRepository.deleteById(id);
+        removeFromCart(id);
+    }
+
+    // Abandoned carts are found by cart.updated_at, so every line change counts as cart activity
+    private void touchCart(CartItem cartItem) {
+        if (cartItem.getCart() != null && cartItem.getCart().getCartId() != null) {
+            cartRepository.touch(cartItem.getCart().getCartId(), LocalDateTime.now());
+        }
     }
 }
@@ -6,6 +6,7 @@ import za.ac.styling.domain.Cart;
 import za.ac.styling.domain.User;
 import za.ac.styling.repository.CartRepository;
 import za.ac.styling.service.CartService;
+import za.ac.styling.service.PricingEngine;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -16,10 +17,12 @@ import java.util.Optional;
 public class CartServiceImpl implements CartService {
 
     private CartRepository cartRepository;
+    private PricingEngine pricingEngine;
 
     @Autowired
-    public CartServiceImpl(CartRepository cartRepository) {
+    public CartServiceImpl(CartRepository cartRepository, PricingEngine pricingEngine) {
         this.cartRepository = cartRepository;
+        this.pricingEngine = pricingEngine;
     }
 
     @Override
@@ -83,14 +86,10 @@ public class CartServiceImpl implements CartService {
     @Override
     public double getCartTotal(Integer cartId) {
         Cart cart = read(cartId);
-        if (cart == null || cart.getItems() == null || cart.getItems().isEmpty()) {
+        if (cart == null) {
             return 0.0;
         }
-
-        return cart.getItems().stream()
-                .filter(item -> item.getProduct() != null && item.getColour() != null && item.getSize() != null)
-                .mapToDouble(item -> item.getProduct().getBasePrice() * item.getQuantity())
-                .sum();
+        return pricingEngine.priceCart(cart.getItems(), null).getSubtotal();
     }
 
     @Override
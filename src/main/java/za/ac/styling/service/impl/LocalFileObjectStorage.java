@@ -0,0 +1,189 @@
+package za.ac.styling.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+import za.ac.styling.service.ObjectStorage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link ObjectStorage} on the local filesystem, for development and single-node installs. Each bucket is a
+ * directory under storage.local.root; uploads are written to a temp file next to the target and atomically
+ * moved into place, so readers never see a partial object.
+ * <p>
+ * URLs are built on storage.local.public-base-url, which {@code LocalFileController} serves under /files
+ * (point the property elsewhere when a reverse proxy serves the directory instead). Signed URLs carry an
+ * expiry and an HMAC of bucket, path and expiry.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalFileObjectStorage implements ObjectStorage {
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final Path root;
+    private final String publicBaseUrl;
+    private final byte[] signingKey;
+
+    public LocalFileObjectStorage(@Value("${storage.local.root:${java.io.tmpdir}/local-storage}") String root,
+                                  @Value("${storage.local.public-base-url:http://localhost:8080/files}") String publicBaseUrl,
+                                  @Value("${storage.local.signing-key:}") String signingKey) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.publicBaseUrl = publicBaseUrl.endsWith("/")
+                ? publicBaseUrl.substring(0, publicBaseUrl.length() - 1)
+                : publicBaseUrl;
+        if (signingKey.isEmpty()) {
+            // Signed URLs then only survive until the next restart
+            this.signingKey = new byte[32];
+            new SecureRandom().nextBytes(this.signingKey);
+        } else {
+            this.signingKey = signingKey.getBytes(StandardCharsets.UTF_8);
+        }
+        Files.createDirectories(this.root);
+        log.info("Local object storage at {}", this.root);
+    }
+
+    @Override
+    public void upload(String bucket, String path, InputStreamSource content, long size, String contentType)
+            throws IOException {
+        Path target = resolve(bucket, path);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+        try {
+            try (InputStream in = content.getInputStream()) {
+                long written = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                if (written != size) {
+                    throw new IOException("Upload failed: expected " + size + " bytes but got " + written);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public String download(String bucket, String path, OutputStream out) throws IOException {
+        Path file = resolve(bucket, path);
+        try (InputStream in = Files.newInputStream(file)) {
+            in.transferTo(out);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(bucket + "/" + path);
+        }
+        String contentType = Files.probeContentType(file);
+        return contentType != null ? contentType : "application/octet-stream";
+    }
+
+    @Override
+    public void delete(String bucket, String path) throws IOException {
+        Files.deleteIfExists(resolve(bucket, path));
+    }
+
+    @Override
+    public void deleteAll(String bucket, Collection<String> paths) throws IOException {
+        IOException failure = null;
+        for (String path : paths) {
+            try {
+                delete(bucket, path);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public String sign(String bucket, String path, int expiresInSeconds) throws IOException {
+        resolve(bucket, path);
+        long expires = Instant.now().getEpochSecond() + expiresInSeconds;
+        return publicUrl(bucket, path) + "?expires=" + expires + "&token=" + token(bucket, path, expires);
+    }
+
+    @Override
+    public Map<String, String> signAll(String bucket, Collection<String> paths, int expiresInSeconds)
+            throws IOException {
+        Map<String, String> signed = new LinkedHashMap<>();
+        for (String path : paths) {
+            signed.put(path, sign(bucket, path, expiresInSeconds));
+        }
+        return signed;
+    }
+
+    @Override
+    public String publicUrl(String bucket, String path) {
+        return publicBaseUrl + "/" + bucket + "/" + path;
+    }
+
+    /**
+     * Readable file holding the object, for whatever serves the files.
+     */
+    public Path file(String bucket, String path) throws IOException {
+        Path file = resolve(bucket, path);
+        if (!Files.isRegularFile(file)) {
+            throw new FileNotFoundException(bucket + "/" + path);
+        }
+        return file;
+    }
+
+    /**
+     * Checks a token produced by {@link #sign}, for whatever serves the files.
+     */
+    public boolean verify(String bucket, String path, long expires, String token) {
+        if (expires < Instant.now().getEpochSecond() || token == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.US_ASCII),
+                token(bucket, path, expires).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String token(String bucket, String path, long expires) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(new SecretKeySpec(signingKey, HMAC));
+            byte[] digest = mac.doFinal((bucket + "\n" + path + "\n" + expires).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC + " not available", e);
+        }
+    }
+
+    // Keeps every object inside its bucket directory, whatever the path contains
+    private Path resolve(String bucket, String path) throws IOException {
+        Path bucketDir = root.resolve(bucket).normalize();
+        Path file = bucketDir.resolve(path).normalize();
+        if (!bucketDir.startsWith(root) || bucketDir.equals(root) || !file.startsWith(bucketDir) || file.equals(bucketDir)) {
+            throw new IOException("Invalid object path: " + bucket + "/" + path);
+        }
+        return file;
+    }
+}
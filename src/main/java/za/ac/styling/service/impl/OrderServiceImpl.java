@@ -7,6 +7,8 @@ import za.ac.styling.domain.OrderStatus;
 import za.ac.styling.domain.User;
 import za.ac.styling.repository.OrderRepository;
 import za.ac.styling.service.OrderService;
+import za.ac.styling.service.PriceBreakdown;
+import za.ac.styling.service.PromoEvaluation;
 
 import java.util.Date;
 import java.util.List;
@@ -23,6 +25,9 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private org.springframework.context.ApplicationEventPublisher eventPublisher;
 
+    @Autowired
+    private za.ac.styling.service.VerifiedPurchaseIndex verifiedPurchaseIndex;
+
     @Autowired
     public OrderServiceImpl(OrderRepository orderRepository) {
         this.orderRepository = orderRepository;
@@ -31,6 +36,7 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public Order create(Order order) {
         Order saved = orderRepository.save(order);
+        verifiedPurchaseIndex.orderSaved(saved);
 
         try {
             eventPublisher.publishEvent(new za.ac.styling.events.OrderPlacedEvent(this, saved));
@@ -50,6 +56,7 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public Order update(Order order) {
         Order saved = orderRepository.save(order);
+        verifiedPurchaseIndex.orderSaved(saved);
         try {
             eventPublisher.publishEvent(new za.ac.styling.events.OrderPlacedEvent(this, saved));
         } catch (Exception ex) {
@@ -123,27 +130,15 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     @org.springframework.transaction.annotation.Transactional
-    public Order createOrderWithPromo(Order order, java.util.Map<Integer, Integer> productQuantities, String promoCode,
-            Integer userId) {
-
-        long subtotalCents = Math.round(order.getSubtotal() * 100);
-
-        if (promoCode != null && !promoCode.isEmpty()) {
-            var preview = promoService.processPromo(promoCode, userId, productQuantities, subtotalCents, false, null);
-            if (!preview.isApplied()) {
-                throw new IllegalArgumentException("Promo invalid: " + preview.getMessage());
-            }
-            order.setDiscountAmount(preview.getDiscountAmountCents() / 100.0);
-            order.setTotalAmount(preview.getFinalTotalCents() / 100.0 + order.getShippingCost() + order.getTaxAmount());
-        }
+    public Order createOrderWithPromo(Order order, PriceBreakdown pricing, PromoEvaluation promo, Integer userId) {
 
+        // The discount was evaluated once at checkout and is already in pricing/order; only redeem it here
         Order saved = orderRepository.save(order);
 
-        if (promoCode != null && !promoCode.isEmpty()) {
-            var finalizeRes = promoService.processPromo(promoCode, userId, productQuantities, subtotalCents, true,
-                    saved.getOrderId());
-            if (!finalizeRes.isApplied()) {
-                throw new IllegalStateException("Failed to finalize promo usage: " + finalizeRes.getMessage());
+        if (promo != null) {
+            var redeemed = promoService.redeemPromo(promo, userId, pricing, saved.getOrderId());
+            if (!redeemed.isApplied()) {
+                throw new IllegalStateException("Failed to finalize promo usage: " + redeemed.getMessage());
             }
         }
 
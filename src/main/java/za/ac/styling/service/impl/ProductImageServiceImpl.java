@@ -2,11 +2,14 @@ package za.ac.styling.service.impl;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import za.ac.styling.domain.Product;
 import za.ac.styling.domain.ProductImage;
 import za.ac.styling.factory.ProductImageFactory;
 import za.ac.styling.repository.ProductImageRepository;
+import za.ac.styling.service.ProductColourImageIndex;
 import za.ac.styling.service.ProductImageService;
+import za.ac.styling.service.SupabaseStorageService;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,15 +18,23 @@ import java.util.Optional;
 public class ProductImageServiceImpl implements ProductImageService {
 
     private ProductImageRepository productImageRepository;
+    private ProductColourImageIndex colourImageIndex;
+    private SupabaseStorageService storageService;
 
     @Autowired
-    public ProductImageServiceImpl(ProductImageRepository productImageRepository) {
+    public ProductImageServiceImpl(ProductImageRepository productImageRepository,
+                                   ProductColourImageIndex colourImageIndex,
+                                   SupabaseStorageService storageService) {
         this.productImageRepository = productImageRepository;
+        this.colourImageIndex = colourImageIndex;
+        this.storageService = storageService;
     }
 
     @Override
     public ProductImage create(ProductImage productImage) {
-        return productImageRepository.save(productImage);
+        ProductImage saved = productImageRepository.save(productImage);
+        evictColourImages(saved);
+        return saved;
     }
 
     @Override
@@ -33,7 +44,9 @@ public class ProductImageServiceImpl implements ProductImageService {
 
     @Override
     public ProductImage update(ProductImage productImage) {
-        return productImageRepository.save(productImage);
+        ProductImage saved = productImageRepository.save(productImage);
+        evictColourImages(saved);
+        return saved;
     }
 
     @Override
@@ -103,7 +116,19 @@ public class ProductImageServiceImpl implements ProductImageService {
     }
 
     @Override
+    @Transactional
     public void delete(Long id) {
+        ProductImage image = read(id);
         productImageRepository.deleteById(id);
+        if (image != null) {
+            storageService.deleteProductImage(image);
+        }
+        evictColourImages(image);
+    }
+
+    private void evictColourImages(ProductImage image) {
+        if (image != null && image.getProduct() != null && image.getProduct().getProductId() != null) {
+            colourImageIndex.evict(image.getProduct().getProductId());
+        }
     }
 }
\ No newline at end of file
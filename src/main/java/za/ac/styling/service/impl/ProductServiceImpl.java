@@ -2,12 +2,17 @@ package za.ac.styling.service.impl;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import za.ac.styling.domain.Category;
 import za.ac.styling.domain.Product;
 import za.ac.styling.domain.ProductImage;
 import za.ac.styling.repository.ProductRepository;
 import za.ac.styling.repository.ProductImageRepository;
+import za.ac.styling.service.ProductColourImageIndex;
+import za.ac.styling.service.ProductPriceCache;
 import za.ac.styling.service.ProductService;
+import za.ac.styling.service.SupabaseStorageService;
+import za.ac.styling.service.WriteBehindCartStore;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,6 +25,18 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private ProductImageRepository productImageRepository;
 
+    @Autowired
+    private ProductColourImageIndex colourImageIndex;
+
+    @Autowired
+    private ProductPriceCache productPriceCache;
+
+    @Autowired
+    private SupabaseStorageService storageService;
+
+    @Autowired
+    private WriteBehindCartStore cartStore;
+
     @Autowired
     public ProductServiceImpl(ProductRepository productRepository) {
         this.productRepository = productRepository;
@@ -42,7 +59,10 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public Product update(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        colourImageIndex.evict(saved.getProductId());
+        productPriceCache.evict(saved.getProductId());
+        return saved;
     }
 
     @Override
@@ -156,7 +176,13 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Transactional
     public void delete(Integer id) {
+        List<ProductImage> images = productImageRepository.findByProductProductId(id);
+        cartStore.evictProduct(id);
         productRepository.deleteById(id);
+        images.forEach(storageService::deleteProductImage);
+        colourImageIndex.evict(id);
+        productPriceCache.evict(id);
     }
 }
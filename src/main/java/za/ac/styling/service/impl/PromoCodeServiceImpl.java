@@ -9,10 +9,20 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import za.ac.styling.domain.*;
 import za.ac.styling.repository.*;
+import za.ac.styling.service.CompiledPromo;
+import za.ac.styling.service.PriceBreakdown;
+import za.ac.styling.service.PricingEngine;
+import za.ac.styling.service.ProductPriceCache;
+import za.ac.styling.service.PromoCodeBloomFilter;
 import za.ac.styling.service.PromoCodeService;
+import za.ac.styling.service.PromoEvaluation;
+import za.ac.styling.service.PromoRuleCache;
+import za.ac.styling.service.PromoUsageCounter;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,12 +46,33 @@ public class PromoCodeServiceImpl implements PromoCodeService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PromoRuleCache promoRuleCache;
+
+    @Autowired
+    private ProductPriceCache productPriceCache;
+
+    @Autowired
+    private PromoUsageCounter promoUsageCounter;
+
+    @Autowired
+    private PromoCodeBloomFilter promoCodeBloomFilter;
+
+    @org.springframework.beans.factory.annotation.Value("${promo.evaluation.max-age-seconds:300}")
+    private long evaluationMaxAgeSeconds;
+
     @Override
     public PromoCode create(PromoCode promoCode) {
         if (promoCodeRepository.existsByCodeIgnoreCase(promoCode.getCode())) {
             throw new IllegalArgumentException("Promo code already exists: " + promoCode.getCode());
         }
-        return promoCodeRepository.save(promoCode);
+        PromoCode saved = promoCodeRepository.save(promoCode);
+        promoRuleCache.invalidateAll();
+        promoCodeBloomFilter.add(saved.getCode());
+        return saved;
     }
 
     @Override
@@ -51,7 +82,10 @@ public class PromoCodeServiceImpl implements PromoCodeService {
 
     @Override
     public PromoCode update(PromoCode promoCode) {
-        return promoCodeRepository.save(promoCode);
+        PromoCode saved = promoCodeRepository.save(promoCode);
+        promoRuleCache.invalidateAll();
+        promoCodeBloomFilter.add(saved.getCode());
+        return saved;
     }
 
     @Override
@@ -62,6 +96,7 @@ public class PromoCodeServiceImpl implements PromoCodeService {
     @Override
     public void delete(Integer id) {
         promoCodeRepository.deleteById(id);
+        promoRuleCache.invalidateAll();
     }
 
     @Override
@@ -92,6 +127,8 @@ public class PromoCodeServiceImpl implements PromoCodeService {
             }
         }
 
+        promoRuleCache.invalidateAll();
+        promoCodeBloomFilter.add(savedPromo.getCode());
         return savedPromo;
     }
 
@@ -133,6 +170,8 @@ public class PromoCodeServiceImpl implements PromoCodeService {
             }
         }
 
+        promoRuleCache.invalidateAll();
+        promoCodeBloomFilter.add(updatedPromo.getCode());
         return updatedPromo;
     }
 
@@ -140,28 +179,27 @@ public class PromoCodeServiceImpl implements PromoCodeService {
     public PromoValidationResult validatePromoCode(String code, Integer userId, List<Integer> productIds,
             double cartTotal) {
 
-        long cartCents = Math.round(cartTotal * 100);
+        long cartCents = PricingEngine.toCents(cartTotal);
         PromoCodeService.PromoApplicationResult result = processPromo(code, userId,
                 productIds.stream().collect(Collectors.toMap(id -> id, id -> 1)), cartCents, false, null);
         if (!result.isApplied()) {
             return new PromoValidationResult(false, result.getMessage(), null);
         }
-        return new PromoValidationResult(true, "Promo code is valid",
-                promoCodeRepository.findByCodeIgnoreCase(code).orElse(null));
+        return new PromoValidationResult(true, "Promo code is valid", result.getPromoCode());
     }
 
     @Override
     public PromoDiscountResult applyPromoCode(String code, Integer userId, Map<Integer, Integer> productQuantities,
             double cartSubtotal) {
 
-        long cartCents = Math.round(cartSubtotal * 100);
+        long cartCents = PricingEngine.toCents(cartSubtotal);
         PromoCodeService.PromoApplicationResult result = processPromo(code, userId, productQuantities, cartCents, false,
                 null);
         if (!result.isApplied()) {
             return new PromoDiscountResult(false, 0, cartSubtotal, result.getMessage(), new ArrayList<>());
         }
-        double discountAmount = result.getDiscountAmountCents() / 100.0;
-        double finalTotal = result.getFinalTotalCents() / 100.0;
+        double discountAmount = PricingEngine.toAmount(result.getDiscountAmountCents());
+        double finalTotal = PricingEngine.toAmount(result.getFinalTotalCents());
         return new PromoDiscountResult(true, discountAmount, finalTotal, result.getMessage(),
                 result.getEligibleProductIds());
     }
@@ -174,116 +212,152 @@ public class PromoCodeServiceImpl implements PromoCodeService {
         log.info("Process promo: code={}, userId={}, products={}, cartCents={}, finalizeUsage={}", code, userId,
                 productQuantities, cartSubtotalCents, finalizeUsage);
 
-        PromoCode promoCode = promoCodeRepository.findByCodeIgnoreCase(code).orElse(null);
-        if (promoCode == null) {
-            log.info("Promo not found: {}", code);
-            return PromoApplicationResult.failure("Promo code not found");
-        }
+        return processPromo(code, userId, cartSubtotalCents, promo -> {
+            Map<Integer, Long> prices = productPriceCache.priceCents(productQuantities.keySet());
+            long eligibleCents = 0L;
+            for (Map.Entry<Integer, Integer> entry : productQuantities.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null && promo.isEligible(entry.getKey())) {
+                    long unitCents = prices.getOrDefault(entry.getKey(), PricingEngine.NO_PRICE);
+                    if (unitCents != PricingEngine.NO_PRICE) {
+                        eligibleCents += unitCents * entry.getValue();
+                    }
+                }
+            }
+            return eligibleCents;
+        }, finalizeUsage, orderId);
+    }
 
-        if (!promoCode.isActive()) {
-            return PromoApplicationResult.failure("Promo code is inactive");
+    @Override
+    @Transactional
+    public PromoCodeService.PromoApplicationResult processPromo(String code, Integer userId, PriceBreakdown pricing,
+            boolean finalizeUsage, Integer orderId) {
+        log.info("Process promo: code={}, userId={}, lines={}, cartCents={}, finalizeUsage={}", code, userId,
+                pricing.getLineCount(), pricing.getSubtotalCents(), finalizeUsage);
+
+        return processPromo(code, userId, pricing.getSubtotalCents(),
+                promo -> pricing.getSubtotalCents(promo::isEligible), finalizeUsage, orderId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PromoEvaluation evaluatePromo(String code, Integer userId, PriceBreakdown pricing) {
+        log.info("Evaluate promo: code={}, userId={}, lines={}, cartCents={}", code, userId,
+                pricing.getLineCount(), pricing.getSubtotalCents());
+
+        return evaluate(code, userId, pricing.getSubtotalCents(), promo -> pricing.getSubtotalCents(promo::isEligible));
+    }
+
+    @Override
+    @Transactional
+    public PromoCodeService.PromoApplicationResult redeemPromo(PromoEvaluation evaluation, Integer userId,
+            PriceBreakdown pricing, Integer orderId) {
+        if (evaluation == null || !evaluation.isIssuedFor(userId, pricing)) {
+            return PromoApplicationResult.failure("Promo evaluation does not match this order");
         }
-        LocalDateTime now = LocalDateTime.now();
-        if (promoCode.getStartDate() != null && now.isBefore(promoCode.getStartDate())) {
-            return PromoApplicationResult.failure("Promo code not yet valid");
+
+        if (evaluation.isOlderThan(Duration.ofSeconds(evaluationMaxAgeSeconds))) {
+            PromoEvaluation fresh = evaluatePromo(evaluation.getPromo().getCode(), userId, pricing);
+            if (!fresh.isApplied()) {
+                return fresh.getResult();
+            }
+            if (fresh.getDiscountAmountCents() != evaluation.getDiscountAmountCents()) {
+                return PromoApplicationResult.failure("Promo code changed since it was applied");
+            }
+            evaluation = fresh;
         }
 
-        if (promoCode.getEndDate() != null) {
-            LocalDateTime endOfDay = promoCode.getEndDate().toLocalDate().atTime(23, 59, 59);
-            if (now.isAfter(endOfDay)) {
-                return PromoApplicationResult.failure("Promo code has expired");
+        // Only usage can have changed since evaluation: re-check the user's count, then take a global slot
+        CompiledPromo promo = evaluation.getPromo();
+        if (userId != null && promo.needsUserUsageCheck()) {
+            String limitReached = promo.checkUserUsage(promoUsageCounter.countExact(promo.getPromoId(), userId));
+            if (limitReached != null) {
+                return PromoApplicationResult.failure(limitReached);
             }
         }
+        if (!recordUsage(promo, userId, orderId)) {
+            return PromoApplicationResult.failure("Promo code usage limit reached");
+        }
+        return evaluation.getResult();
+    }
+
+    private PromoCodeService.PromoApplicationResult processPromo(String code, Integer userId, long cartSubtotalCents,
+            ToLongFunction<CompiledPromo> eligibleTotal, boolean finalizeUsage, Integer orderId) {
+        PromoEvaluation evaluation = evaluate(code, userId, cartSubtotalCents, eligibleTotal);
+        if (!finalizeUsage || !evaluation.isApplied()) {
+            return evaluation.getResult();
+        }
 
-        if (promoCode.getUsageLimit() != null && promoCode.getCurrentUsage() >= promoCode.getUsageLimit()) {
+        CompiledPromo promo = evaluation.getPromo();
+        if (!recordUsage(promo, userId, orderId)) {
             return PromoApplicationResult.failure("Promo code usage limit reached");
         }
+        PromoApplicationResult result = evaluation.getResult();
+        return PromoApplicationResult.success(result.getDiscountAmountCents(), result.getFinalTotalCents(),
+                result.getMessage(), result.getEligibleProductIds(), promo.getPromoId(),
+                promoCodeRepository.findById(promo.getPromoId()).orElse(promo.getPromoCode()));
+    }
 
-        if (userId != null) {
-            if (promoCode.isOneTimeUse() && hasUserUsedPromo(promoCode.getPromoId(), userId)) {
-                return PromoApplicationResult.failure("You have already used this promo code");
-            }
+    // Rule, eligibility and prices come from caches; the per-user usage count is the only query here
+    private PromoEvaluation evaluate(String code, Integer userId, long cartSubtotalCents,
+            ToLongFunction<CompiledPromo> eligibleTotal) {
+        CompiledPromo promo = promoRuleCache.get(code);
+        if (promo == null) {
+            log.info("Promo not found: {}", code);
+            return PromoEvaluation.rejected(PromoApplicationResult.failure("Promo code not found"));
+        }
 
-            if (promoCode.getPerUserUsageLimit() != null && promoCode.getPerUserUsageLimit() > 0) {
-                long userUsageCount = getUserPromoUsageCount(promoCode.getPromoId(), userId);
-                if (userUsageCount >= promoCode.getPerUserUsageLimit()) {
-                    return PromoApplicationResult.failure(
-                        String.format("You have reached your usage limit (%d) for this promo code", 
-                            promoCode.getPerUserUsageLimit()));
-                }
-            }
+        String unavailable = promo.checkAvailability(LocalDateTime.now());
+        if (unavailable != null) {
+            return PromoEvaluation.rejected(PromoApplicationResult.failure(unavailable));
         }
 
-        if (promoCode.getMinPurchaseAmount() != null) {
-            long minCents = Math.round(promoCode.getMinPurchaseAmount() * 100);
-            if (cartSubtotalCents < minCents) {
-                return PromoApplicationResult
-                        .failure(String.format("Minimum purchase of R%.2f required", promoCode.getMinPurchaseAmount()));
+        if (userId != null && promo.needsUserUsageCheck()) {
+            String limitReached = promo.checkUserUsage(getUserPromoUsageCount(promo.getPromoId(), userId));
+            if (limitReached != null) {
+                return PromoEvaluation.rejected(PromoApplicationResult.failure(limitReached));
             }
         }
 
-        List<Integer> eligibleProductIds = getEligibleProductIds(promoCode.getPromoId());
-        long eligibleTotalCents = 0L;
-        if (eligibleProductIds.isEmpty()) {
+        if (!promo.meetsMinimumPurchase(cartSubtotalCents)) {
+            return PromoEvaluation.rejected(PromoApplicationResult
+                    .failure(String.format("Minimum purchase of R%.2f required", promo.getMinPurchaseAmount())));
+        }
+
+        long eligibleTotalCents;
+        if (!promo.restrictsProducts()) {
             eligibleTotalCents = cartSubtotalCents;
         } else {
-            for (Map.Entry<Integer, Integer> entry : productQuantities.entrySet()) {
-                Integer productId = entry.getKey();
-                if (eligibleProductIds.contains(productId)) {
-                    Product product = productRepository.findById(productId).orElse(null);
-                    if (product != null) {
-                        long priceCents = Math.round(product.getBasePrice() * 100);
-                        eligibleTotalCents += priceCents * entry.getValue();
-                    }
-                }
-            }
+            eligibleTotalCents = eligibleTotal.applyAsLong(promo);
             if (eligibleTotalCents == 0L) {
-                return PromoApplicationResult.failure("No eligible products in cart");
+                return PromoEvaluation.rejected(PromoApplicationResult.failure("No eligible products in cart"));
             }
         }
 
-        long discountCents = 0L;
-        if (promoCode.getDiscountType() == PromoCode.DiscountType.PERCENTAGE) {
-
-            discountCents = Math.round((eligibleTotalCents * promoCode.getDiscountValue()) / 100.0);
-        } else if (promoCode.getDiscountType() == PromoCode.DiscountType.FIXED) {
-            long fixedCents = Math.round(promoCode.getDiscountValue() * 100);
-            discountCents = Math.min(fixedCents, eligibleTotalCents);
-        }
-
+        long discountCents = promo.discountCents(eligibleTotalCents);
         long finalTotalCents = cartSubtotalCents - discountCents;
         String message = String.format("Promo applied! Saved R%.2f", discountCents / 100.0);
 
-        if (finalizeUsage) {
-
-            int updated = promoCodeRepository.incrementUsageIfBelowLimit(promoCode.getPromoId());
-            if (updated == 0) {
-                return PromoApplicationResult.failure("Promo code usage limit reached");
-            }
-
-            User user = null;
-            if (userId != null) {
-                user = userRepository.findById(userId)
-                        .orElseThrow(() -> new IllegalArgumentException("User not found"));
-            }
-            za.ac.styling.domain.Order order = null;
-            if (orderId != null) {
-                order = null;
-
-            }
-
-            PromoUsage usage = PromoUsage.builder()
-                    .promoCode(promoCode)
-                    .user(user)
-                    .order(order)
-                    .build();
-            promoUsageRepository.save(usage);
+        return promo.seal(PromoApplicationResult.success(discountCents, finalTotalCents, message,
+                promo.getEligibleProductIds(), promo.getPromoId(), promo.getPromoCode()), userId, cartSubtotalCents);
+    }
 
-            promoCode = promoCodeRepository.findById(promoCode.getPromoId()).orElse(promoCode);
+    // Atomically takes one global usage slot and records the user's usage; false when the limit is reached
+    private boolean recordUsage(CompiledPromo promo, Integer userId, Integer orderId) {
+        int updated = promoCodeRepository.incrementUsageIfBelowLimit(promo.getPromoId());
+        // currentUsage changed (or the limit was hit), so the compiled rule's usage snapshot is stale
+        promoRuleCache.invalidate(promo.getCode());
+        if (updated == 0) {
+            return false;
         }
 
-        return PromoApplicationResult.success(discountCents, finalTotalCents, message, eligibleProductIds,
-                promoCode.getPromoId(), promoCode);
+        PromoUsage usage = PromoUsage.builder()
+                .promoCode(promoCodeRepository.getReferenceById(promo.getPromoId()))
+                .user(userId != null ? userRepository.getReferenceById(userId) : null)
+                .order(orderId != null ? orderRepository.getReferenceById(orderId) : null)
+                .build();
+        promoUsageRepository.save(usage);
+        promoUsageCounter.recordUsage(promo.getPromoId(), userId);
+        return true;
     }
 
     @Override
@@ -299,7 +373,8 @@ public class PromoCodeServiceImpl implements PromoCodeService {
 
         Order order = null;
         if (orderId != null) {
-
+            order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new IllegalArgumentException("Order not found"));
         }
 
         PromoUsage usage = PromoUsage.builder()
@@ -308,18 +383,20 @@ public class PromoCodeServiceImpl implements PromoCodeService {
                 .order(order)
                 .build();
         promoUsageRepository.save(usage);
+        promoUsageCounter.recordUsage(promoId, userId);
 
         promoCode.setCurrentUsage(promoCode.getCurrentUsage() + 1);
         promoCodeRepository.save(promoCode);
+        promoRuleCache.invalidate(promoCode.getCode());
     }
 
     @Override
     public boolean hasUserUsedPromo(Integer promoId, Integer userId) {
-        return promoUsageRepository.countByPromoIdAndUserId(promoId, userId) > 0;
+        return promoUsageCounter.count(promoId, userId) > 0;
     }
 
     public long getUserPromoUsageCount(Integer promoId, Integer userId) {
-        return promoUsageRepository.countByPromoIdAndUserId(promoId, userId);
+        return promoUsageCounter.count(promoId, userId);
     }
 
     @Override
@@ -331,4 +408,13 @@ public class PromoCodeServiceImpl implements PromoCodeService {
     public List<Integer> getEligibleProductIds(Integer promoId) {
         return promoProductRepository.findProductIdsByPromoId(promoId);
     }
+
+    @Override
+    public Map<Integer, List<Integer>> getEligibleProductIdsByPromo() {
+        Map<Integer, List<Integer>> byPromo = new HashMap<>();
+        for (Object[] row : promoProductRepository.findAllPromoProductIds()) {
+            byPromo.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((Integer) row[1]);
+        }
+        return byPromo;
+    }
 }
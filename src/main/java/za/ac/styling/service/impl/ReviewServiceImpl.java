@@ -1,28 +1,47 @@
 package za.ac.styling.service.impl;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import za.ac.styling.domain.Product;
 import za.ac.styling.domain.Review;
+import za.ac.styling.domain.ReviewImage;
 import za.ac.styling.domain.User;
 import za.ac.styling.repository.ReviewRepository;
+import za.ac.styling.service.ProductRatingAggregator;
+import za.ac.styling.service.RatingSummary;
 import za.ac.styling.service.ReviewService;
+import za.ac.styling.service.SupabaseStorageService;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
 import java.util.List;
 
 @Service
 public class ReviewServiceImpl implements ReviewService {
 
+    private static final int MAX_PAGE_SIZE = 50;
+
     private ReviewRepository reviewRepository;
+    private ProductRatingAggregator ratingAggregator;
+    private SupabaseStorageService storageService;
 
     @Autowired
-    public ReviewServiceImpl(ReviewRepository reviewRepository) {
+    public ReviewServiceImpl(ReviewRepository reviewRepository, ProductRatingAggregator ratingAggregator,
+                             SupabaseStorageService storageService) {
         this.reviewRepository = reviewRepository;
+        this.ratingAggregator = ratingAggregator;
+        this.storageService = storageService;
     }
 
     @Override
+    @Transactional
     public Review create(Review review) {
-        return reviewRepository.save(review);
+        Review saved = reviewRepository.saveAndFlush(review);
+        ratingAggregator.reviewChanged(null, 0, productIdOf(saved), saved.getRating());
+        return saved;
     }
 
     @Override
@@ -31,8 +50,26 @@ public class ReviewServiceImpl implements ReviewService {
     }
 
     @Override
+    @Transactional
     public Review update(Review review) {
-        return reviewRepository.save(review);
+        Object[] before = review.getReviewId() != null ? ratingAndProduct(review.getReviewId()) : null;
+        Review saved = reviewRepository.saveAndFlush(review);
+        if (before != null) {
+            ratingAggregator.reviewChanged((Integer) before[1], ((Number) before[0]).intValue(),
+                    productIdOf(saved), saved.getRating());
+        } else {
+            ratingAggregator.reviewChanged(null, 0, productIdOf(saved), saved.getRating());
+        }
+        return saved;
+    }
+
+    private Object[] ratingAndProduct(Integer reviewId) {
+        List<Object[]> rows = reviewRepository.findRatingAndProductId(reviewId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static Integer productIdOf(Review review) {
+        return review.getProduct() != null ? review.getProduct().getProductId() : null;
     }
 
     @Override
@@ -77,24 +114,87 @@ public class ReviewServiceImpl implements ReviewService {
 
     @Override
     public double calculateAverageRating(Product product) {
-        List<Review> reviews = reviewRepository.findByProduct(product);
-        if (reviews.isEmpty()) {
-            return 0.0;
-        }
-
-        return reviews.stream()
-                .mapToInt(Review::getRating)
-                .average()
-                .orElse(0.0);
+        return ratingAggregator.getSummary(product.getProductId()).getAverage();
     }
 
     @Override
     public long countByProduct(Product product) {
-        return reviewRepository.countByProduct(product);
+        return ratingAggregator.getSummary(product.getProductId()).getCount();
+    }
+
+    @Override
+    public RatingSummary getRatingSummary(Integer productId) {
+        return ratingAggregator.getSummary(productId);
     }
 
     @Override
+    public ReviewPage findPageByProductId(Integer productId, String sort, String cursor, int size) {
+        boolean byHelpful = "helpful".equalsIgnoreCase(sort);
+        PageRequest limit = PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)) + 1);
+
+        List<Review> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = byHelpful
+                    ? reviewRepository.findFirstPageByHelpful(productId, limit)
+                    : reviewRepository.findFirstPageByDate(productId, limit);
+        } else if (byHelpful) {
+            long[] position = decodeCursor(cursor, "h");
+            rows = reviewRepository.findPageByHelpfulAfter(productId, (int) position[1], (int) position[2], limit);
+        } else {
+            // Undated reviews sort after all dated ones, so their cursor ('n') only carries the review id
+            long[] position = decodeCursor(cursor, "dn");
+            rows = position[0] == 'n'
+                    ? reviewRepository.findPageByNullDateAfter(productId, (int) position[2], limit)
+                    : reviewRepository.findPageByDateAfter(productId, new Date(position[1]), (int) position[2], limit);
+        }
+
+        // One extra row was fetched only to learn whether another page exists
+        int pageSize = limit.getPageSize() - 1;
+        if (rows.size() <= pageSize) {
+            return new ReviewPage(rows, null);
+        }
+        List<Review> page = rows.subList(0, pageSize);
+        Review last = page.get(pageSize - 1);
+        if (byHelpful) {
+            return new ReviewPage(page, encodeCursor('h', last.getHelpfulCount(), last.getReviewId()));
+        }
+        if (last.getReviewDate() == null) {
+            return new ReviewPage(page, encodeCursor('n', 0, last.getReviewId()));
+        }
+        return new ReviewPage(page, encodeCursor('d', last.getReviewDate().getTime(), last.getReviewId()));
+    }
+
+    private static String encodeCursor(char sort, long key, Integer reviewId) {
+        String raw = sort + ":" + key + ":" + reviewId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Returns {sort, key, reviewId}; sort must be one of expectedSorts
+    private static long[] decodeCursor(String cursor, String expectedSorts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            String[] parts = raw.split(":");
+            if (parts.length != 3 || parts[0].length() != 1 || expectedSorts.indexOf(parts[0].charAt(0)) < 0) {
+                throw new IllegalArgumentException("Invalid review cursor");
+            }
+            return new long[] { parts[0].charAt(0), Long.parseLong(parts[1]), Long.parseLong(parts[2]) };
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid review cursor", e);
+        }
+    }
+
+    @Override
+    @Transactional
     public void delete(Integer id) {
+        Object[] before = ratingAndProduct(id);
+        List<ReviewImage> images = reviewRepository.findById(id)
+                .map(review -> review.getImages() != null ? List.copyOf(review.getImages()) : List.<ReviewImage>of())
+                .orElse(List.of());
         reviewRepository.deleteById(id);
+        reviewRepository.flush();
+        images.forEach(storageService::deleteReviewImage);
+        if (before != null) {
+            ratingAggregator.reviewChanged((Integer) before[1], ((Number) before[0]).intValue(), null, 0);
+        }
     }
 }
@@ -0,0 +1,348 @@
+package za.ac.styling.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+import za.ac.styling.service.ObjectStorage;
+import za.ac.styling.service.StreamingRequestBody;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ObjectStorage} over the Supabase Storage REST API. Large uploads go through the resumable (TUS)
+ * endpoint in 6 MB chunks.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "supabase", matchIfMissing = true)
+public class SupabaseObjectStorage implements ObjectStorage {
+
+    // Supabase's resumable endpoint only accepts 6 MB chunks (the last one may be shorter)
+    private static final long TUS_CHUNK_BYTES = 6L * 1024 * 1024;
+    private static final String TUS_VERSION = "1.0.0";
+    private static final MediaType TUS_CHUNK_TYPE = MediaType.get("application/offset+octet-stream");
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final int SIGN_BATCH_SIZE = 100;
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    @Value("${SUPABASE_URL}")
+    private String supabaseUrl;
+
+    @Value("${SUPABASE_SERVICE_KEY}")
+    private String serviceRoleKey;
+
+    @Value("${storage.upload.resumable-threshold-bytes:6291456}")
+    private long resumableThresholdBytes;
+
+    @Value("${storage.upload.max-resume-attempts:3}")
+    private int maxResumeAttempts;
+
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+
+    // Shares the application client's connection pool and dispatcher; a whole upload may outlast its call
+    // timeout, so only each read and write is bounded here
+    public SupabaseObjectStorage(ObjectMapper objectMapper,
+                                 OkHttpClient httpClient,
+                                 @Value("${storage.http.timeout-ms:30000}") long timeoutMs) {
+        this.objectMapper = objectMapper;
+        this.httpClient = httpClient.newBuilder()
+                .readTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .callTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Override
+    public void upload(String bucket, String path, InputStreamSource content, long size, String contentType)
+            throws IOException {
+        if (size > resumableThresholdBytes) {
+            uploadResumable(content, size, bucket, path, contentType);
+        } else {
+            uploadSingle(content, size, bucket, path, contentType);
+        }
+    }
+
+    private void uploadSingle(InputStreamSource content, long size, String bucket, String path, String contentType)
+            throws IOException {
+        String uploadUrl = String.format("%s/storage/v1/object/%s/%s",
+                supabaseUrl, bucket, path);
+
+        RequestBody requestBody = StreamingRequestBody.of(content, MediaType.parse(contentType), size);
+
+        Request request = new Request.Builder()
+                .url(uploadUrl)
+                .post(requestBody)
+                .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                .addHeader("Content-Type", contentType)
+                .addHeader("x-upsert", "true")
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                String errorBody = response.body() != null ? response.body().string() : "Unknown error";
+                log.error("❌ Supabase upload FAILED - Bucket: {}, Path: {}, Status: {}, Error: {}",
+                        bucket, path, response.code(), errorBody);
+                throw new IOException("Upload failed: " + response.code() + " - " + errorBody);
+            }
+        }
+    }
+
+    /**
+     * Uploads through Supabase's TUS endpoint in fixed-size chunks. A failed chunk asks the server how much
+     * it has and resumes from there, up to storage.upload.max-resume-attempts times in a row.
+     */
+    private void uploadResumable(InputStreamSource content, long size, String bucket, String path, String contentType)
+            throws IOException {
+        String endpoint = supabaseUrl + "/storage/v1/upload/resumable";
+
+        Request create = new Request.Builder()
+                .url(endpoint)
+                .post(RequestBody.create(new byte[0]))
+                .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                .addHeader("Tus-Resumable", TUS_VERSION)
+                .addHeader("Upload-Length", Long.toString(size))
+                .addHeader("Upload-Metadata", tusMetadata(bucket, path, contentType))
+                .addHeader("x-upsert", "true")
+                .build();
+
+        HttpUrl uploadUrl;
+        try (Response response = httpClient.newCall(create).execute()) {
+            String location = response.header("Location");
+            if (!response.isSuccessful() || location == null) {
+                String errorBody = response.body() != null ? response.body().string() : "Unknown error";
+                log.error("❌ Supabase resumable upload FAILED to start - Bucket: {}, Path: {}, Status: {}, Error: {}",
+                        bucket, path, response.code(), errorBody);
+                throw new IOException("Upload failed: " + response.code() + " - " + errorBody);
+            }
+            uploadUrl = HttpUrl.get(endpoint).resolve(location);
+            if (uploadUrl == null) {
+                throw new IOException("Upload failed: invalid upload location " + location);
+            }
+        }
+
+        long offset = 0;
+        int attempts = 0;
+        while (offset < size) {
+            long length = Math.min(TUS_CHUNK_BYTES, size - offset);
+            Request chunk = new Request.Builder()
+                    .url(uploadUrl)
+                    .patch(StreamingRequestBody.slice(content, TUS_CHUNK_TYPE, offset, length))
+                    .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                    .addHeader("Tus-Resumable", TUS_VERSION)
+                    .addHeader("Upload-Offset", Long.toString(offset))
+                    .build();
+            try (Response response = httpClient.newCall(chunk).execute()) {
+                String next = response.header("Upload-Offset");
+                if (!response.isSuccessful() || next == null) {
+                    throw new IOException("Chunk upload failed: " + response.code());
+                }
+                offset = Long.parseLong(next);
+                attempts = 0;
+            } catch (IOException e) {
+                if (++attempts > maxResumeAttempts) {
+                    log.error("❌ Supabase resumable upload FAILED - Bucket: {}, Path: {}, Offset: {}, Error: {}",
+                            bucket, path, offset, e.getMessage());
+                    throw e;
+                }
+                log.warn("Resumable upload chunk failed at offset {} for {}/{}, resuming: {}",
+                        offset, bucket, path, e.getMessage());
+                offset = tusOffset(uploadUrl);
+            }
+        }
+    }
+
+    private long tusOffset(HttpUrl uploadUrl) throws IOException {
+        Request head = new Request.Builder()
+                .url(uploadUrl)
+                .head()
+                .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                .addHeader("Tus-Resumable", TUS_VERSION)
+                .build();
+        try (Response response = httpClient.newCall(head).execute()) {
+            String offset = response.header("Upload-Offset");
+            if (!response.isSuccessful() || offset == null) {
+                throw new IOException("Could not resume upload: " + response.code());
+            }
+            return Long.parseLong(offset);
+        }
+    }
+
+    private static String tusMetadata(String bucket, String path, String contentType) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        return "bucketName " + encoder.encodeToString(bucket.getBytes(StandardCharsets.UTF_8))
+                + ",objectName " + encoder.encodeToString(path.getBytes(StandardCharsets.UTF_8))
+                + ",contentType " + encoder.encodeToString(contentType.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void delete(String bucket, String path) throws IOException {
+        String deleteUrl = String.format("%s/storage/v1/object/%s/%s",
+                supabaseUrl, bucket, path);
+
+        Request request = new Request.Builder()
+                .url(deleteUrl)
+                .delete()
+                .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful() && response.code() != 404) {
+                String errorBody = response.body() != null ? response.body().string() : "Unknown error";
+                throw new IOException("Delete failed: " + response.code() + " - " + errorBody);
+            }
+        }
+    }
+
+    // Supabase deletes up to 1000 objects per call; missing objects are simply skipped
+    @Override
+    public void deleteAll(String bucket, Collection<String> paths) throws IOException {
+        List<String> all = new ArrayList<>(paths);
+        for (int from = 0; from < all.size(); from += DELETE_BATCH_SIZE) {
+            ObjectNode body = objectMapper.createObjectNode();
+            ArrayNode prefixes = body.putArray("prefixes");
+            all.subList(from, Math.min(all.size(), from + DELETE_BATCH_SIZE)).forEach(prefixes::add);
+
+            Request request = new Request.Builder()
+                    .url(String.format("%s/storage/v1/object/%s", supabaseUrl, bucket))
+                    .delete(RequestBody.create(objectMapper.writeValueAsBytes(body), JSON))
+                    .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                    .build();
+
+            try (Response response = httpClient.newCall(request).execute()) {
+                if (!response.isSuccessful()) {
+                    String errorBody = response.body() != null ? response.body().string() : "Unknown error";
+                    throw new IOException("Batch delete failed: " + response.code() + " - " + errorBody);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String download(String bucket, String path, OutputStream out) throws IOException {
+        String downloadUrl = String.format("%s/storage/v1/object/%s/%s",
+                supabaseUrl, bucket, path);
+
+        Request request = new Request.Builder()
+                .url(downloadUrl)
+                .get()
+                .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (response.code() == 404 || response.code() == 400) {
+                throw new FileNotFoundException(bucket + "/" + path);
+            }
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("Download failed: " + response.code());
+            }
+            try (InputStream in = response.body().byteStream()) {
+                in.transferTo(out);
+            }
+            String contentType = response.header("Content-Type");
+            return contentType != null ? contentType : "application/octet-stream";
+        }
+    }
+
+    @Override
+    public String sign(String bucket, String path, int expiresInSeconds) throws IOException {
+        String signUrl = String.format("%s/storage/v1/object/sign/%s/%s",
+                supabaseUrl, bucket, path);
+
+        ObjectNode body = objectMapper.createObjectNode().put("expiresIn", expiresInSeconds);
+        RequestBody requestBody = RequestBody.create(objectMapper.writeValueAsBytes(body), JSON);
+
+        Request request = new Request.Builder()
+                .url(signUrl)
+                .post(requestBody)
+                .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                .addHeader("Content-Type", "application/json")
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to generate signed URL: " + response.code());
+            }
+            JsonNode signed = objectMapper.readTree(response.body().byteStream()).path("signedURL");
+            if (!signed.isTextual()) {
+                throw new IOException("Failed to generate signed URL: no signedURL in response");
+            }
+            return absoluteSignedUrl(signed.asText());
+        }
+    }
+
+    @Override
+    public Map<String, String> signAll(String bucket, Collection<String> paths, int expiresInSeconds)
+            throws IOException {
+        List<String> all = new ArrayList<>(paths);
+        Map<String, String> signed = new HashMap<>();
+        for (int from = 0; from < all.size(); from += SIGN_BATCH_SIZE) {
+            signed.putAll(signBatch(bucket, all.subList(from, Math.min(all.size(), from + SIGN_BATCH_SIZE)),
+                    expiresInSeconds));
+        }
+        return signed;
+    }
+
+    private Map<String, String> signBatch(String bucket, List<String> paths, int expiresInSeconds) throws IOException {
+        String signUrl = String.format("%s/storage/v1/object/sign/%s", supabaseUrl, bucket);
+
+        ObjectNode body = objectMapper.createObjectNode().put("expiresIn", expiresInSeconds);
+        ArrayNode pathArray = body.putArray("paths");
+        paths.forEach(pathArray::add);
+        RequestBody requestBody = RequestBody.create(objectMapper.writeValueAsBytes(body), JSON);
+
+        Request request = new Request.Builder()
+                .url(signUrl)
+                .post(requestBody)
+                .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                .addHeader("Content-Type", "application/json")
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to generate signed URLs: " + response.code());
+            }
+            Map<String, String> signed = new HashMap<>();
+            for (JsonNode item : objectMapper.readTree(response.body().byteStream())) {
+                JsonNode url = item.path("signedURL");
+                if (url.isTextual() && item.path("path").isTextual()) {
+                    signed.put(item.get("path").asText(), absoluteSignedUrl(url.asText()));
+                } else {
+                    log.warn("Could not sign {}/{}: {}", bucket, item.path("path").asText(), item.path("error").asText());
+                }
+            }
+            return signed;
+        }
+    }
+
+    // Supabase returns the signed path relative to the storage API root (/object/sign/...)
+    private String absoluteSignedUrl(String signedPath) {
+        return signedPath.startsWith("/storage/v1/")
+                ? supabaseUrl + signedPath
+                : supabaseUrl + "/storage/v1" + signedPath;
+    }
+
+    @Override
+    public String publicUrl(String bucket, String path) {
+        return String.format("%s/storage/v1/object/public/%s/%s",
+                supabaseUrl, bucket, path);
+    }
+}
@@ -0,0 +1,142 @@
+package za.ac.styling.template;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public final class HtmlBuffer {
+
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+    private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+    private static final ThreadLocal<HtmlBuffer> LOCAL = ThreadLocal.withInitial(HtmlBuffer::new);
+
+    private byte[] bytes;
+    private int size;
+
+    public HtmlBuffer() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public HtmlBuffer(int initialCapacity) {
+        this.bytes = new byte[Math.max(64, initialCapacity)];
+    }
+
+    // Returns the calling thread's buffer, emptied. Callers must finish with it (toString) before
+    // acquiring again on the same thread.
+    public static HtmlBuffer acquire() {
+        HtmlBuffer buffer = LOCAL.get();
+        buffer.reset();
+        return buffer;
+    }
+
+    public void reset() {
+        size = 0;
+        if (bytes.length > MAX_RETAINED_CAPACITY) {
+            bytes = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    void appendBytes(byte[] literal) {
+        ensureCapacity(size + literal.length);
+        System.arraycopy(literal, 0, bytes, size, literal.length);
+        size += literal.length;
+    }
+
+    public HtmlBuffer appendText(CharSequence text) {
+        if (text == null) {
+            return this;
+        }
+        int length = text.length();
+        ensureCapacity(size + length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> appendAscii("&amp;");
+                case '<' -> appendAscii("&lt;");
+                case '>' -> appendAscii("&gt;");
+                case '"' -> appendAscii("&quot;");
+                case '\'' -> appendAscii("&#39;");
+                default -> {
+                    if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                        appendCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+                    } else {
+                        appendCodePoint(c);
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    public HtmlBuffer appendText(long value) {
+        if (value == Long.MIN_VALUE) {
+            appendAscii(Long.toString(value));
+            return this;
+        }
+        ensureCapacity(size + 20);
+        if (value < 0) {
+            bytes[size++] = '-';
+            value = -value;
+        }
+        int start = size;
+        do {
+            bytes[size++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte tmp = bytes[i];
+            bytes[i] = bytes[j];
+            bytes[j] = tmp;
+        }
+        return this;
+    }
+
+    private void appendAscii(String s) {
+        ensureCapacity(size + s.length());
+        for (int i = 0; i < s.length(); i++) {
+            bytes[size++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void appendCodePoint(int cp) {
+        ensureCapacity(size + 4);
+        if (cp < 0x80) {
+            bytes[size++] = (byte) cp;
+        } else if (cp < 0x800) {
+            bytes[size++] = (byte) (0xC0 | (cp >> 6));
+            bytes[size++] = (byte) (0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            if (Character.isSurrogate((char) cp)) {
+                bytes[size++] = '?';
+                return;
+            }
+            bytes[size++] = (byte) (0xE0 | (cp >> 12));
+            bytes[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            bytes[size++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+            bytes[size++] = (byte) (0xF0 | (cp >> 18));
+            bytes[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            bytes[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            bytes[size++] = (byte) (0x80 | (cp & 0x3F));
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+        }
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, size, StandardCharsets.UTF_8);
+    }
+}
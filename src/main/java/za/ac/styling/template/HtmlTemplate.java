@@ -0,0 +1,149 @@
+package za.ac.styling.template;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An HTML template compiled once into UTF-8 literal segments and numbered slots.
+ * <p>
+ * {@code {{name}}} is a text slot (HTML-escaped on render). {@code {{#name}}...{{/name}}} is a section:
+ * it is rendered with the parent's values when the slot holds {@code Boolean.TRUE}, skipped when it is
+ * null/false, and delegated to the caller when it holds a {@link Fragment} (used for repeated rows).
+ * Slot ids are shared between a template and all of its sections, so one model array serves both.
+ * Line breaks and the indentation that follows them are stripped at compile time.
+ */
+public final class HtmlTemplate {
+
+    @FunctionalInterface
+    public interface Fragment {
+        void writeTo(HtmlBuffer out);
+    }
+
+    private static final Pattern TAG = Pattern.compile("\\{\\{([#/]?)\\s*([A-Za-z0-9_]+)\\s*}}");
+    private static final Pattern LINE_BREAK = Pattern.compile("\\r?\\n[ \\t]*");
+
+    private final String name;
+    private final byte[][] literals;
+    private final int[] slots;
+    private final HtmlTemplate[] sections;
+    private final Map<String, Integer> slotIds;
+    private final Map<String, HtmlTemplate> sectionsByName;
+
+    private HtmlTemplate(String name, List<byte[]> literals, List<Integer> slots, List<HtmlTemplate> sections,
+            Map<String, Integer> slotIds, Map<String, HtmlTemplate> sectionsByName) {
+        this.name = name;
+        this.literals = literals.toArray(new byte[0][]);
+        this.slots = slots.stream().mapToInt(Integer::intValue).toArray();
+        this.sections = sections.toArray(new HtmlTemplate[0]);
+        this.slotIds = slotIds;
+        this.sectionsByName = sectionsByName;
+    }
+
+    public static HtmlTemplate compile(String name, String source) {
+        String compact = LINE_BREAK.matcher(source).replaceAll("");
+        Matcher matcher = TAG.matcher(compact);
+        int[] cursor = { 0 };
+        return parse(name, compact, matcher, cursor, null, new LinkedHashMap<>(), new HashMap<>());
+    }
+
+    private static HtmlTemplate parse(String name, String source, Matcher matcher, int[] cursor, String sectionName,
+            Map<String, Integer> slotIds, Map<String, HtmlTemplate> sectionsByName) {
+        List<byte[]> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<HtmlTemplate> sections = new ArrayList<>();
+
+        int pos = cursor[0];
+        while (matcher.find(pos)) {
+            String kind = matcher.group(1);
+            String slot = matcher.group(2);
+            literals.add(source.substring(pos, matcher.start()).getBytes(StandardCharsets.UTF_8));
+            pos = matcher.end();
+
+            if ("/".equals(kind)) {
+                if (!slot.equals(sectionName)) {
+                    throw new IllegalArgumentException(
+                            "Template '" + name + "': unexpected {{/" + slot + "}} (open section: " + sectionName + ")");
+                }
+                cursor[0] = pos;
+                return new HtmlTemplate(name, literals, slots, sections, slotIds, sectionsByName);
+            }
+
+            slots.add(slotIds.computeIfAbsent(slot, k -> slotIds.size()));
+            if ("#".equals(kind)) {
+                cursor[0] = pos;
+                HtmlTemplate section = parse(name, source, matcher, cursor, slot, slotIds, sectionsByName);
+                sectionsByName.put(slot, section);
+                sections.add(section);
+                pos = cursor[0];
+            } else {
+                sections.add(null);
+            }
+        }
+
+        if (sectionName != null) {
+            throw new IllegalArgumentException("Template '" + name + "': section {{#" + sectionName + "}} is not closed");
+        }
+        literals.add(source.substring(pos).getBytes(StandardCharsets.UTF_8));
+        return new HtmlTemplate(name, literals, slots, sections, slotIds, sectionsByName);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int slot(String slotName) {
+        Integer id = slotIds.get(slotName);
+        if (id == null) {
+            throw new IllegalArgumentException("Template '" + name + "' has no slot '" + slotName + "'");
+        }
+        return id;
+    }
+
+    public HtmlTemplate section(String sectionName) {
+        HtmlTemplate section = sectionsByName.get(sectionName);
+        if (section == null) {
+            throw new IllegalArgumentException("Template '" + name + "' has no section '" + sectionName + "'");
+        }
+        return section;
+    }
+
+    public Object[] newModel() {
+        return new Object[slotIds.size()];
+    }
+
+    public String render(Object[] values) {
+        HtmlBuffer out = HtmlBuffer.acquire();
+        render(out, values);
+        return out.toString();
+    }
+
+    public void render(HtmlBuffer out, Object[] values) {
+        for (int i = 0; i < slots.length; i++) {
+            out.appendBytes(literals[i]);
+            Object value = values[slots[i]];
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof Fragment fragment) {
+                fragment.writeTo(out);
+            } else if (sections[i] != null) {
+                if (Boolean.TRUE.equals(value)) {
+                    sections[i].render(out, values);
+                }
+            } else if (value instanceof CharSequence text) {
+                out.appendText(text);
+            } else if (value instanceof Integer || value instanceof Long) {
+                out.appendText(((Number) value).longValue());
+            } else {
+                out.appendText(String.valueOf(value));
+            }
+        }
+        out.appendBytes(literals[slots.length]);
+    }
+}
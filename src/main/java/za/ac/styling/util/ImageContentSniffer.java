@@ -0,0 +1,78 @@
+package za.ac.styling.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Detects an image's real type from its leading bytes, so uploads are not trusted on their declared
+ * Content-Type alone.
+ */
+public final class ImageContentSniffer {
+
+    public static final int HEADER_BYTES = 16;
+
+    private ImageContentSniffer() {
+    }
+
+    /**
+     * Reads the first {@link #HEADER_BYTES} bytes of the stream and returns the matching MIME type,
+     * or null if they do not look like a supported image. The stream is not closed.
+     */
+    public static String sniff(InputStream in) throws IOException {
+        return sniff(in.readNBytes(HEADER_BYTES));
+    }
+
+    public static String sniff(byte[] header) {
+        if (header == null) {
+            return null;
+        }
+        if (startsWith(header, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (ascii(header, 0, "RIFF") && ascii(header, 8, "WEBP")) {
+            return "image/webp";
+        }
+        if (ascii(header, 0, "GIF87a") || ascii(header, 0, "GIF89a")) {
+            return "image/gif";
+        }
+        if (ascii(header, 4, "ftypavif") || ascii(header, 4, "ftypavis")) {
+            return "image/avif";
+        }
+        if (ascii(header, 4, "ftypheic") || ascii(header, 4, "ftypheix") || ascii(header, 4, "ftypmif1")) {
+            return "image/heic";
+        }
+        if (ascii(header, 0, "BM")) {
+            return "image/bmp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int... expected) {
+        if (data.length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if ((data[offset + i] & 0xFF) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean ascii(byte[] data, int offset, String expected) {
+        byte[] bytes = expected.getBytes(StandardCharsets.US_ASCII);
+        if (data.length < offset + bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (data[offset + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
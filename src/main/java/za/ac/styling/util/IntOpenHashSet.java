@@ -0,0 +1,109 @@
+package za.ac.styling.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable set of ints backed by a single open-addressing (linear probing) table, so membership checks
+ * neither box nor chase pointers.
+ */
+public final class IntOpenHashSet {
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final IntOpenHashSet EMPTY_SET = new IntOpenHashSet(new int[] { EMPTY }, false, 0);
+
+    private final int[] table;
+    private final int mask;
+    private final boolean containsEmptyMarker;
+    private final int size;
+
+    private IntOpenHashSet(int[] table, boolean containsEmptyMarker, int size) {
+        this.table = table;
+        this.mask = table.length - 1;
+        this.containsEmptyMarker = containsEmptyMarker;
+        this.size = size;
+    }
+
+    public static IntOpenHashSet of(Collection<Integer> values) {
+        if (values == null || values.isEmpty()) {
+            return EMPTY_SET;
+        }
+        // Keep the load factor at or below 0.5
+        int capacity = Integer.highestOneBit(Math.max(2, values.size() * 2 - 1)) << 1;
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        int mask = capacity - 1;
+        boolean containsEmptyMarker = false;
+        int size = 0;
+
+        for (Integer boxed : values) {
+            if (boxed == null) {
+                continue;
+            }
+            int value = boxed;
+            if (value == EMPTY) {
+                if (!containsEmptyMarker) {
+                    containsEmptyMarker = true;
+                    size++;
+                }
+                continue;
+            }
+            int slot = mix(value) & mask;
+            while (table[slot] != EMPTY && table[slot] != value) {
+                slot = (slot + 1) & mask;
+            }
+            if (table[slot] == EMPTY) {
+                table[slot] = value;
+                size++;
+            }
+        }
+        return new IntOpenHashSet(table, containsEmptyMarker, size);
+    }
+
+    public static IntOpenHashSet empty() {
+        return EMPTY_SET;
+    }
+
+    public boolean contains(int value) {
+        if (value == EMPTY) {
+            return containsEmptyMarker;
+        }
+        int slot = mix(value) & mask;
+        int current;
+        while ((current = table[slot]) != EMPTY) {
+            if (current == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public List<Integer> toList() {
+        List<Integer> values = new ArrayList<>(size);
+        for (int value : table) {
+            if (value != EMPTY) {
+                values.add(value);
+            }
+        }
+        if (containsEmptyMarker) {
+            values.add(EMPTY);
+        }
+        return values;
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
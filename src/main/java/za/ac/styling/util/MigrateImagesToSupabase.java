@@ -1,116 +1,357 @@
 package za.ac.styling.util;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
-import za.ac.styling.domain.ProductImage;
-import za.ac.styling.domain.ReviewImage;
-import za.ac.styling.service.ProductImageService;
+import za.ac.styling.repository.ProductImageRepository;
 import za.ac.styling.service.SupabaseStorageService;
-import za.ac.styling.repository.ReviewImageRepository;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-demand job that copies product images still served from an external imageUrl into storage and points
+ * the rows at the stored copy.
+ * <p>
+ * Images are read in keyset pages of image.migration.page-size and transferred on a bounded pool, throttled
+ * to image.migration.rate-per-second downloads. After each page the last image id and running totals are
+ * written to image_migration_checkpoint, so a stopped or crashed run resumes where it left off. Images whose
+ * URL already points into the product bucket are only relinked. Failed images are not retried within a run;
+ * starting again with restart=true picks them up.
+ */
+@Component
+public class MigrateImagesToSupabase {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrateImagesToSupabase.class);
+
+    private static final String JOB_NAME = "product-images";
+
+    private enum Outcome { MIGRATED, RELINKED, SKIPPED, FAILED }
+
+    private final ProductImageRepository productImageRepository;
+    private final SupabaseStorageService storageService;
+    private final OkHttpClient httpClient;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int threads;
+    private final int pageSize;
+    private final long ratePerSecond;
+    private final long maxBytes;
+
+    private final Map<Outcome, Counter> outcomeCounters = new EnumMap<>(Outcome.class);
+    private final Counter bytesCounter;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopRequested;
+
+    // Totals including earlier runs, as persisted in the checkpoint; guarded by this
+    private long lastImageId;
+    private final Map<Outcome, Long> totals = new EnumMap<>(Outcome.class);
+    private long totalBytes;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long runImages;
+    private long runBytes;
+
+    public MigrateImagesToSupabase(ProductImageRepository productImageRepository,
+                                   SupabaseStorageService storageService,
+                                   OkHttpClient httpClient,
+                                   JdbcTemplate jdbcTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${image.migration.threads:4}") int threads,
+                                   @Value("${image.migration.page-size:100}") int pageSize,
+                                   @Value("${image.migration.rate-per-second:10}") long ratePerSecond,
+                                   @Value("${image.migration.max-bytes:20971520}") long maxBytes) {
+        this.productImageRepository = productImageRepository;
+        this.storageService = storageService;
+        this.httpClient = httpClient;
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.threads = Math.max(1, threads);
+        this.pageSize = Math.max(1, pageSize);
+        this.ratePerSecond = Math.max(1, ratePerSecond);
+        this.maxBytes = maxBytes;
+
+        for (Outcome outcome : Outcome.values()) {
+            outcomeCounters.put(outcome, Counter.builder("image.migration.images")
+                    .tag("result", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+            totals.put(outcome, 0L);
+        }
+        this.bytesCounter = Counter.builder("image.migration.bytes").register(meterRegistry);
+        meterRegistry.gauge("image.migration.running", running, r -> r.get() ? 1 : 0);
+    }
 
-public class MigrateImagesToSupabase implements CommandLineRunner {
-
-    @Autowired
-    private ProductImageService productImageService;
-
-    @Autowired
-    private ReviewImageRepository reviewImageRepository;
-
-    @Autowired
-    private SupabaseStorageService supabaseStorageService;
-
-    @Override
-    public void run(String... args) throws Exception {
-        System.out.println("\n" + "=".repeat(80));
-        System.out.println("STARTING BLOB TO SUPABASE MIGRATION");
-        System.out.println("=".repeat(80) + "\n");
-
-        migrateProductImages();
-        migrateReviewImages();
-
-        System.out.println("\n" + "=".repeat(80));
-        System.out.println("MIGRATION COMPLETED!");
-        System.out.println("=".repeat(80) + "\n");
-        System.out.println("Next steps:");
-        System.out.println("1. Verify images are loading from Supabase URLs");
-        System.out.println("2. Comment out @Component annotation in MigrateImagesToSupabase.java");
-        System.out.println("3. Restart application to prevent re-running migration");
-        System.out.println("4. Optional: Run SQL to remove image_data columns:");
-        System.out.println("   ALTER TABLE product_image DROP COLUMN image_data;");
-        System.out.println("   ALTER TABLE review_image DROP COLUMN image_data;");
-        System.out.println();
+    /**
+     * Starts the job in the background from the saved checkpoint, or from the first image when restart is
+     * set. Returns false if it is already running.
+     */
+    public boolean start(boolean restart) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        stopRequested = false;
+        Thread runner = new Thread(() -> {
+            try {
+                run(restart);
+            } catch (Exception e) {
+                logger.error("Image migration stopped with an error", e);
+            } finally {
+                synchronized (this) {
+                    finishedAt = Instant.now();
+                }
+                running.set(false);
+            }
+        }, "image-migration");
+        runner.setDaemon(true);
+        runner.start();
+        return true;
     }
 
-    private void migrateProductImages() {
-        System.out.println("Migrating Product Images...");
+    // Takes effect after the page in progress, which is then checkpointed
+    public void stop() {
+        stopRequested = true;
+    }
 
-        List<ProductImage> allImages = productImageService.getAll();
-        int migrated = 0;
-        int skipped = 0;
-        int failed = 0;
+    public boolean isRunning() {
+        return running.get();
+    }
 
-        for (ProductImage image : allImages) {
-            try {
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("lastImageId", lastImageId);
+        totals.forEach((outcome, count) -> status.put(outcome.name().toLowerCase(), count));
+        status.put("bytes", totalBytes);
+        if (startedAt != null) {
+            Instant end = running.get() || finishedAt == null ? Instant.now() : finishedAt;
+            double seconds = Math.max(0.001, Duration.between(startedAt, end).toMillis() / 1000.0);
+            status.put("startedAt", startedAt.toString());
+            status.put("imagesPerSecond", Math.round(runImages / seconds * 100) / 100.0);
+            status.put("bytesPerSecond", Math.round(runBytes / seconds));
+        }
+        return status;
+    }
+
+    private void run(boolean restart) throws InterruptedException {
+        synchronized (this) {
+            if (restart) {
+                lastImageId = 0;
+                totals.replaceAll((outcome, count) -> 0L);
+                totalBytes = 0;
+            } else {
+                loadCheckpoint();
+            }
+            startedAt = Instant.now();
+            finishedAt = null;
+            runImages = 0;
+            runBytes = 0;
+        }
+        logger.info("Image migration starting after image {} ({} threads, {} images/s)",
+                lastImageId, threads, ratePerSecond);
+
+        Bucket limiter = Bucket4j.builder()
+                .addLimit(Bandwidth.classic(ratePerSecond, Refill.greedy(ratePerSecond, Duration.ofSeconds(1))))
+                .build();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(pageSize), runnable -> {
+                    Thread thread = new Thread(runnable, "image-migration-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            long afterId;
+            synchronized (this) {
+                afterId = lastImageId;
+            }
+            while (!stopRequested) {
+                List<Object[]> page = productImageRepository.findUnmigrated(afterId, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    logger.info("Image migration finished: {}", status());
+                    return;
+                }
 
-                if (image.isSupabaseImage()) {
-                    System.out.println("  ⏭️  Skipped: Image " + image.getImageId() + " (already in Supabase)");
-                    skipped++;
-                    continue;
+                List<Future<Outcome>> futures = new ArrayList<>(page.size());
+                AtomicLong pageBytes = new AtomicLong();
+                for (Object[] row : page) {
+                    Long imageId = ((Number) row[0]).longValue();
+                    Integer productId = ((Number) row[1]).intValue();
+                    String imageUrl = (String) row[2];
+                    futures.add(pool.submit(() -> {
+                        limiter.asBlocking().consume(1);
+                        return migrate(imageId, productId, imageUrl, pageBytes);
+                    }));
                 }
 
-                System.out.println("  Skipped: Image " + image.getImageId() + " (no BLOB data - using Supabase Storage)");
-                skipped++;
+                Map<Outcome, Long> pageOutcomes = new EnumMap<>(Outcome.class);
+                for (Future<Outcome> future : futures) {
+                    Outcome outcome;
+                    try {
+                        outcome = future.get();
+                    } catch (ExecutionException e) {
+                        logger.warn("Image migration task failed", e.getCause());
+                        outcome = Outcome.FAILED;
+                    }
+                    pageOutcomes.merge(outcome, 1L, Long::sum);
+                }
 
-            } catch (Exception e) {
-                System.err.println("  Failed: Image " + image.getImageId() + " - " + e.getMessage());
-                failed++;
+                afterId = ((Number) page.get(page.size() - 1)[0]).longValue();
+                synchronized (this) {
+                    lastImageId = afterId;
+                    pageOutcomes.forEach((outcome, count) -> totals.merge(outcome, count, Long::sum));
+                    totalBytes += pageBytes.get();
+                    runImages += page.size();
+                    runBytes += pageBytes.get();
+                    saveCheckpoint();
+                }
+                logger.info("Image migration progress: {}", status());
             }
+            logger.info("Image migration stopped on request after image {}", afterId);
+        } finally {
+            pool.shutdownNow();
         }
+    }
 
-        System.out.println("\nProduct Images Summary:");
-        System.out.println("   Migrated: " + migrated);
-        System.out.println("   Skipped: " + skipped);
-        System.out.println("   Failed: " + failed);
-        System.out.println();
+    private Outcome migrate(Long imageId, Integer productId, String imageUrl, AtomicLong pageBytes) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Outcome outcome = Outcome.FAILED;
+        try {
+            outcome = transfer(imageId, productId, imageUrl, pageBytes);
+        } catch (Exception e) {
+            logger.warn("Could not migrate product image {} from {}: {}", imageId, imageUrl, e.getMessage());
+        } finally {
+            outcomeCounters.get(outcome).increment();
+            sample.stop(Timer.builder("image.migration.transfer.duration")
+                    .tag("result", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        return outcome;
     }
 
-    private void migrateReviewImages() {
-        System.out.println("Migrating Review Images...");
+    private Outcome transfer(Long imageId, Integer productId, String imageUrl, AtomicLong pageBytes)
+            throws IOException {
+        String bucket = storageService.getProductImagesBucket();
+        String existingPath = storageService.pathFromPublicUrl(bucket, imageUrl);
+        if (existingPath != null) {
+            if (productImageRepository.attachStorageObject(imageId, imageUrl, existingPath, null) == 0) {
+                return Outcome.SKIPPED;
+            }
+            // Other images may already use this object, so track it before any of them can release it
+            try {
+                storageService.adoptFile(bucket, existingPath,
+                        (int) productImageRepository.countByBucketPath(existingPath));
+            } catch (IOException e) {
+                logger.warn("Relinked product image {} but could not index {}: {}", imageId, existingPath,
+                        e.getMessage());
+            }
+            return Outcome.RELINKED;
+        }
+        if (!imageUrl.startsWith("http://") && !imageUrl.startsWith("https://")) {
+            return Outcome.SKIPPED;
+        }
 
-        List<ReviewImage> allImages = reviewImageRepository.findAll();
-        int migrated = 0;
-        int skipped = 0;
-        int failed = 0;
+        byte[] data = download(imageUrl);
+        String contentType = ImageContentSniffer.sniff(data);
+        if (contentType == null) {
+            throw new IOException("Downloaded content is not a supported image");
+        }
+        SupabaseStorageService.UploadResult result = storageService.uploadProductImage(
+                new ByteArrayMultipartFile(data, fileName(imageUrl), contentType), productId);
 
-        for (ReviewImage image : allImages) {
-            try {
+        if (productImageRepository.attachStorageObject(imageId, result.getUrl(), result.getPath(), contentType) == 0) {
+            // The image was deleted or given a stored copy while this one was uploading
+            storageService.releaseFile(result.getBucket(), result.getPath());
+            return Outcome.SKIPPED;
+        }
+        bytesCounter.increment(data.length);
+        pageBytes.addAndGet(data.length);
+        return Outcome.MIGRATED;
+    }
 
-                if (image.isSupabaseImage()) {
-                    System.out.println("  ⏭️  Skipped: ReviewImage " + image.getImageId() + " (already in Supabase)");
-                    skipped++;
-                    continue;
+    private byte[] download(String imageUrl) throws IOException {
+        Request request = new Request.Builder().url(imageUrl).get().build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("Download failed: " + response.code());
+            }
+            if (response.body().contentLength() > maxBytes) {
+                throw new IOException("Image is larger than image.migration.max-bytes");
+            }
+            try (InputStream in = response.body().byteStream()) {
+                byte[] data = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxBytes + 1));
+                if (data.length > maxBytes) {
+                    throw new IOException("Image is larger than image.migration.max-bytes");
                 }
+                return data;
+            }
+        }
+    }
 
-                System.out.println("  Skipped: ReviewImage " + image.getImageId() + " (no BLOB data - using Supabase Storage)");
-                skipped++;
+    private static String fileName(String imageUrl) {
+        String path = imageUrl.contains("?") ? imageUrl.substring(0, imageUrl.indexOf('?')) : imageUrl;
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        return name.isEmpty() ? "image" : name;
+    }
 
-            } catch (Exception e) {
-                System.err.println("  Failed: ReviewImage " + image.getImageId() + " - " + e.getMessage());
-                failed++;
-            }
+    private void loadCheckpoint() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT last_image_id, migrated, relinked, skipped, failed, bytes " +
+                "FROM image_migration_checkpoint WHERE job_name = ?", JOB_NAME);
+        if (rows.isEmpty()) {
+            return;
         }
+        Map<String, Object> row = rows.get(0);
+        lastImageId = ((Number) row.get("last_image_id")).longValue();
+        for (Outcome outcome : Outcome.values()) {
+            totals.put(outcome, ((Number) row.get(outcome.name().toLowerCase())).longValue());
+        }
+        totalBytes = ((Number) row.get("bytes")).longValue();
+    }
 
-        System.out.println("\nReview Images Summary:");
-        System.out.println("   Migrated: " + migrated);
-        System.out.println("   Skipped: " + skipped);
-        System.out.println("   Failed: " + failed);
-        System.out.println();
+    private void saveCheckpoint() {
+        jdbcTemplate.update("""
+                INSERT INTO image_migration_checkpoint
+                    (job_name, last_image_id, migrated, relinked, skipped, failed, bytes, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, now())
+                ON CONFLICT (job_name) DO UPDATE SET
+                    last_image_id = EXCLUDED.last_image_id, migrated = EXCLUDED.migrated,
+                    relinked = EXCLUDED.relinked, skipped = EXCLUDED.skipped, failed = EXCLUDED.failed,
+                    bytes = EXCLUDED.bytes, updated_at = EXCLUDED.updated_at""",
+                JOB_NAME, lastImageId, totals.get(Outcome.MIGRATED), totals.get(Outcome.RELINKED),
+                totals.get(Outcome.SKIPPED), totals.get(Outcome.FAILED), totalBytes);
     }
 
     private static class ByteArrayMultipartFile implements MultipartFile {
@@ -160,8 +401,8 @@ public class MigrateImagesToSupabase implements CommandLineRunner {
         }
 
         @Override
-        public void transferTo(java.io.File dest) throws java.io.IOException {
-            throw new UnsupportedOperationException("Not implemented");
+        public void transferTo(File dest) throws IOException {
+            Files.write(dest.toPath(), data);
         }
     }
 }
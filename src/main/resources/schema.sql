@@ -0,0 +1,73 @@
+-- Runs on every startup (spring.sql.init.mode=always); every statement must be idempotent.
+
+ALTER TABLE product_image ADD COLUMN IF NOT EXISTS thumbnail_url VARCHAR(500);
+ALTER TABLE product_image ADD COLUMN IF NOT EXISTS medium_url VARCHAR(500);
+ALTER TABLE product_image ADD COLUMN IF NOT EXISTS large_url VARCHAR(500);
+
+ALTER TABLE review_image ADD COLUMN IF NOT EXISTS thumbnail_url VARCHAR(500);
+ALTER TABLE review_image ADD COLUMN IF NOT EXISTS medium_url VARCHAR(500);
+ALTER TABLE review_image ADD COLUMN IF NOT EXISTS large_url VARCHAR(500);
+
+-- Content-hash index of stored images; ref_count is the number of image rows sharing the object
+CREATE TABLE IF NOT EXISTS storage_object (
+    object_id BIGSERIAL PRIMARY KEY,
+    bucket VARCHAR(100) NOT NULL,
+    path VARCHAR(300) NOT NULL,
+    sha256 CHAR(64) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    ref_count INT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT uk_storage_object_path UNIQUE (bucket, path),
+    CONSTRAINT uk_storage_object_sha256 UNIQUE (bucket, sha256)
+);
+
+-- Objects waiting to be removed from storage, written in the same transaction that drops their image rows
+CREATE TABLE IF NOT EXISTS storage_deletion (
+    deletion_id BIGSERIAL PRIMARY KEY,
+    bucket VARCHAR(100) NOT NULL,
+    path VARCHAR(300) NOT NULL,
+    attempts INT NOT NULL,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT uk_storage_deletion_path UNIQUE (bucket, path)
+);
+
+CREATE INDEX IF NOT EXISTS idx_storage_deletion_due ON storage_deletion (next_attempt_at);
+
+-- Resume point and running totals of the on-demand image migration job, one row per job
+CREATE TABLE IF NOT EXISTS image_migration_checkpoint (
+    job_name VARCHAR(100) PRIMARY KEY,
+    last_image_id BIGINT NOT NULL,
+    migrated BIGINT NOT NULL,
+    relinked BIGINT NOT NULL,
+    skipped BIGINT NOT NULL,
+    failed BIGINT NOT NULL,
+    bytes BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+-- One row per (review, user) "helpful" vote; the primary key enforces one vote per user
+CREATE TABLE IF NOT EXISTS review_helpful_vote (
+    review_id INT NOT NULL REFERENCES review (review_id) ON DELETE CASCADE,
+    user_id INT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (review_id, user_id)
+);
+
+-- One cart per user; CartRepository.insertIfAbsent relies on this for its ON CONFLICT DO NOTHING
+CREATE UNIQUE INDEX IF NOT EXISTS uk_cart_user_id ON cart (user_id);
+
+-- Promo codes are looked up ignoring case; campaign generation also checks new codes against this
+CREATE INDEX IF NOT EXISTS idx_promo_codes_code_upper ON promo_codes (UPPER(code));
+
+-- Star histogram per product, kept in step with review writes so product pages read a single row
+CREATE TABLE IF NOT EXISTS product_rating_summary (
+    product_id INT PRIMARY KEY,
+    stars_1 BIGINT NOT NULL,
+    stars_2 BIGINT NOT NULL,
+    stars_3 BIGINT NOT NULL,
+    stars_4 BIGINT NOT NULL,
+    stars_5 BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,71 @@
+package za.ac.styling.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import za.ac.styling.service.impl.LocalFileObjectStorage;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class LocalFileControllerTest {
+
+    @TempDir
+    Path root;
+
+    private LocalFileObjectStorage storage;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storage = new LocalFileObjectStorage(root.toString(), "http://localhost/files", "test-signing-key");
+        mockMvc = MockMvcBuilders.standaloneSetup(new LocalFileController(storage, Set.of("public-bucket")))
+                .build();
+        upload("public-bucket", "products/1/a.txt");
+        upload("private-bucket", "orders/1/a.txt");
+    }
+
+    @Test
+    void servesPublicBucketWithoutSignature() throws Exception {
+        mockMvc.perform(get("/files/public-bucket/products/1/a.txt"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("hello"));
+    }
+
+    @Test
+    void refusesUnsignedRequestForPrivateBucket() throws Exception {
+        mockMvc.perform(get("/files/private-bucket/orders/1/a.txt"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void servesSignedUrlAndRefusesTamperedOne() throws Exception {
+        URI signed = URI.create(storage.sign("private-bucket", "orders/1/a.txt", 60));
+
+        mockMvc.perform(get(signed.getPath() + "?" + signed.getRawQuery()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("hello"));
+        mockMvc.perform(get("/files/private-bucket/orders/1/b.txt?" + signed.getRawQuery()))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void missingObjectIsNotFound() throws Exception {
+        mockMvc.perform(get("/files/public-bucket/products/1/missing.txt"))
+                .andExpect(status().isNotFound());
+    }
+
+    private void upload(String bucket, String path) throws Exception {
+        byte[] bytes = "hello".getBytes(StandardCharsets.UTF_8);
+        storage.upload(bucket, path, () -> new ByteArrayInputStream(bytes), bytes.length, "text/plain");
+    }
+}
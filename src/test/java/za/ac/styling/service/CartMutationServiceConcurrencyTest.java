@@ -0,0 +1,184 @@
+package za.ac.styling.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import za.ac.styling.domain.Cart;
+import za.ac.styling.domain.Product;
+import za.ac.styling.domain.ProductColour;
+import za.ac.styling.domain.ProductColourSize;
+import za.ac.styling.domain.User;
+import za.ac.styling.repository.CartItemRepository;
+import za.ac.styling.repository.CartRepository;
+import za.ac.styling.repository.ProductColourRepository;
+import za.ac.styling.repository.ProductColourSizeRepository;
+import za.ac.styling.repository.ProductRepository;
+import za.ac.styling.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Races many addItem calls against one stock line. The upsert is a Postgres-only CTE, so this runs only when
+ * TEST_POSTGRES_URL (plus TEST_POSTGRES_USER and TEST_POSTGRES_PASSWORD) points at a disposable database;
+ * the schema is created and dropped by Hibernate.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.sql.init.mode=never"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(CartMutationService.class)
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = ".+")
+class CartMutationServiceConcurrencyTest {
+
+    private static final int STOCK = 5;
+    private static final int THREADS = 16;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("TEST_POSTGRES_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv("TEST_POSTGRES_USER"));
+        registry.add("spring.datasource.password", () -> System.getenv("TEST_POSTGRES_PASSWORD"));
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS + 4);
+    }
+
+    @Autowired
+    private CartMutationService cartMutationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductColourRepository productColourRepository;
+
+    @Autowired
+    private ProductColourSizeRepository productColourSizeRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Product product;
+    private ProductColour colour;
+    private ProductColourSize size;
+
+    @BeforeEach
+    void setUp() {
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+
+        LocalDateTime now = LocalDateTime.now();
+        user = userRepository.save(User.builder()
+                .username("race-" + System.nanoTime())
+                .email("race-" + System.nanoTime() + "@example.com")
+                .password("x")
+                .isActive(true)
+                .createdAt(now)
+                .build());
+        product = productRepository.save(Product.builder().name("Race tee").basePrice(100).createdAt(now).build());
+        colour = productColourRepository.save(ProductColour.builder().name("Black").product(product).build());
+        size = productColourSizeRepository.save(ProductColourSize.builder()
+                .sizeName("M")
+                .stockQuantity(STOCK + 2)
+                .reservedQuantity(2)
+                .colour(colour)
+                .build());
+    }
+
+    @Test
+    void concurrentAddsToOneCartNeverExceedAvailableStock() throws Exception {
+        cartRepository.saveAndFlush(Cart.builder().user(user).createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now()).build());
+
+        List<CartMutationService.AddItemResult> results = race(THREADS, () -> user.getUserId());
+
+        long added = results.stream().filter(CartMutationService.AddItemResult::isSuccess).count();
+        assertThat(added).isEqualTo(STOCK);
+        assertThat(results).filteredOn(result -> !result.isSuccess())
+                .allMatch(result -> result.outcome() == CartMutationService.Outcome.INSUFFICIENT_STOCK);
+        assertThat(lineQuantities()).containsExactly(STOCK);
+    }
+
+    @Test
+    void concurrentAddsFromDifferentUsersEachStayWithinAvailableStock() throws Exception {
+        List<Integer> userIds = new ArrayList<>();
+        userIds.add(user.getUserId());
+        for (int i = 1; i < 4; i++) {
+            userIds.add(userRepository.save(User.builder()
+                    .username("race-" + i + "-" + System.nanoTime())
+                    .email("race-" + i + "-" + System.nanoTime() + "@example.com")
+                    .password("x")
+                    .isActive(true)
+                    .build()).getUserId());
+        }
+        int[] next = { 0 };
+
+        List<CartMutationService.AddItemResult> results = race(THREADS, () -> {
+            synchronized (next) {
+                return userIds.get(next[0]++ % userIds.size());
+            }
+        });
+
+        // Carts only hold stock once checked out, so each cart is capped separately
+        assertThat(results).allMatch(CartMutationService.AddItemResult::isSuccess);
+        assertThat(lineQuantities()).hasSize(userIds.size()).allMatch(quantity -> quantity <= STOCK);
+    }
+
+    private List<CartMutationService.AddItemResult> race(int threads, Callable<Integer> userForCall)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<CartMutationService.AddItemResult>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Integer userId = userForCall.call();
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return cartMutationService.addItem(userId, product.getProductId(), colour.getColourId(),
+                            size.getSizeId(), 1);
+                }));
+            }
+            start.countDown();
+            List<CartMutationService.AddItemResult> results = new ArrayList<>();
+            for (Future<CartMutationService.AddItemResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private List<Integer> lineQuantities() {
+        return jdbcTemplate.queryForList("SELECT quantity FROM cart_item WHERE size_size_id = ?", Integer.class,
+                size.getSizeId());
+    }
+}
@@ -0,0 +1,80 @@
+package za.ac.styling.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import za.ac.styling.repository.CartItemRepository;
+import za.ac.styling.repository.CartRepository;
+import za.ac.styling.repository.ProductColourSizeRepository;
+import za.ac.styling.repository.UserRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CartMutationServiceTest {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private ProductColourSizeRepository productColourSizeRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private CartMutationService service;
+
+    @Test
+    void addItemRecreatesCartThatWasDeletedAfterItsIdWasRead() {
+        when(productColourSizeRepository.findAvailableStockForLine(1, 2, 3)).thenReturn(Optional.of(10));
+        when(cartRepository.findCartIdByUserId(7)).thenReturn(Optional.of(40), Optional.empty(), Optional.of(41));
+        when(cartRepository.touch(eq(40), any())).thenReturn(0);
+        when(userRepository.existsById(7)).thenReturn(true);
+        when(cartRepository.touch(eq(41), any())).thenReturn(1);
+        when(cartItemRepository.upsertLine(41, 1, 2, 3, 2, 10)).thenReturn(List.<Object[]>of(new Object[] { 2, 1L }));
+
+        CartMutationService.AddItemResult result = service.addItem(7, 1, 2, 3, 2);
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.cartId()).isEqualTo(41);
+        verify(cartRepository).insertIfAbsent(eq(7), any());
+        verify(cartItemRepository, never()).upsertLine(eq(40), anyInt(), anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void addItemGivesUpWhenTheCartKeepsDisappearing() {
+        when(productColourSizeRepository.findAvailableStockForLine(1, 2, 3)).thenReturn(Optional.of(10));
+        when(cartRepository.findCartIdByUserId(7)).thenReturn(Optional.of(40));
+        when(cartRepository.touch(eq(40), any())).thenReturn(0);
+
+        assertThatThrownBy(() -> service.addItem(7, 1, 2, 3, 2)).isInstanceOf(IllegalStateException.class);
+        verify(cartItemRepository, never()).upsertLine(anyInt(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void addItemRejectsQuantityAboveAvailableStockWithoutTouchingTheCart() {
+        when(productColourSizeRepository.findAvailableStockForLine(1, 2, 3)).thenReturn(Optional.of(1));
+
+        CartMutationService.AddItemResult result = service.addItem(7, 1, 2, 3, 2);
+
+        assertThat(result.outcome()).isEqualTo(CartMutationService.Outcome.INSUFFICIENT_STOCK);
+        assertThat(result.availableStock()).isEqualTo(1);
+        verify(cartRepository, never()).touch(any(), any());
+    }
+}
@@ -0,0 +1,142 @@
+package za.ac.styling.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Behaviour every {@link ObjectStorage} backend must share. Subclasses supply a fresh, empty store.
+ */
+public abstract class ObjectStorageContractTest {
+
+    protected static final String BUCKET = "contract-test";
+
+    protected ObjectStorage storage;
+
+    protected abstract ObjectStorage createStorage() throws Exception;
+
+    @BeforeEach
+    void setUpStorage() throws Exception {
+        storage = createStorage();
+    }
+
+    @Test
+    void uploadThenDownloadReturnsTheSameBytes() throws IOException {
+        upload("products/1/a.txt", "hello");
+
+        assertThat(download("products/1/a.txt")).isEqualTo("hello");
+    }
+
+    @Test
+    void uploadOverwritesAnExistingObject() throws IOException {
+        upload("products/1/a.txt", "first");
+        upload("products/1/a.txt", "second version");
+
+        assertThat(download("products/1/a.txt")).isEqualTo("second version");
+    }
+
+    @Test
+    void downloadOfMissingObjectThrowsFileNotFound() {
+        assertThatThrownBy(() -> download("products/1/missing.txt"))
+                .isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void deleteOfMissingObjectIsNoOp() throws IOException {
+        storage.delete(BUCKET, "products/1/missing.txt");
+        storage.deleteAll(BUCKET, List.of("products/1/missing.txt", "products/2/missing.txt"));
+    }
+
+    @Test
+    void deleteRemovesTheObject() throws IOException {
+        upload("products/1/a.txt", "hello");
+
+        storage.delete(BUCKET, "products/1/a.txt");
+
+        assertThatThrownBy(() -> download("products/1/a.txt")).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void deleteAllRemovesEveryListedObjectAndKeepsTheRest() throws IOException {
+        upload("products/1/a.txt", "a");
+        upload("products/1/b.txt", "b");
+        upload("products/1/c.txt", "c");
+
+        storage.deleteAll(BUCKET, List.of("products/1/a.txt", "products/1/b.txt", "products/1/never.txt"));
+
+        assertThatThrownBy(() -> download("products/1/a.txt")).isInstanceOf(FileNotFoundException.class);
+        assertThatThrownBy(() -> download("products/1/b.txt")).isInstanceOf(FileNotFoundException.class);
+        assertThat(download("products/1/c.txt")).isEqualTo("c");
+    }
+
+    @Test
+    void pathsCannotEscapeTheBucket() {
+        assertThatThrownBy(() -> upload("../outside.txt", "x")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> upload("products/../../outside.txt", "x")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> download("../outside.txt")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> storage.delete(BUCKET, "../outside.txt")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void failedUploadLeavesThePreviousObjectIntact() throws IOException {
+        upload("products/1/a.txt", "original");
+
+        InputStreamSource broken = () -> new InputStream() {
+            private int sent;
+
+            @Override
+            public int read() throws IOException {
+                if (sent++ < 4) {
+                    return 'x';
+                }
+                throw new IOException("connection reset");
+            }
+        };
+        assertThatThrownBy(() -> storage.upload(BUCKET, "products/1/a.txt", broken, 100, "text/plain"))
+                .isInstanceOf(IOException.class);
+
+        assertThat(download("products/1/a.txt")).isEqualTo("original");
+    }
+
+    @Test
+    void truncatedUploadIsRejectedAndNotStored() {
+        byte[] bytes = "short".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> storage.upload(BUCKET, "products/1/new.txt", new ByteArrayResource(bytes),
+                bytes.length + 10, "text/plain")).isInstanceOf(IOException.class);
+
+        assertThatThrownBy(() -> download("products/1/new.txt")).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void signedUrlPointsAtTheObject() throws IOException {
+        upload("products/1/a.txt", "hello");
+
+        String signed = storage.sign(BUCKET, "products/1/a.txt", 60);
+
+        assertThat(signed).contains("products/1/a.txt");
+        assertThat(storage.signAll(BUCKET, List.of("products/1/a.txt"), 60)).containsOnlyKeys("products/1/a.txt");
+    }
+
+    protected void upload(String path, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        storage.upload(BUCKET, path, new ByteArrayResource(bytes), bytes.length, "text/plain");
+    }
+
+    protected String download(String path) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        storage.download(BUCKET, path, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
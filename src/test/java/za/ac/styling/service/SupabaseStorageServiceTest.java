@@ -0,0 +1,59 @@
+package za.ac.styling.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SupabaseStorageServiceTest {
+
+    private static final String BUCKET = "product-images";
+    private static final String PATH = "products/1/a.jpg";
+    private static final List<String> VARIANTS = List.of("products/1/a_thumb.jpg", "products/1/a_medium.jpg");
+
+    @Mock
+    private StorageObjectIndex objectIndex;
+
+    @Mock
+    private StorageDeletionQueue deletionQueue;
+
+    @InjectMocks
+    private SupabaseStorageService storageService;
+
+    @Test
+    void variantsOfAnUnusedObjectAreQueuedForDeletion() {
+        when(objectIndex.references(BUCKET, PATH)).thenReturn(0);
+
+        storageService.releaseVariants(BUCKET, PATH, VARIANTS, 0);
+
+        verify(deletionQueue).enqueue(BUCKET, VARIANTS);
+    }
+
+    @Test
+    void variantsOfAnObjectStillSharedWithAnotherImageAreKept() {
+        when(objectIndex.references(BUCKET, PATH)).thenReturn(1);
+
+        storageService.releaseVariants(BUCKET, PATH, VARIANTS, 0);
+
+        verify(deletionQueue, never()).enqueue(any(), anyCollection());
+    }
+
+    @Test
+    void variantsOnlyTheCallersImageUsesAreQueuedForDeletion() {
+        when(objectIndex.references(BUCKET, PATH)).thenReturn(1);
+
+        storageService.releaseVariants(BUCKET, PATH, VARIANTS, 1);
+
+        verify(deletionQueue).enqueue(BUCKET, VARIANTS);
+    }
+}
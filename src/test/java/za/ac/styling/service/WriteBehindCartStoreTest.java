@@ -0,0 +1,117 @@
+package za.ac.styling.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import za.ac.styling.domain.Cart;
+import za.ac.styling.domain.CartItem;
+import za.ac.styling.repository.CartRepository;
+import za.ac.styling.repository.ProductColourSizeRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WriteBehindCartStoreTest {
+
+    private static final String UPDATE_SQL = "UPDATE cart_item SET quantity = ? WHERE cart_item_id = ? AND cart_cart_id = ?";
+
+    private CartRepository cartRepository;
+    private JdbcTemplate jdbcTemplate;
+    private WriteBehindCartStore store;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository = mock(CartRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        // One cart at a time, so loading a second user's cart evicts the first
+        store = new WriteBehindCartStore(true, 1, 30, cartRepository, mock(ProductColourSizeRepository.class),
+                mock(CartMutationService.class), jdbcTemplate, mock(PlatformTransactionManager.class));
+        when(cartRepository.findByUserUserIdWithItems(1)).thenAnswer(invocation -> Optional.of(cart(10, 100, 1)));
+        when(cartRepository.findByUserUserIdWithItems(2)).thenAnswer(invocation -> Optional.of(cart(20, 200, 1)));
+    }
+
+    @Test
+    void evictedCartIsWrittenByTheNextFlush() {
+        store.getCart(1);
+        store.updateQuantity(100, 3);
+
+        store.getCart(2);
+        store.flushDirty();
+
+        assertThat(updatedRows()).anySatisfy(row -> assertThat(row).containsExactly(3, 100, 10));
+    }
+
+    @Test
+    void failedFlushKeepsEvictedChangesAndRetries() {
+        store.getCart(1);
+        store.updateQuantity(100, 3);
+        store.getCart(2);
+        when(jdbcTemplate.batchUpdate(eq(UPDATE_SQL), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(new int[] { 1 });
+
+        store.flushDirty();
+        assertThat(store.getDirtyCartCount()).isEqualTo(1);
+
+        store.flushDirty();
+        assertThat(store.getDirtyCartCount()).isZero();
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(UPDATE_SQL), anyList());
+    }
+
+    @Test
+    void requestForAnEvictedUnwrittenCartTakesItBackInsteadOfReloading() {
+        store.getCart(1);
+        store.updateQuantity(100, 3);
+        store.getCart(2);
+
+        Optional<Cart> cart = store.getCart(1);
+
+        assertThat(cart).isPresent();
+        assertThat(cart.get().getItems()).singleElement().extracting(CartItem::getQuantity).isEqualTo(3);
+        verify(cartRepository, times(1)).findByUserUserIdWithItems(1);
+        verify(jdbcTemplate, never()).batchUpdate(eq(UPDATE_SQL), anyList());
+    }
+
+    @Test
+    void writtenEvictedCartIsReleasedAndReloadedNextTime() {
+        store.getCart(1);
+        store.updateQuantity(100, 3);
+        store.getCart(2);
+        store.flushDirty();
+
+        store.getCart(1);
+
+        verify(cartRepository, times(2)).findByUserUserIdWithItems(1);
+        // Its items now belong to the reloaded entry, not the released one
+        assertThat(store.updateQuantity(100, 4)).isNotNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> updatedRows() {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(eq(UPDATE_SQL), rows.capture());
+        List<Object[]> all = new ArrayList<>();
+        rows.getAllValues().forEach(all::addAll);
+        return all;
+    }
+
+    private static Cart cart(int cartId, int itemId, int quantity) {
+        Cart cart = Cart.builder().cartId(cartId).items(new ArrayList<>()).build();
+        cart.getItems().add(CartItem.builder().cartItemId(itemId).cart(cart).quantity(quantity).build());
+        return cart;
+    }
+}
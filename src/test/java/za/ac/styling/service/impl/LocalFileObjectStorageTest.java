@@ -0,0 +1,87 @@
+package za.ac.styling.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import za.ac.styling.service.ObjectStorage;
+import za.ac.styling.service.ObjectStorageContractTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalFileObjectStorageTest extends ObjectStorageContractTest {
+
+    @TempDir
+    Path root;
+
+    @Override
+    protected ObjectStorage createStorage() throws IOException {
+        return new LocalFileObjectStorage(root.toString(), "http://localhost/files/", "test-signing-key");
+    }
+
+    private LocalFileObjectStorage local() {
+        return (LocalFileObjectStorage) storage;
+    }
+
+    @Test
+    void signedTokenVerifiesForTheSameObjectOnly() throws IOException {
+        URI signed = URI.create(storage.sign(BUCKET, "products/1/a.txt", 60));
+        long expires = Long.parseLong(queryParam(signed, "expires"));
+        String token = queryParam(signed, "token");
+
+        assertThat(signed.getPath()).isEqualTo("/files/" + BUCKET + "/products/1/a.txt");
+        assertThat(local().verify(BUCKET, "products/1/a.txt", expires, token)).isTrue();
+        assertThat(local().verify(BUCKET, "products/1/b.txt", expires, token)).isFalse();
+        assertThat(local().verify(BUCKET, "products/1/a.txt", expires + 1, token)).isFalse();
+        assertThat(local().verify(BUCKET, "products/1/a.txt", expires, null)).isFalse();
+    }
+
+    @Test
+    void expiredTokenDoesNotVerify() throws IOException {
+        URI signed = URI.create(storage.sign(BUCKET, "products/1/a.txt", -1));
+        long expires = Long.parseLong(queryParam(signed, "expires"));
+
+        assertThat(expires).isLessThan(Instant.now().getEpochSecond());
+        assertThat(local().verify(BUCKET, "products/1/a.txt", expires, queryParam(signed, "token"))).isFalse();
+    }
+
+    @Test
+    void failedUploadLeavesNoTempFiles() throws IOException {
+        upload("products/1/a.txt", "original");
+        byte[] bytes = "short".getBytes();
+        try {
+            storage.upload(BUCKET, "products/1/a.txt", () -> new ByteArrayInputStream(bytes), 99, "text/plain");
+        } catch (IOException expected) {
+            // size mismatch
+        }
+
+        try (Stream<Path> files = Files.list(root.resolve(BUCKET).resolve("products/1"))) {
+            assertThat(files.map(path -> path.getFileName().toString())).containsExactly("a.txt");
+        }
+    }
+
+    @Test
+    void otherBucketsAreNotReachable() {
+        assertThat(Files.exists(root.resolve("other"))).isFalse();
+        assertThatThrownBy(() -> upload("../other/a.txt", "x"))
+                .isInstanceOf(IOException.class);
+        assertThat(Files.exists(root.resolve("other"))).isFalse();
+    }
+
+    private static String queryParam(URI uri, String name) {
+        for (String pair : uri.getRawQuery().split("&")) {
+            int eq = pair.indexOf('=');
+            if (pair.substring(0, eq).equals(name)) {
+                return pair.substring(eq + 1);
+            }
+        }
+        throw new AssertionError("Missing query parameter " + name + " in " + uri);
+    }
+}